@@ -0,0 +1,224 @@
+package ca.bcit.comp2522.bank.bench;
+
+import ca.bcit.comp2522.bank.BankAccount;
+import ca.bcit.comp2522.bank.BankClient;
+import ca.bcit.comp2522.bank.BankRegistry;
+import ca.bcit.comp2522.bank.Date;
+import ca.bcit.comp2522.bank.Name;
+import ca.bcit.comp2522.bank.StatementWriter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-threaded benchmarks for BankAccount postings and the reads and
+ * renderings around them: details, statements and registry lookups.
+ * See {@link ContendedAccountBenchmarks} for many threads on one account.
+ *
+ * Expected gc.alloc.rate.norm with -prof gc: 40 B/op for each deposit
+ * (one balance version), 80 B/op for each deposit-and-withdraw pair, the
+ * same in dollars or cents, and about 0 B/op for the statements and
+ * findAccount. Money arithmetic allocates nothing; any other number on a
+ * posting means something new allocates on the hot path.
+ *
+ * @author Nazanin Mohsenimehr
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AccountBenchmarks
+{
+    private static final int PIN = 4664;
+    private static final int ATM_ACCOUNTS = 1 << 14;
+    private static final int ATM_FIRST_PIN = 1000;
+    private static final long ATM_STRIDE = 7919L;
+    private static final int REGISTERED_ACCOUNTS = 1024;
+
+    private BankClient client;
+    private BankAccount account;
+    private BankAccount dollars;
+    private BankAccount[] atm;
+    private StatementWriter statements;
+    private BankRegistry registry;
+    private String[] numbers;
+    private long i;
+
+    /**
+     * Opens the accounts under test.
+     */
+    @Setup
+    public void setUp()
+    {
+        final Date opened = Date.of(1994, 5, 10);
+        client = new BankClient("111222", new Name("Albert", "Einstein"), Date.of(1918, 7, 18), opened, null);
+        account = new BankAccount(client, "654321", PIN, opened);
+        dollars = new BankAccount(client, "654322", PIN, opened);
+
+        atm = new BankAccount[ATM_ACCOUNTS];
+        for (int n = 0; n < atm.length; n++)
+        {
+            atm[n] = new BankAccount(client, "t" + (100000 + n), ATM_FIRST_PIN + n, opened);
+            atm[n].depositCents(1);
+        }
+
+        statements = new StatementWriter(OutputStream.nullOutputStream());
+
+        registry = new BankRegistry();
+        numbers = new String[REGISTERED_ACCOUNTS];
+        for (int n = 0; n < numbers.length; n++)
+        {
+            numbers[n] = "r" + (100000 + n);
+            registry.register(new BankAccount(client, numbers[n], 1, opened));
+        }
+    }
+
+    /**
+     * Deposits one cent.
+     *
+     * @return the new balance
+     */
+    @Benchmark
+    public long deposit()
+    {
+        account.depositCents(1);
+        return account.getBalanceCents();
+    }
+
+    /**
+     * Deposits one cent and withdraws it again with the PIN.
+     *
+     * @return the balance afterwards
+     */
+    @Benchmark
+    public long withdraw()
+    {
+        account.depositCents(1);
+        account.withdrawCents(1, PIN);
+        return account.getBalanceCents();
+    }
+
+    /**
+     * Deposits one cent given in dollars, which is rounded to cents first.
+     *
+     * @return the new balance in dollars
+     */
+    @Benchmark
+    public double depositUsd()
+    {
+        dollars.deposit(0.01);
+        return dollars.getBalanceUsd();
+    }
+
+    /**
+     * Deposits one cent given in cents; the baseline for {@link #depositUsd()}.
+     *
+     * @return the new balance in cents
+     */
+    @Benchmark
+    public long depositCents()
+    {
+        dollars.depositCents(1);
+        return dollars.getBalanceCents();
+    }
+
+    /**
+     * Deposits and withdraws one cent given in dollars.
+     *
+     * @return the balance afterwards, in dollars
+     */
+    @Benchmark
+    public double withdrawUsd()
+    {
+        dollars.deposit(0.01);
+        dollars.withdraw(0.01, PIN);
+        return dollars.getBalanceUsd();
+    }
+
+    /**
+     * Deposits and withdraws one cent given in cents; the baseline for {@link #withdrawUsd()}.
+     *
+     * @return the balance afterwards, in cents
+     */
+    @Benchmark
+    public long withdrawCents()
+    {
+        dollars.depositCents(1);
+        dollars.withdrawCents(1, PIN);
+        return dollars.getBalanceCents();
+    }
+
+    /**
+     * ATM-style: deposits and withdraws with the PIN, striding over many
+     * accounts so each one's PIN check misses the cache.
+     *
+     * @return the account used
+     */
+    @Benchmark
+    public int withdrawPinManyAccounts()
+    {
+        final int n = (int) ((i++ * ATM_STRIDE) & (atm.length - 1));
+        atm[n].depositCents(1);
+        atm[n].withdrawCents(1, ATM_FIRST_PIN + n);
+        return n;
+    }
+
+    /**
+     * Renders the account's details sentence.
+     *
+     * @return the details
+     */
+    @Benchmark
+    public String getDetails()
+    {
+        return account.getDetails();
+    }
+
+    /**
+     * Streams one account statement line to a discarding sink.
+     *
+     * @throws IOException never, for the discarding sink
+     */
+    @Benchmark
+    public void writeAccountStatement() throws IOException
+    {
+        statements.writeAccount(account);
+    }
+
+    /**
+     * Streams one client statement line to a discarding sink.
+     *
+     * @throws IOException never, for the discarding sink
+     */
+    @Benchmark
+    public void writeClientStatement() throws IOException
+    {
+        statements.writeClient(client);
+    }
+
+    /**
+     * Looks an account up by number in the registry.
+     *
+     * @return the account
+     */
+    @Benchmark
+    public BankAccount findAccount()
+    {
+        return registry.findAccount(numbers[(int) (i++ & (numbers.length - 1))]);
+    }
+}
@@ -0,0 +1,92 @@
+package ca.bcit.comp2522.bank.bench;
+
+import ca.bcit.comp2522.bank.BankAccount;
+import ca.bcit.comp2522.bank.BankClient;
+import ca.bcit.comp2522.bank.Date;
+import ca.bcit.comp2522.bank.EndOfDayAccrual;
+import ca.bcit.comp2522.bank.Name;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for one end-of-day interest and fee run over 100,000
+ * accounts, at several pool sizes and on the common pool. One operation
+ * is a whole run, so accounts per second is 100,000 divided by the time
+ * per operation.
+ *
+ * @author Nazanin Mohsenimehr
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AccrualBenchmarks
+{
+    private static final int ACCOUNTS = 100_000;
+    private static final String COMMON_POOL = "commonPool";
+
+    /** Threads in the accrual's own pool, or commonPool for the shared pool. */
+    @Param({"1", "2", "4", "8", COMMON_POOL})
+    public String parallelism;
+
+    private BankAccount[] book;
+    private EndOfDayAccrual accrual;
+
+    /**
+     * Opens the accounts, one in ten closed, and builds the accrual.
+     */
+    @Setup
+    public void setUp()
+    {
+        final Date opened = Date.of(1994, 5, 10);
+        final BankClient client = new BankClient("111222", new Name("Albert", "Einstein"),
+                Date.of(1918, 7, 18), opened, null);
+        book = new BankAccount[ACCOUNTS];
+        for (int n = 0; n < book.length; n++)
+        {
+            book[n] = new BankAccount(client, "e" + (100000 + n), 1, opened, n % 10 == 0 ? opened : null);
+            book[n].depositCents(1 + n * 997L);
+        }
+        final EndOfDayAccrual.Schedule schedule = new EndOfDayAccrual.Schedule(
+                new long[] {0L, 100_000L}, new int[] {50, 150}, 0L, 0L);
+        accrual = COMMON_POOL.equals(parallelism)
+                ? new EndOfDayAccrual(schedule)
+                : new EndOfDayAccrual(schedule, Integer.parseInt(parallelism));
+    }
+
+    /**
+     * Shuts down the accrual's pool, if it has its own.
+     */
+    @TearDown
+    public void tearDown()
+    {
+        accrual.close();
+    }
+
+    /**
+     * Accrues one day over every account.
+     *
+     * @return how many accounts accrued
+     */
+    @Benchmark
+    public int run()
+    {
+        return accrual.run(book).getAccrued();
+    }
+}
@@ -0,0 +1,60 @@
+package ca.bcit.comp2522.bank.bench;
+
+import ca.bcit.comp2522.bank.BankClient;
+import ca.bcit.comp2522.bank.Date;
+import ca.bcit.comp2522.bank.Name;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for constructing and describing a BankClient.
+ *
+ * @author Nazanin Mohsenimehr
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ClientBenchmarks
+{
+    private final Name name = new Name("Albert", "Einstein");
+    private final Date born = Date.of(1918, 7, 18);
+    private final Date signup = Date.of(1994, 5, 10);
+    private final Date died = Date.of(2013, 12, 5);
+    private final BankClient client = new BankClient("111222", name, born, signup, null);
+
+    /**
+     * Validates and builds a new BankClient.
+     *
+     * @return the new client
+     */
+    @Benchmark
+    public BankClient create()
+    {
+        return new BankClient("111222", name, born, signup, died);
+    }
+
+    /**
+     * Renders the client's details sentence.
+     *
+     * @return the details
+     */
+    @Benchmark
+    public String getDetails()
+    {
+        return client.getDetails();
+    }
+}
@@ -0,0 +1,114 @@
+package ca.bcit.comp2522.bank.bench;
+
+import ca.bcit.comp2522.bank.BankAccount;
+import ca.bcit.comp2522.bank.BankClient;
+import ca.bcit.comp2522.bank.Date;
+import ca.bcit.comp2522.bank.Name;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for several threads posting to shared accounts at once:
+ * one hot account, and ATM-style withdrawals spread over many accounts.
+ * Change the thread count with -t.
+ *
+ * Expected gc.alloc.rate.norm with -prof gc is the single-threaded 40 B
+ * per posting, plus a little for versions built by compare-and-sets that
+ * lost a race and were retried.
+ *
+ * @author Nazanin Mohsenimehr
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(ContendedAccountBenchmarks.THREADS)
+@State(Scope.Benchmark)
+public class ContendedAccountBenchmarks
+{
+    /** Threads posting at once unless -t says otherwise. */
+    public static final int THREADS = 4;
+
+    private static final int PIN = 3141;
+    private static final int ATM_ACCOUNTS = 1 << 14;
+    private static final int ATM_FIRST_PIN = 1000;
+    private static final long ATM_STRIDE = 7919L;
+
+    private BankAccount shared;
+    private BankAccount[] atm;
+
+    /**
+     * Where one thread is in its walk over the ATM accounts.
+     */
+    @State(Scope.Thread)
+    public static class Cursor
+    {
+        private long i;
+    }
+
+    /**
+     * Opens the accounts under test.
+     */
+    @Setup
+    public void setUp()
+    {
+        final Date opened = Date.of(1994, 5, 10);
+        final BankClient client = new BankClient("111222", new Name("Albert", "Einstein"),
+                Date.of(1918, 7, 18), opened, null);
+        shared = new BankAccount(client, "abc123", PIN, opened);
+        atm = new BankAccount[ATM_ACCOUNTS];
+        for (int n = 0; n < atm.length; n++)
+        {
+            atm[n] = new BankAccount(client, "t" + (100000 + n), ATM_FIRST_PIN + n, opened);
+            atm[n].depositCents(1);
+        }
+    }
+
+    /**
+     * Deposits one cent into the hot account.
+     */
+    @Benchmark
+    public void deposit()
+    {
+        shared.depositCents(1);
+    }
+
+    /**
+     * Deposits one cent into the hot account and withdraws it with the PIN.
+     */
+    @Benchmark
+    public void withdraw()
+    {
+        shared.depositCents(1);
+        shared.withdrawCents(1, PIN);
+    }
+
+    /**
+     * ATM-style withdrawals with PIN checks over many accounts, from every thread.
+     *
+     * @param cursor this thread's position in the walk
+     * @return the account used
+     */
+    @Benchmark
+    public int withdrawPinManyAccounts(final Cursor cursor)
+    {
+        final int n = (int) ((cursor.i++ * ATM_STRIDE) & (atm.length - 1));
+        atm[n].depositCents(1);
+        atm[n].withdrawCents(1, ATM_FIRST_PIN + n);
+        return n;
+    }
+}
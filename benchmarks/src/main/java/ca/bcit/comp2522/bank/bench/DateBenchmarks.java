@@ -0,0 +1,174 @@
+package ca.bcit.comp2522.bank.bench;
+
+import ca.bcit.comp2522.bank.Date;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for constructing a Date and reading its day of the week.
+ * Construction walks through the supported years, months and days so the
+ * Date.of cache sees a realistic spread of inputs.
+ *
+ * The day-of-week pair compares the epoch-day lookup Date uses now with
+ * the century-offset formula it replaced, over the same spread of days.
+ * The old formula is the one DateTest checks the new lookup against.
+ *
+ * @author Nazanin Mohsenimehr
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DateBenchmarks
+{
+    private static final int FIRST_YEAR = 1800;
+    private static final int YEARS = 226;
+    private static final int MONTHS = 12;
+    private static final int DAYS = 28;
+    private static final int SAMPLE_DAYS = 4096;
+    private static final long SEED = 2522L;
+
+    // Inputs of the old formula
+    private static final int CENTURY_YEAR = 2000;
+    private static final int MAX_YEAR_1800S = 1899;
+    private static final int ADJUSTMENT_1800S = 2;
+    private static final int ADJUSTMENT_2000S = 6;
+    private static final int ADJUSTMENT_LEAP_YEAR = 6;
+    private static final int YEAR_WITHIN_CENTURY_DIVISOR = 100;
+    private static final int TWELVE_YEAR_CYCLE = 12;
+    private static final int LEAP_YEAR_CYCLE = 4;
+    private static final int FOUR_CENTURY_CYCLE = 400;
+    private static final int DAYS_IN_WEEK = 7;
+    private static final int[] MONTH_CODES = {0, 1, 4, 4, 0, 2, 5, 0, 3, 6, 1, 4, 6};
+
+    private final Date date = Date.of(1994, 5, 10);
+    private final Date[] sample = new Date[SAMPLE_DAYS];
+    private final int[] years = new int[SAMPLE_DAYS];
+    private final int[] months = new int[SAMPLE_DAYS];
+    private final int[] days = new int[SAMPLE_DAYS];
+    private int i;
+
+    /**
+     * Picks the days the day-of-week pair walks over, the same for both.
+     */
+    @Setup
+    public void setUp()
+    {
+        final SplittableRandom random = new SplittableRandom(SEED);
+        final long first = LocalDate.of(FIRST_YEAR, 1, 1).toEpochDay();
+        final long last = LocalDate.of(FIRST_YEAR + YEARS - 1, 12, 31).toEpochDay();
+        for (int n = 0; n < SAMPLE_DAYS; n++)
+        {
+            final LocalDate day = LocalDate.ofEpochDay(random.nextLong(first, last + 1));
+            years[n] = day.getYear();
+            months[n] = day.getMonthValue();
+            days[n] = day.getDayOfMonth();
+            sample[n] = Date.of(years[n], months[n], days[n]);
+        }
+    }
+
+    /**
+     * Validates and builds a new Date.
+     *
+     * @return the new date
+     */
+    @Benchmark
+    public Date create()
+    {
+        final int n = i++ & Integer.MAX_VALUE;
+        return new Date(FIRST_YEAR + n % YEARS, 1 + n % MONTHS, 1 + n % DAYS);
+    }
+
+    /**
+     * Looks a Date up in the shared cache, building it on a miss.
+     *
+     * @return the cached date
+     */
+    @Benchmark
+    public Date of()
+    {
+        final int n = i++ & Integer.MAX_VALUE;
+        return Date.of(FIRST_YEAR + n % YEARS, 1 + n % MONTHS, 1 + n % DAYS);
+    }
+
+    /**
+     * Reads the day of the week.
+     *
+     * @return the day of the week
+     */
+    @Benchmark
+    public int getDayOfTheWeek()
+    {
+        return date.getDayOfTheWeek();
+    }
+
+    /**
+     * Day of the week from the epoch day, walking over many dates.
+     *
+     * @return the day of the week
+     */
+    @Benchmark
+    public int dayOfWeekEpochDay()
+    {
+        return sample[i++ & (SAMPLE_DAYS - 1)].getDayOfTheWeek();
+    }
+
+    /**
+     * Day of the week from the century-offset formula, over the same dates.
+     *
+     * @return the day of the week
+     */
+    @Benchmark
+    public int dayOfWeekCenturyOffset()
+    {
+        final int n = i++ & (SAMPLE_DAYS - 1);
+        return oldDayOfTheWeek(years[n], months[n], days[n]);
+    }
+
+    // The formula Date used before it kept an epoch day; 0=Sat, 1=Sun, ..., 6=Fri
+    private static int oldDayOfTheWeek(final int year,
+                                       final int month,
+                                       final int day)
+    {
+        int extraDay = 0;
+        if (year >= CENTURY_YEAR)
+        {
+            extraDay += ADJUSTMENT_2000S;
+        } else if (year <= MAX_YEAR_1800S)
+        {
+            extraDay += ADJUSTMENT_1800S;
+        }
+        if ((month == 1 || month == 2) && isLeapYear(year))
+        {
+            extraDay += ADJUSTMENT_LEAP_YEAR;
+        }
+        final int yearWithinCentury = year % YEAR_WITHIN_CENTURY_DIVISOR;
+        final int dozenYear = yearWithinCentury / TWELVE_YEAR_CYCLE;
+        final int remainder = yearWithinCentury - dozenYear * TWELVE_YEAR_CYCLE;
+        final int foursInRemainder = remainder / LEAP_YEAR_CYCLE;
+        final int sum = extraDay + day + dozenYear + remainder + foursInRemainder + MONTH_CODES[month];
+        return sum % DAYS_IN_WEEK;
+    }
+
+    private static boolean isLeapYear(final int year)
+    {
+        return year % LEAP_YEAR_CYCLE == 0
+                && (year % YEAR_WITHIN_CENTURY_DIVISOR != 0 || year % FOUR_CENTURY_CYCLE == 0);
+    }
+}
@@ -0,0 +1,150 @@
+package ca.bcit.comp2522.bank.bench;
+
+import ca.bcit.comp2522.bank.BankAccount;
+import ca.bcit.comp2522.bank.BankClient;
+import ca.bcit.comp2522.bank.Date;
+import ca.bcit.comp2522.bank.Name;
+import ca.bcit.comp2522.bank.TransactionJournal;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for write-ahead deposits into journaled accounts. Each
+ * deposit returns once its record is durable, and one fsync covers every
+ * deposit waiting on it, so the commit window trades latency for larger
+ * groups. The numbers depend on the disk far more than on the CPU.
+ *
+ * The hot-account case sends every deposit to one account. An account
+ * waits for its records without holding its monitor, so its deposits
+ * should share fsyncs like deposits into different accounts do.
+ *
+ * @author Nazanin Mohsenimehr
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JournalBenchmarks
+{
+    private static final int ACCOUNTS = 256;
+    private static final int MANY_THREADS = 32;
+
+    /** How long the journal's flusher waits to gather a group, in microseconds. */
+    @Param({"0", "200", "1000"})
+    public long windowMicros;
+
+    private Path file;
+    private TransactionJournal journal;
+    private BankAccount[] accounts;
+
+    /**
+     * Opens a journal in a temporary file and attaches it to every account.
+     *
+     * @throws IOException if the journal cannot be opened
+     */
+    @Setup
+    public void setUp() throws IOException
+    {
+        file = Files.createTempFile("journal-bench", ".log");
+        journal = TransactionJournal.open(file, windowMicros, TimeUnit.MICROSECONDS);
+        final Date opened = Date.of(1994, 5, 10);
+        final BankClient client = new BankClient("111222", new Name("Albert", "Einstein"),
+                Date.of(1918, 7, 18), opened, null);
+        accounts = new BankAccount[ACCOUNTS];
+        for (int n = 0; n < accounts.length; n++)
+        {
+            accounts[n] = new BankAccount(client, "j" + (100000 + n), 1, opened);
+            accounts[n].attachJournal(journal);
+        }
+    }
+
+    /**
+     * Closes and deletes the journal.
+     *
+     * @throws IOException if the journal cannot be closed or deleted
+     */
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        journal.close();
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * A deposit into a random account from one thread: one fsync each.
+     *
+     * @return the new balance
+     */
+    @Benchmark
+    @Threads(1)
+    public long deposit()
+    {
+        return depositIntoRandomAccount();
+    }
+
+    /**
+     * Deposits into random accounts from several threads.
+     *
+     * @return the new balance
+     */
+    @Benchmark
+    @Threads(ContendedAccountBenchmarks.THREADS)
+    public long depositContended()
+    {
+        return depositIntoRandomAccount();
+    }
+
+    /**
+     * Deposits into random accounts from many threads, as under a teller load.
+     *
+     * @return the new balance
+     */
+    @Benchmark
+    @Threads(MANY_THREADS)
+    public long depositManyThreads()
+    {
+        return depositIntoRandomAccount();
+    }
+
+    /**
+     * Deposits into one account from many threads.
+     *
+     * @return the new balance
+     */
+    @Benchmark
+    @Threads(MANY_THREADS)
+    public long depositHotAccount()
+    {
+        final BankAccount account = accounts[0];
+        account.depositCents(1);
+        return account.getBalanceCents();
+    }
+
+    private long depositIntoRandomAccount()
+    {
+        final BankAccount account = accounts[ThreadLocalRandom.current().nextInt(accounts.length)];
+        account.depositCents(1);
+        return account.getBalanceCents();
+    }
+}
@@ -0,0 +1,76 @@
+package ca.bcit.comp2522.bank.bench;
+
+import ca.bcit.comp2522.bank.Name;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for constructing and rendering a Name.
+ *
+ * @author Nazanin Mohsenimehr
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NameBenchmarks
+{
+    private final Name name = new Name("Albert", "Einstein");
+
+    /**
+     * Validates and builds a new Name.
+     *
+     * @return the new name
+     */
+    @Benchmark
+    public Name create()
+    {
+        return new Name("Albert", "Einstein");
+    }
+
+    /**
+     * Renders "First Last".
+     *
+     * @return the full name
+     */
+    @Benchmark
+    public String getFullName()
+    {
+        return name.getFullName();
+    }
+
+    /**
+     * Renders the initials.
+     *
+     * @return the initials
+     */
+    @Benchmark
+    public String getInitial()
+    {
+        return name.getInitial();
+    }
+
+    /**
+     * Renders the name reversed.
+     *
+     * @return the reversed name
+     */
+    @Benchmark
+    public String getReverseName()
+    {
+        return name.getReverseName();
+    }
+}
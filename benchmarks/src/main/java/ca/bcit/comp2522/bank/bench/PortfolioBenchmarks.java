@@ -0,0 +1,180 @@
+package ca.bcit.comp2522.bank.bench;
+
+import ca.bcit.comp2522.bank.BankAccount;
+import ca.bcit.comp2522.bank.BankClient;
+import ca.bcit.comp2522.bank.ColumnarAccountStore;
+import ca.bcit.comp2522.bank.Date;
+import ca.bcit.comp2522.bank.Name;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole-portfolio scans over 10 million accounts, once through the
+ * BankAccount objects and once through a ColumnarAccountStore. The forked
+ * JVM gets a 3 GB heap to hold both.
+ *
+ * @author Nazanin Mohsenimehr
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class PortfolioBenchmarks
+{
+    private static final int ACCOUNTS = 10_000_000;
+    private static final int CLIENTS = 100_000;
+    private static final int FIRST_YEAR = 1800;
+    private static final int YEARS = 226;
+
+    private BankAccount[] accounts;
+    private ColumnarAccountStore columns;
+
+    /**
+     * Opens the accounts, one in sixteen closed, and copies them into the columnar store.
+     */
+    @Setup
+    public void setUp()
+    {
+        final Name owner = new Name("Marie", "Curie");
+        final BankClient[] clients = new BankClient[CLIENTS];
+        for (int c = 0; c < clients.length; c++)
+        {
+            final Date signup = Date.of(1950 + c % 70, 1 + c % 12, 1 + c % 28);
+            clients[c] = new BankClient(String.valueOf(1_000_000 + c), owner, Date.of(1930, 1, 1), signup, null);
+        }
+        accounts = new BankAccount[ACCOUNTS];
+        for (int n = 0; n < accounts.length; n++)
+        {
+            final BankClient client = clients[n % clients.length];
+            final Date opened = Date.ofEpochDay(client.getSignupDate().getEpochDay() + n % 1000);
+            accounts[n] = new BankAccount(client, "p00000", 1, opened, n % 16 == 0 ? opened : null);
+            accounts[n].depositCents(1 + n % 1_000_000);
+        }
+        columns = ColumnarAccountStore.of(accounts);
+    }
+
+    /**
+     * Sums every balance through the objects.
+     *
+     * @return the total in cents
+     */
+    @Benchmark
+    public long objectsTotalBalance()
+    {
+        long total = 0L;
+        for (final BankAccount account : accounts)
+        {
+            total += account.getBalanceCents();
+        }
+        return total;
+    }
+
+    /**
+     * Sums every balance through the columns.
+     *
+     * @return the total in cents
+     */
+    @Benchmark
+    public long columnsTotalBalance()
+    {
+        return columns.totalBalanceCents();
+    }
+
+    /**
+     * Sums the balances of open accounts through the objects.
+     *
+     * @return the total in cents
+     */
+    @Benchmark
+    public long objectsOpenBalance()
+    {
+        long total = 0L;
+        for (final BankAccount account : accounts)
+        {
+            if (account.getAccountClosed() == null)
+            {
+                total += account.getBalanceCents();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Sums the balances of open accounts through the columns.
+     *
+     * @return the total in cents
+     */
+    @Benchmark
+    public long columnsOpenBalance()
+    {
+        return columns.openBalanceCents();
+    }
+
+    /**
+     * Finds the largest balance through the objects.
+     *
+     * @return the largest balance in cents
+     */
+    @Benchmark
+    public long objectsMaxBalance()
+    {
+        long max = Long.MIN_VALUE;
+        for (final BankAccount account : accounts)
+        {
+            max = Math.max(max, account.getBalanceCents());
+        }
+        return max;
+    }
+
+    /**
+     * Finds the largest balance through the columns.
+     *
+     * @return the largest balance in cents
+     */
+    @Benchmark
+    public long columnsMaxBalance()
+    {
+        return columns.maxBalanceCents();
+    }
+
+    /**
+     * Counts accounts by the year they opened, through the objects.
+     *
+     * @return the counts, indexed from 1800
+     */
+    @Benchmark
+    public int[] objectsCountByOpenYear()
+    {
+        final int[] counts = new int[YEARS];
+        for (final BankAccount account : accounts)
+        {
+            counts[account.getAccountOpened().getYear() - FIRST_YEAR]++;
+        }
+        return counts;
+    }
+
+    /**
+     * Counts accounts by the year they opened, through the columns.
+     *
+     * @return the counts, indexed from 1800
+     */
+    @Benchmark
+    public int[] columnsCountByOpenYear()
+    {
+        return columns.countByOpenYear();
+    }
+}
@@ -0,0 +1,123 @@
+package ca.bcit.comp2522.bank.bench;
+
+import ca.bcit.comp2522.bank.BankAccount;
+import ca.bcit.comp2522.bank.BankClient;
+import ca.bcit.comp2522.bank.Date;
+import ca.bcit.comp2522.bank.Name;
+import ca.bcit.comp2522.bank.Transfers;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for transfers between random pairs of accounts, from one
+ * thread and from several. Transfers that fail for lack of funds are part
+ * of the workload. After every iteration the total across all accounts
+ * must be what it started at.
+ *
+ * @author Nazanin Mohsenimehr
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransferBenchmarks
+{
+    private static final int ACCOUNTS = 4096;
+    private static final long START_CENTS = 10_000L;
+    private static final int MAX_CENTS = 5_000;
+
+    private BankAccount[] pool;
+
+    /**
+     * Opens the accounts, each with the same starting balance.
+     */
+    @Setup
+    public void setUp()
+    {
+        final Date opened = Date.of(1994, 5, 10);
+        final BankClient client = new BankClient("111222", new Name("Albert", "Einstein"),
+                Date.of(1918, 7, 18), opened, null);
+        pool = new BankAccount[ACCOUNTS];
+        for (int n = 0; n < pool.length; n++)
+        {
+            pool[n] = new BankAccount(client, "x" + (100000 + n), 1, opened);
+            pool[n].depositCents(START_CENTS);
+        }
+    }
+
+    /**
+     * Checks that no money was made or lost.
+     *
+     * @throws IllegalStateException if the total changed
+     */
+    @TearDown(Level.Iteration)
+    public void checkConserved()
+    {
+        long total = 0L;
+        for (final BankAccount account : pool)
+        {
+            total += account.getBalanceCents();
+        }
+        if (total != ACCOUNTS * START_CENTS)
+        {
+            throw new IllegalStateException("Money not conserved: " + total + " != " + ACCOUNTS * START_CENTS);
+        }
+    }
+
+    /**
+     * One transfer between a random pair, from one thread.
+     *
+     * @return 1 if the transfer went through, 0 if funds were short
+     */
+    @Benchmark
+    @Threads(1)
+    public int randomPairs()
+    {
+        return randomTransfer();
+    }
+
+    /**
+     * One transfer between a random pair, from several threads at once.
+     *
+     * @return 1 if the transfer went through, 0 if funds were short
+     */
+    @Benchmark
+    @Threads(ContendedAccountBenchmarks.THREADS)
+    public int randomPairsContended()
+    {
+        return randomTransfer();
+    }
+
+    private int randomTransfer()
+    {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final int from = random.nextInt(pool.length);
+        final int to = (from + 1 + random.nextInt(pool.length - 1)) % pool.length;
+        try
+        {
+            Transfers.transfer(pool[from], pool[to], 1 + random.nextInt(MAX_CENTS));
+        } catch (final IllegalArgumentException e)
+        {
+            return 0;
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,293 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Bitmap secondary indexes over accounts for reporting queries.
+ * Each account gets an ordinal when it is added; the index keeps one
+ * {@link OrdinalBitmap} for open accounts, one for accounts of living
+ * clients, and one per year for client signup and account opening dates.
+ * A question such as "open accounts of living clients who signed up
+ * between 1990 and 2000" is then a couple of bitmap ANDs:
+ *
+ * <pre>
+ * index.open().and(index.livingClients()).and(index.signedUpBetween(1990, 2000))
+ * </pre>
+ *
+ * The index listens for {@link BankAccount#close} and
+ * {@link BankClient#recordDeath} on everything it holds. Those may happen
+ * on any thread, so they only queue the change; the next query applies it,
+ * touching just the affected bits. An index stays reachable from the
+ * accounts and clients it has seen.
+ *
+ * Not thread-safe, apart from that queue: use one index from one thread
+ * at a time.
+ *
+ * @author Nazanin Mohsenimehr
+ * @version 1.0
+ */
+public final class AccountIndex
+{
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int YEAR_BUCKETS = 512;
+
+    private BankAccount[] accounts;
+    private int size;
+
+    private final OrdinalBitmap all;
+    private final OrdinalBitmap open;
+    private final OrdinalBitmap livingClients;
+    private final LongKeyedMap<OrdinalBitmap> bySignupYear;
+    private final LongKeyedMap<OrdinalBitmap> byOpenedYear;
+    private final Map<BankClient, OrdinalBitmap> byClient;
+    private final Queue<Integer> closedAccounts;
+    private final Queue<BankClient> deceasedClients;
+
+    /**
+     * Constructs an empty index.
+     */
+    public AccountIndex()
+    {
+        this.accounts = new BankAccount[INITIAL_CAPACITY];
+        this.all = new OrdinalBitmap();
+        this.open = new OrdinalBitmap();
+        this.livingClients = new OrdinalBitmap();
+        this.bySignupYear = new LongKeyedMap<>(YEAR_BUCKETS);
+        this.byOpenedYear = new LongKeyedMap<>(YEAR_BUCKETS);
+        this.byClient = new IdentityHashMap<>();
+        this.closedAccounts = new ConcurrentLinkedQueue<>();
+        this.deceasedClients = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Adds an account to every index.
+     *
+     * @param account the account (non-null)
+     * @return the ordinal assigned to the account
+     */
+    public int add(final BankAccount account)
+    {
+        if (account == null)
+        {
+            throw new IllegalArgumentException("Account must not be null.");
+        }
+        if (size == accounts.length)
+        {
+            accounts = Arrays.copyOf(accounts, size * 2);
+        }
+        final int ordinal = size++;
+        accounts[ordinal] = account;
+
+        final BankClient client = account.getClient();
+        all.add(ordinal);
+        bucket(bySignupYear, client.getSignupDate().getYear()).add(ordinal);
+        bucket(byOpenedYear, account.getAccountOpened().getYear()).add(ordinal);
+        OrdinalBitmap ofClient = byClient.get(client);
+        if (ofClient == null)
+        {
+            ofClient = new OrdinalBitmap();
+            byClient.put(client, ofClient);
+            client.addDeathListener(() -> deceasedClients.add(client));
+        }
+        ofClient.add(ordinal);
+        account.addCloseListener(() -> closedAccounts.add(ordinal));
+
+        // Listen first, then read: a change in between is either read here or queued
+        refresh(ordinal);
+        return ordinal;
+    }
+
+    /**
+     * Re-reads the open/closed and living/deceased state of one account.
+     * Changes are picked up without this; it is for forcing a re-read.
+     *
+     * @param ordinal the account's ordinal
+     * @throws IllegalArgumentException if no account has that ordinal
+     */
+    public void refresh(final int ordinal)
+    {
+        final BankAccount account = account(ordinal);
+        open.set(ordinal, account.getAccountClosed() == null);
+        livingClients.set(ordinal, account.getClient().isAlive());
+    }
+
+    /**
+     * Re-reads the living/deceased state of every account of a client.
+     *
+     * @param client the client
+     */
+    public void refreshClient(final BankClient client)
+    {
+        final OrdinalBitmap ordinals = byClient.get(client);
+        if (ordinals == null)
+        {
+            return;
+        }
+        final boolean alive = client.isAlive();
+        for (final int ordinal : ordinals.toArray())
+        {
+            livingClients.set(ordinal, alive);
+        }
+    }
+
+    /**
+     * Returns the account with a given ordinal.
+     *
+     * @param ordinal the ordinal
+     * @return the account
+     * @throws IllegalArgumentException if no account has that ordinal
+     */
+    public BankAccount account(final int ordinal)
+    {
+        if (ordinal < 0 || ordinal >= size)
+        {
+            throw new IllegalArgumentException("No account with ordinal " + ordinal);
+        }
+        return accounts[ordinal];
+    }
+
+    /**
+     * Returns the accounts for a set of ordinals, in ordinal order.
+     *
+     * @param ordinals a query result (non-null)
+     * @return the matching accounts
+     */
+    public BankAccount[] accounts(final OrdinalBitmap ordinals)
+    {
+        final int[] matches = ordinals.toArray();
+        final BankAccount[] result = new BankAccount[matches.length];
+        for (int i = 0; i < matches.length; i++)
+        {
+            result[i] = account(matches[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of accounts indexed.
+     *
+     * @return the account count
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the open accounts.
+     *
+     * @return a new bitmap of ordinals
+     */
+    public OrdinalBitmap open()
+    {
+        applyChanges();
+        return open.copy();
+    }
+
+    /**
+     * Returns the closed accounts.
+     *
+     * @return a new bitmap of ordinals
+     */
+    public OrdinalBitmap closed()
+    {
+        applyChanges();
+        return all.andNot(open);
+    }
+
+    /**
+     * Returns the accounts whose client is alive.
+     *
+     * @return a new bitmap of ordinals
+     */
+    public OrdinalBitmap livingClients()
+    {
+        applyChanges();
+        return livingClients.copy();
+    }
+
+    /**
+     * Returns the accounts whose client has died.
+     *
+     * @return a new bitmap of ordinals
+     */
+    public OrdinalBitmap deceasedClients()
+    {
+        applyChanges();
+        return all.andNot(livingClients);
+    }
+
+    // Applies the closures and deaths queued by listeners since the last query
+    private void applyChanges()
+    {
+        Integer ordinal;
+        while ((ordinal = closedAccounts.poll()) != null)
+        {
+            refresh(ordinal);
+        }
+        BankClient client;
+        while ((client = deceasedClients.poll()) != null)
+        {
+            refreshClient(client);
+        }
+    }
+
+    /**
+     * Returns the accounts whose client signed up in a range of years.
+     *
+     * @param fromYear first year (inclusive)
+     * @param toYear last year (inclusive)
+     * @return a new bitmap of ordinals
+     */
+    public OrdinalBitmap signedUpBetween(final int fromYear,
+                                         final int toYear)
+    {
+        return union(bySignupYear, fromYear, toYear);
+    }
+
+    /**
+     * Returns the accounts opened in a range of years.
+     *
+     * @param fromYear first year (inclusive)
+     * @param toYear last year (inclusive)
+     * @return a new bitmap of ordinals
+     */
+    public OrdinalBitmap openedBetween(final int fromYear,
+                                       final int toYear)
+    {
+        return union(byOpenedYear, fromYear, toYear);
+    }
+
+    private static OrdinalBitmap bucket(final LongKeyedMap<OrdinalBitmap> buckets,
+                                        final int year)
+    {
+        OrdinalBitmap bitmap = buckets.get(year);
+        if (bitmap == null)
+        {
+            bitmap = new OrdinalBitmap();
+            buckets.put(year, bitmap);
+        }
+        return bitmap;
+    }
+
+    private static OrdinalBitmap union(final LongKeyedMap<OrdinalBitmap> buckets,
+                                       final int fromYear,
+                                       final int toYear)
+    {
+        OrdinalBitmap result = new OrdinalBitmap();
+        final int last = Math.min(toYear, Date.CURRENT_YEAR);
+        for (int year = Math.max(fromYear, Date.MIN_YEAR); year <= last; year++)
+        {
+            final OrdinalBitmap bitmap = buckets.get(year);
+            if (bitmap != null)
+            {
+                result = result.or(bitmap);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,546 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Persistent book of clients and accounts in one memory-mapped file.
+ * Every record has a fixed width, so a record is found by slot number with
+ * no parsing, and balance updates are compare-and-set operations written
+ * straight into the mapping. Opening an existing file maps it and rebuilds
+ * only the account-number index, which makes startup close to instant.
+ *
+ * File layout (little-endian):
+ *   header (64 bytes): magic, version, client capacity, account capacity,
+ *                      committed client count, committed account count
+ *   client region:  capacity x 208-byte records
+ *   account region: capacity x 80-byte records
+ *
+ * Dates are stored as epoch days. Appends only become durable at the next
+ * {@link #flush()}: records are forced to disk before the header counts
+ * that make them visible, so a crash never exposes a half-written record.
+ * Each region is mapped on its own and must be under 2 GB, i.e. about
+ * 10 million clients and 26 million accounts per file. PINs are never
+ * stored, only their salt and SHA-256 hash (see {@link PinVerifier}).
+ *
+ * Records are copies, not views: {@link #appendAccount} stores an
+ * account's state at that moment, and the ledger does not follow the
+ * BankAccount afterwards. Change a stored account through
+ * {@link #addToBalanceCents} and {@link #closeAccount}; an account from
+ * {@link #loadAccount} is likewise independent of its record.
+ *
+ * @author Nazanin Mohsenimehr
+ * @version 1.0
+ */
+public final class AccountLedger implements AutoCloseable
+{
+    private static final int MAGIC = 0x42414E4B; // "BANK"
+    private static final int VERSION = 2; // 2: PIN salt and hash instead of the PIN
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final int FLAG_DECEASED = 1;
+    private static final int FLAG_CLOSED = 1;
+
+    private static final int HEADER_SIZE = 64;
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_VERSION = 4;
+    private static final int HEADER_CLIENT_CAPACITY = 8;
+    private static final int HEADER_ACCOUNT_CAPACITY = 12;
+    private static final int HEADER_CLIENT_COUNT = 16;
+    private static final int HEADER_ACCOUNT_COUNT = 20;
+
+    // Client record: id (length byte + 7 ASCII digits), dates, flags, names
+    private static final int CLIENT_RECORD_SIZE = 208;
+    private static final int CLIENT_ID = 0;
+    private static final int CLIENT_ID_MAX_LENGTH = 7;
+    private static final int CLIENT_BORN = 8;
+    private static final int CLIENT_SIGNUP = 12;
+    private static final int CLIENT_DIED = 16;
+    private static final int CLIENT_FLAGS = 20;
+    private static final int CLIENT_FIRST = 24;
+    private static final int CLIENT_LAST = 116;
+    private static final int NAME_MAX_LENGTH = 45;
+
+    // Account record: the balance sits on an 8-byte boundary for atomic access
+    private static final int ACCOUNT_RECORD_SIZE = 80;
+    private static final int ACCOUNT_NUMBER = 0;
+    private static final int ACCOUNT_BALANCE = 8;
+    private static final int ACCOUNT_CLIENT_SLOT = 16;
+    private static final int ACCOUNT_OPENED = 20;
+    private static final int ACCOUNT_CLOSED = 24;
+    private static final int ACCOUNT_FLAGS = 28;
+    private static final int ACCOUNT_PIN_SALT = 32;
+    private static final int ACCOUNT_PIN_HASH = 48;
+
+    private static final VarHandle LONG_VIEW =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final MappedByteBuffer clients;
+    private final MappedByteBuffer accounts;
+    private final int clientCapacity;
+    private final int accountCapacity;
+    private final LongIntMap accountIndex; // account number key to slot
+    private volatile int clientCount;
+    private volatile int accountCount;
+
+    private AccountLedger(final FileChannel channel,
+                          final int clientCapacity,
+                          final int accountCapacity,
+                          final boolean created) throws IOException
+    {
+        this.channel = channel;
+        this.clientCapacity = clientCapacity;
+        this.accountCapacity = accountCapacity;
+
+        final long clientBytes = (long) clientCapacity * CLIENT_RECORD_SIZE;
+        final long accountBytes = (long) accountCapacity * ACCOUNT_RECORD_SIZE;
+        this.header = map(0, HEADER_SIZE);
+        this.clients = map(HEADER_SIZE, clientBytes);
+        this.accounts = map(HEADER_SIZE + clientBytes, accountBytes);
+
+        if (created)
+        {
+            header.putInt(HEADER_MAGIC, MAGIC)
+                    .putInt(HEADER_VERSION, VERSION)
+                    .putInt(HEADER_CLIENT_CAPACITY, clientCapacity)
+                    .putInt(HEADER_ACCOUNT_CAPACITY, accountCapacity)
+                    .putInt(HEADER_CLIENT_COUNT, 0)
+                    .putInt(HEADER_ACCOUNT_COUNT, 0);
+            header.force();
+        }
+        this.clientCount = header.getInt(HEADER_CLIENT_COUNT);
+        this.accountCount = header.getInt(HEADER_ACCOUNT_COUNT);
+
+        this.accountIndex = new LongIntMap(accountCount);
+        for (int slot = 0; slot < accountCount; slot++)
+        {
+            accountIndex.put(accounts.getLong(accountOffset(slot) + ACCOUNT_NUMBER), slot);
+        }
+    }
+
+    /**
+     * Opens a ledger file, creating it with the given capacities if it does not exist.
+     * An existing file keeps the capacities it was created with.
+     *
+     * @param path the ledger file
+     * @param clientCapacity maximum number of clients for a new file
+     * @param accountCapacity maximum number of accounts for a new file
+     * @return the open ledger
+     * @throws IOException if the file cannot be opened or mapped
+     * @throws IllegalArgumentException if capacities are invalid, the file is
+     *                                  not a ledger, or its header does not match its size
+     */
+    public static AccountLedger open(final Path path,
+                                     final int clientCapacity,
+                                     final int accountCapacity) throws IOException
+    {
+        if (path == null)
+        {
+            throw new IllegalArgumentException("Path must not be null.");
+        }
+
+        final boolean created = !Files.exists(path);
+        final FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try
+        {
+            if (created)
+            {
+                validateCapacities(clientCapacity, accountCapacity);
+                return new AccountLedger(channel, clientCapacity, accountCapacity, true);
+            }
+
+            final ByteBuffer existing = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(existing, 0);
+            if (existing.getInt(HEADER_MAGIC) != MAGIC || existing.getInt(HEADER_VERSION) != VERSION)
+            {
+                throw new IllegalArgumentException("Not an account ledger file: " + path);
+            }
+            final int storedClientCapacity = existing.getInt(HEADER_CLIENT_CAPACITY);
+            final int storedAccountCapacity = existing.getInt(HEADER_ACCOUNT_CAPACITY);
+            validateHeader(path, channel.size(), storedClientCapacity, storedAccountCapacity,
+                    existing.getInt(HEADER_CLIENT_COUNT), existing.getInt(HEADER_ACCOUNT_COUNT));
+            return new AccountLedger(channel, storedClientCapacity, storedAccountCapacity, false);
+        } catch (final IOException | RuntimeException e)
+        {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Appends a client record.
+     *
+     * @param client the client (non-null)
+     * @return the client's slot
+     * @throws IllegalArgumentException if null or a field does not fit the record
+     * @throws IllegalStateException if the client region is full
+     */
+    public synchronized int appendClient(final BankClient client)
+    {
+        if (client == null)
+        {
+            throw new IllegalArgumentException("Client must not be null.");
+        }
+        if (clientCount == clientCapacity)
+        {
+            throw new IllegalStateException("Ledger is full: " + clientCapacity + " clients.");
+        }
+
+        final String id = client.getClientID();
+        if (id.length() > CLIENT_ID_MAX_LENGTH)
+        {
+            throw new IllegalArgumentException("Client ID does not fit the ledger: " + id);
+        }
+
+        final int slot = clientCount;
+        final int base = clientOffset(slot);
+        clients.put(base + CLIENT_ID, (byte) id.length());
+        for (int i = 0; i < id.length(); i++)
+        {
+            clients.put(base + CLIENT_ID + 1 + i, (byte) id.charAt(i));
+        }
+        clients.putInt(base + CLIENT_BORN, client.getDateBorn().getEpochDay());
+        clients.putInt(base + CLIENT_SIGNUP, client.getSignupDate().getEpochDay());
+        clients.putInt(base + CLIENT_DIED, packDate(client.getDateDied()));
+        clients.putInt(base + CLIENT_FLAGS, client.isAlive() ? 0 : FLAG_DECEASED);
+        putName(base + CLIENT_FIRST, client.getName().getFirst());
+        putName(base + CLIENT_LAST, client.getName().getLast());
+        clientCount++;
+        return slot;
+    }
+
+    /**
+     * Appends an account record holding the account's current balance and
+     * dates. Later changes to the account are not written to the record.
+     *
+     * @param account the account (non-null)
+     * @param clientSlot the slot of the account's client in this ledger
+     * @return the account's slot
+     * @throws IllegalArgumentException if arguments are invalid or the number is already stored
+     * @throws IllegalStateException if the account region is full
+     */
+    public synchronized int appendAccount(final BankAccount account,
+                                          final int clientSlot)
+    {
+        if (account == null)
+        {
+            throw new IllegalArgumentException("Account must not be null.");
+        }
+        if (clientSlot < 0 || clientSlot >= clientCount)
+        {
+            throw new IllegalArgumentException("Unknown client slot: " + clientSlot);
+        }
+        if (accountCount == accountCapacity)
+        {
+            throw new IllegalStateException("Ledger is full: " + accountCapacity + " accounts.");
+        }
+
+        final long key = AccountNumberCodec.encode(account.getAccountNumber());
+        if (accountIndex.containsKey(key))
+        {
+            throw new IllegalArgumentException("Account number already stored: " + account.getAccountNumber());
+        }
+
+        final int slot = accountCount;
+        final int base = accountOffset(slot);
+        accounts.putLong(base + ACCOUNT_NUMBER, key);
+        accounts.putLong(base + ACCOUNT_BALANCE, account.getBalanceCents());
+        accounts.putInt(base + ACCOUNT_CLIENT_SLOT, clientSlot);
+        accounts.putInt(base + ACCOUNT_OPENED, account.getAccountOpened().getEpochDay());
+        accounts.putInt(base + ACCOUNT_CLOSED, packDate(account.getAccountClosed()));
+        accounts.putInt(base + ACCOUNT_FLAGS, account.getAccountClosed() == null ? 0 : FLAG_CLOSED);
+        accounts.put(base + ACCOUNT_PIN_SALT, account.pinSalt());
+        accounts.put(base + ACCOUNT_PIN_HASH, account.pinHash());
+        accountIndex.put(key, slot);
+        accountCount++;
+        return slot;
+    }
+
+    /**
+     * Finds the slot of an account by account number.
+     *
+     * @param accountNumber the account number
+     * @return the slot, or -1 if not stored
+     */
+    public synchronized int findAccountSlot(final String accountNumber)
+    {
+        try
+        {
+            return accountIndex.get(AccountNumberCodec.encode(accountNumber));
+        } catch (final IllegalArgumentException e)
+        {
+            return -1;
+        }
+    }
+
+    /**
+     * Reads an account's balance straight from the mapping.
+     *
+     * @param slot the account slot
+     * @return the balance in cents
+     */
+    public long balanceCents(final int slot)
+    {
+        return (long) LONG_VIEW.getVolatile(accounts, balanceOffset(slot));
+    }
+
+    /**
+     * Atomically adds a signed amount to an account's balance in the mapping.
+     *
+     * @param slot the account slot
+     * @param deltaCents signed amount in cents
+     * @return the new balance in cents
+     * @throws IllegalArgumentException if the result would be negative
+     */
+    public long addToBalanceCents(final int slot,
+                                  final long deltaCents)
+    {
+        final int offset = balanceOffset(slot);
+        long current;
+        long updated;
+        do
+        {
+            current = (long) LONG_VIEW.getVolatile(accounts, offset);
+            updated = Money.add(current, deltaCents);
+            if (updated < 0)
+            {
+                throw new IllegalArgumentException("Insufficient funds.");
+            }
+        } while (!LONG_VIEW.compareAndSet(accounts, offset, current, updated));
+        return updated;
+    }
+
+    /**
+     * Marks an account closed on the given date.
+     *
+     * @param slot the account slot
+     * @param closeDate the closing date (non-null)
+     */
+    public void closeAccount(final int slot,
+                             final Date closeDate)
+    {
+        if (closeDate == null)
+        {
+            throw new IllegalArgumentException("closeDate must not be null.");
+        }
+        final int base = accountOffset(checkAccountSlot(slot));
+        accounts.putInt(base + ACCOUNT_CLOSED, closeDate.getEpochDay());
+        accounts.putInt(base + ACCOUNT_FLAGS, FLAG_CLOSED);
+    }
+
+    /**
+     * Rebuilds a client from its record.
+     *
+     * @param slot the client slot
+     * @return a new BankClient with the stored values
+     */
+    public BankClient loadClient(final int slot)
+    {
+        if (slot < 0 || slot >= clientCount())
+        {
+            throw new IllegalArgumentException("Unknown client slot: " + slot);
+        }
+        final int base = clientOffset(slot);
+        final int idLength = clients.get(base + CLIENT_ID);
+        final char[] id = new char[idLength];
+        for (int i = 0; i < idLength; i++)
+        {
+            id[i] = (char) clients.get(base + CLIENT_ID + 1 + i);
+        }
+        return new BankClient(new String(id),
+                new Name(getName(base + CLIENT_FIRST), getName(base + CLIENT_LAST)),
+                Date.ofEpochDay(clients.getInt(base + CLIENT_BORN)),
+                Date.ofEpochDay(clients.getInt(base + CLIENT_SIGNUP)),
+                unpackDate(clients.getInt(base + CLIENT_DIED)));
+    }
+
+    /**
+     * Rebuilds an account, and its client, from their records.
+     *
+     * @param slot the account slot
+     * @return a new BankAccount with the stored values and balance
+     */
+    public BankAccount loadAccount(final int slot)
+    {
+        final int base = accountOffset(checkAccountSlot(slot));
+        final BankAccount account = new BankAccount(
+                loadClient(accounts.getInt(base + ACCOUNT_CLIENT_SLOT)),
+                AccountNumberCodec.decode(accounts.getLong(base + ACCOUNT_NUMBER)),
+                getBytes(base + ACCOUNT_PIN_SALT, PinVerifier.SALT_LENGTH),
+                getBytes(base + ACCOUNT_PIN_HASH, PinVerifier.HASH_LENGTH),
+                Date.ofEpochDay(accounts.getInt(base + ACCOUNT_OPENED)),
+                unpackDate(accounts.getInt(base + ACCOUNT_CLOSED)));
+        account.restoreBalanceCents(balanceCents(slot));
+        return account;
+    }
+
+    /**
+     * Returns the number of stored clients.
+     *
+     * @return client count
+     */
+    public int clientCount()
+    {
+        return clientCount;
+    }
+
+    /**
+     * Returns the number of stored accounts.
+     *
+     * @return account count
+     */
+    public int accountCount()
+    {
+        return accountCount;
+    }
+
+    /**
+     * Forces all records to disk, then publishes the new counts in the header.
+     */
+    public synchronized void flush()
+    {
+        clients.force();
+        accounts.force();
+        header.putInt(HEADER_CLIENT_COUNT, clientCount);
+        header.putInt(HEADER_ACCOUNT_COUNT, accountCount);
+        header.force();
+    }
+
+    /**
+     * Flushes and closes the ledger file.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException
+    {
+        flush();
+        channel.close();
+    }
+
+    private MappedByteBuffer map(final long position,
+                                 final long size) throws IOException
+    {
+        if (size > Integer.MAX_VALUE)
+        {
+            throw new IllegalArgumentException("Ledger region is larger than 2 GB.");
+        }
+        final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    private int checkAccountSlot(final int slot)
+    {
+        if (slot < 0 || slot >= accountCount())
+        {
+            throw new IllegalArgumentException("Unknown account slot: " + slot);
+        }
+        return slot;
+    }
+
+    private int balanceOffset(final int slot)
+    {
+        return accountOffset(checkAccountSlot(slot)) + ACCOUNT_BALANCE;
+    }
+
+    private void putName(final int offset,
+                         final String name)
+    {
+        if (name.length() > NAME_MAX_LENGTH)
+        {
+            throw new IllegalArgumentException("Name does not fit the ledger: " + name);
+        }
+        clients.putShort(offset, (short) name.length());
+        for (int i = 0; i < name.length(); i++)
+        {
+            clients.putChar(offset + Short.BYTES + i * Character.BYTES, name.charAt(i));
+        }
+    }
+
+    private String getName(final int offset)
+    {
+        final char[] name = new char[clients.getShort(offset)];
+        for (int i = 0; i < name.length; i++)
+        {
+            name[i] = clients.getChar(offset + Short.BYTES + i * Character.BYTES);
+        }
+        return new String(name);
+    }
+
+    private byte[] getBytes(final int offset,
+                            final int length)
+    {
+        final byte[] bytes = new byte[length];
+        accounts.get(offset, bytes);
+        return bytes;
+    }
+
+    private static int clientOffset(final int slot)
+    {
+        return slot * CLIENT_RECORD_SIZE;
+    }
+
+    private static int accountOffset(final int slot)
+    {
+        return slot * ACCOUNT_RECORD_SIZE;
+    }
+
+    private static int packDate(final Date date)
+    {
+        return date == null ? NO_DATE : date.getEpochDay();
+    }
+
+    private static Date unpackDate(final int epochDay)
+    {
+        return epochDay == NO_DATE ? null : Date.ofEpochDay(epochDay);
+    }
+
+    private static void validateCapacities(final int clientCapacity,
+                                           final int accountCapacity)
+    {
+        if (clientCapacity <= 0 || accountCapacity <= 0)
+        {
+            throw new IllegalArgumentException("Capacities must be positive.");
+        }
+    }
+
+    // Checks an existing file's header before anything is mapped: mapping
+    // past the end of a truncated file would silently grow it, and counts
+    // past the capacities would read outside the regions.
+    private static void validateHeader(final Path path,
+                                       final long fileSize,
+                                       final int clientCapacity,
+                                       final int accountCapacity,
+                                       final int clientCount,
+                                       final int accountCount)
+    {
+        if (clientCapacity <= 0 || accountCapacity <= 0)
+        {
+            throw new IllegalArgumentException("Ledger header has invalid capacities: " + path);
+        }
+        final long required = HEADER_SIZE
+                + (long) clientCapacity * CLIENT_RECORD_SIZE
+                + (long) accountCapacity * ACCOUNT_RECORD_SIZE;
+        if (fileSize < required)
+        {
+            throw new IllegalArgumentException("Ledger file is truncated: " + path + " has " + fileSize
+                    + " bytes but its header needs " + required + ".");
+        }
+        if (clientCount < 0 || clientCount > clientCapacity
+                || accountCount < 0 || accountCount > accountCapacity)
+        {
+            throw new IllegalArgumentException("Ledger header has invalid record counts: " + path);
+        }
+    }
+}
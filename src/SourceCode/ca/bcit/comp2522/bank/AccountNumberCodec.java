@@ -0,0 +1,107 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * Packs an alphanumeric account number of up to 7 characters into a long.
+ * Each character takes 6 bits (0-9, A-Z, a-z map to 1..62), so the whole
+ * number fits in 42 bits and can key a {@link LongKeyedMap} directly.
+ * Encoding keeps case and leading zeros, so it round-trips exactly.
+ *
+ * @author Nazanin Mohsenimehr
+ * @version 1.0
+ */
+public final class AccountNumberCodec
+{
+    private static final int MAX_LENGTH = 7;
+    private static final int BITS_PER_CHAR = 6;
+    private static final long CHAR_MASK = (1L << BITS_PER_CHAR) - 1;
+
+    private static final int DIGITS = 10;
+    private static final int LETTERS = 26;
+    private static final int FIRST_DIGIT_CODE = 1;
+    private static final int FIRST_UPPER_CODE = FIRST_DIGIT_CODE + DIGITS;
+    private static final int FIRST_LOWER_CODE = FIRST_UPPER_CODE + LETTERS;
+
+    private AccountNumberCodec()
+    {
+    }
+
+    /**
+     * Encodes an account number.
+     *
+     * @param accountNumber 1 to 7 ASCII letters or digits
+     * @return the packed account number
+     * @throws IllegalArgumentException if the account number cannot be encoded
+     */
+    public static long encode(final String accountNumber)
+    {
+        if (accountNumber == null || accountNumber.isEmpty() || accountNumber.length() > MAX_LENGTH)
+        {
+            throw new IllegalArgumentException("Account number must have 1-" + MAX_LENGTH + " characters.");
+        }
+
+        long packed = 0L;
+        for (int i = 0; i < accountNumber.length(); i++)
+        {
+            packed = (packed << BITS_PER_CHAR) | codeOf(accountNumber.charAt(i));
+        }
+        return packed;
+    }
+
+    /**
+     * Decodes a packed account number back to its text.
+     *
+     * @param packed a value returned by {@link #encode(String)}
+     * @return the account number
+     * @throws IllegalArgumentException if the value is not a valid encoding
+     */
+    public static String decode(final long packed)
+    {
+        final char[] chars = new char[MAX_LENGTH];
+        int start = MAX_LENGTH;
+        long rest = packed;
+        while (rest != 0L && start > 0)
+        {
+            chars[--start] = charOf((int) (rest & CHAR_MASK));
+            rest >>>= BITS_PER_CHAR;
+        }
+        if (rest != 0L || start == MAX_LENGTH)
+        {
+            throw new IllegalArgumentException("Not a packed account number: " + packed);
+        }
+        return new String(chars, start, MAX_LENGTH - start);
+    }
+
+    private static int codeOf(final char c)
+    {
+        if (c >= '0' && c <= '9')
+        {
+            return FIRST_DIGIT_CODE + (c - '0');
+        }
+        if (c >= 'A' && c <= 'Z')
+        {
+            return FIRST_UPPER_CODE + (c - 'A');
+        }
+        if (c >= 'a' && c <= 'z')
+        {
+            return FIRST_LOWER_CODE + (c - 'a');
+        }
+        throw new IllegalArgumentException("Account number may only contain letters and digits.");
+    }
+
+    private static char charOf(final int code)
+    {
+        if (code < FIRST_DIGIT_CODE || code >= FIRST_LOWER_CODE + LETTERS)
+        {
+            throw new IllegalArgumentException("Not a packed account number character: " + code);
+        }
+        if (code >= FIRST_LOWER_CODE)
+        {
+            return (char) ('a' + (code - FIRST_LOWER_CODE));
+        }
+        if (code >= FIRST_UPPER_CODE)
+        {
+            return (char) ('A' + (code - FIRST_UPPER_CODE));
+        }
+        return (char) ('0' + (code - FIRST_DIGIT_CODE));
+    }
+}
@@ -0,0 +1,274 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * One state of a BankAccount: its balance and closing date, the snapshot
+ * epoch at which it became visible, and the state it replaced.
+ *
+ * A writer installs a version with a compare-and-set on the account and
+ * then stamps it with the current {@link BankSnapshot} clock. Until it is
+ * stamped a version is pending, and anyone who meets it may stamp it;
+ * the first stamp wins. A version is only stamped after the version below
+ * it, so epochs never decrease going up a chain, and a snapshot at epoch
+ * s sees the first version from the top whose epoch is at most s.
+ *
+ * Versions written together by a transfer share a {@link Commit} and take
+ * its epoch, so a snapshot sees either every leg or none. They cannot be
+ * stamped until the transfer closes its commit.
+ *
+ * Once stamped, a version drops the versions below the newest one that
+ * the oldest open snapshot can see; with no snapshot open that is all of
+ * them, so an account normally holds a single version.
+ *
+ * @author Nazanin Mohsenimehr
+ * @version 1.0
+ */
+final class BalanceVersion
+{
+    /** Epoch of a version that has not been stamped yet. */
+    static final long PENDING = Long.MAX_VALUE;
+
+    private static final long INITIAL_EPOCH = 0L;
+    private static final int SPINS_BEFORE_YIELD = 64;
+
+    private static final AtomicLongFieldUpdater<BalanceVersion> EPOCH =
+            AtomicLongFieldUpdater.newUpdater(BalanceVersion.class, "epoch");
+    private static final AtomicReferenceFieldUpdater<BalanceVersion, BalanceVersion> PREV =
+            AtomicReferenceFieldUpdater.newUpdater(BalanceVersion.class, BalanceVersion.class, "prev");
+
+    private final long balanceCents;
+    private final Date closed;
+    private final Commit commit; // null unless written by a multi-account commit
+    private volatile long epoch;
+    private volatile BalanceVersion prev;
+
+    /**
+     * A set of versions that become visible to snapshots together.
+     * Only the thread that writes the versions may close it.
+     */
+    static final class Commit
+    {
+        private final List<BalanceVersion> versions = new ArrayList<>();
+        private volatile long epoch = PENDING;
+
+        /**
+         * Makes every version of this commit visible at one epoch.
+         * Versions from other writers under the commit's versions are
+         * stamped first. Pending ones caught between two of its versions,
+         * such as a deposit that lands between a transfer leg and its
+         * rollback, cannot be stamped before the commit and take its epoch.
+         */
+        void close()
+        {
+            final List<BalanceVersion> between = new ArrayList<>();
+            for (final BalanceVersion version : versions)
+            {
+                final BalanceVersion below = version.prev;
+                if (below == null || below.commit == this)
+                {
+                    continue;
+                }
+                BalanceVersion lower = below;
+                while (lower != null && lower.commit != this && lower.epoch == PENDING)
+                {
+                    lower = lower.prev;
+                }
+                if (lower != null && lower.commit == this)
+                {
+                    for (BalanceVersion v = below; v != lower; v = v.prev)
+                    {
+                        between.add(v);
+                    }
+                } else
+                {
+                    below.awaitEpoch();
+                }
+            }
+            final long committed = BankSnapshot.clock();
+            for (final BalanceVersion version : between)
+            {
+                EPOCH.compareAndSet(version, PENDING, committed);
+            }
+            epoch = committed;
+        }
+
+        private void add(final BalanceVersion version)
+        {
+            versions.add(version);
+        }
+    }
+
+    /**
+     * Constructs the first version of an account, visible to every snapshot.
+     *
+     * @param balanceCents the balance in cents
+     * @param closed the closing date, or null if open
+     */
+    BalanceVersion(final long balanceCents,
+                   final Date closed)
+    {
+        this(balanceCents, closed, null, null, INITIAL_EPOCH);
+    }
+
+    private BalanceVersion(final long balanceCents,
+                           final Date closed,
+                           final Commit commit,
+                           final BalanceVersion prev,
+                           final long epoch)
+    {
+        this.balanceCents = balanceCents;
+        this.closed = closed;
+        this.commit = commit;
+        this.prev = prev;
+        this.epoch = epoch;
+    }
+
+    /**
+     * Returns the balance.
+     *
+     * @return the balance in cents
+     */
+    long balanceCents()
+    {
+        return balanceCents;
+    }
+
+    /**
+     * Returns the closing date.
+     *
+     * @return the closing date, or null if open
+     */
+    Date closed()
+    {
+        return closed;
+    }
+
+    /**
+     * Returns a pending version to install over this one.
+     *
+     * @param nextBalanceCents the new balance in cents
+     * @param nextClosed the new closing date, or null if open
+     * @return the new version
+     */
+    BalanceVersion successor(final long nextBalanceCents,
+                             final Date nextClosed)
+    {
+        return new BalanceVersion(nextBalanceCents, nextClosed, null, this, PENDING);
+    }
+
+    /**
+     * Returns a pending version to install over this one as part of a commit.
+     * Call {@link #joined} once it is installed.
+     *
+     * @param nextBalanceCents the new balance in cents
+     * @param nextClosed the new closing date, or null if open
+     * @param nextCommit the commit the version belongs to
+     * @return the new version
+     */
+    BalanceVersion successor(final long nextBalanceCents,
+                             final Date nextClosed,
+                             final Commit nextCommit)
+    {
+        return new BalanceVersion(nextBalanceCents, nextClosed, nextCommit, this, PENDING);
+    }
+
+    /**
+     * Records an installed version with its commit.
+     */
+    void joined()
+    {
+        commit.add(this);
+    }
+
+    /**
+     * Stamps this version if nothing holds it back, then drops the versions
+     * no open snapshot can reach. Writers call this after installing.
+     */
+    void publish()
+    {
+        if (tryStamp())
+        {
+            prune(BankSnapshot.oldestOpen());
+        }
+    }
+
+    /**
+     * Returns the version a snapshot at the given epoch sees, starting
+     * from this one. May wait for a transfer in progress to close.
+     *
+     * @param snapshotEpoch the snapshot's epoch
+     * @return the version, or null if it has been dropped
+     */
+    BalanceVersion visibleAt(final long snapshotEpoch)
+    {
+        BalanceVersion version = this;
+        while (version != null && version.awaitEpoch() > snapshotEpoch)
+        {
+            version = version.prev;
+        }
+        return version;
+    }
+
+    // Stamps this version unless it or a version below it belongs to an open commit
+    private boolean tryStamp()
+    {
+        if (epoch != PENDING)
+        {
+            return true;
+        }
+        if (commit != null)
+        {
+            final long committed = commit.epoch;
+            if (committed == PENDING)
+            {
+                return false;
+            }
+            EPOCH.compareAndSet(this, PENDING, committed);
+            return true;
+        }
+        final BalanceVersion below = prev;
+        if (below != null && !below.tryStamp())
+        {
+            return false;
+        }
+        // Read the clock only now, so this epoch is at least the one below
+        EPOCH.compareAndSet(this, PENDING, BankSnapshot.clock());
+        return true;
+    }
+
+    private long awaitEpoch()
+    {
+        int spins = 0;
+        while (!tryStamp())
+        {
+            if (++spins < SPINS_BEFORE_YIELD)
+            {
+                Thread.onSpinWait();
+            } else
+            {
+                Thread.yield();
+            }
+        }
+        return epoch;
+    }
+
+    // Keeps versions down to the newest one the oldest open snapshot can see
+    private void prune(final long oldestOpen)
+    {
+        BalanceVersion keep = this;
+        while (keep != null && keep.epoch > oldestOpen)
+        {
+            keep = keep.prev;
+        }
+        if (keep != null && keep.prev != null)
+        {
+            // No fence needed: a reader that still sees the old link just
+            // never follows it
+            PREV.lazySet(keep, null);
+        }
+    }
+}
@@ -1,8 +1,32 @@
 package ca.bcit.comp2522.bank;
 
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
- * Represents a bank account
+ * Represents a bank account.
+ * Balance updates are lock-free: each deposit or withdrawal installs a new
+ * immutable {@link BalanceVersion} with a compare-and-set, so the funds
+ * check and the debit happen atomically and concurrent tellers never lose
+ * an update. The versions also let a {@link BankSnapshot} read a
+ * consistent past state while postings continue.
+ * With a {@link TransactionJournal} attached, the journal is written
+ * ahead: under the account's monitor a change appends its record and
+ * installs the new state in a commit of its own, then lets go of the
+ * monitor and waits for the record to be durable before closing the
+ * commit. Other postings can queue behind it meanwhile and share its
+ * fsync. Plain reads see the new state at once; snapshots only once it is
+ * durable. If the journal fails, the change is undone and every change
+ * queued behind it fails too, since the journal takes no more records.
+ * Money is kept as a whole number of cents (see {@link Money}).
+ *
+ * Reads allocate nothing. Every posting allocates exactly one
+ * BalanceVersion (40 bytes with compressed references), more only when a
+ * compare-and-set loses a race and is retried. The version it replaces
+ * becomes garbage at once unless an open snapshot can still see it. That
+ * is the price of lock-free snapshots: a version cannot be reused while a
+ * reader that loaded it may still be looking at it.
  *
  * @author Hyelim Kim
  * @version 1.0
@@ -12,9 +36,6 @@ public class BankAccount
 
 
 
-    private static final int MIN_ACCOUNT_LEN = 6;
-    private static final int MAX_ACCOUNT_LEN = 7;
-
     private static final int DOW_SATURDAY = 0;
     private static final int DOW_SUNDAY   = 1;
     private static final int DOW_MONDAY   = 2;
@@ -23,18 +44,30 @@ public class BankAccount
     private static final int DOW_THURSDAY = 5;
     private static final int DOW_FRIDAY   = 6;
 
+    // Dollar amounts passed in as doubles are rounded to the cent this way.
+    private static final RoundingMode POSTING_ROUNDING = RoundingMode.HALF_EVEN;
+    private static final Runnable[] NO_LISTENERS = {};
+
+    private static final AtomicReferenceFieldUpdater<BankAccount, BalanceVersion> STATE =
+            AtomicReferenceFieldUpdater.newUpdater(BankAccount.class, BalanceVersion.class, "state");
+
     // ---- Fields ----
     private final BankClient client;
-    private double balanceUsd;
-    private final int pin;
-    private final String accountNumber; // length must be 6 or 7
+    private volatile BalanceVersion state; // balance and closing date; replaced, never changed
+    private final byte[] pinSalt;
+    private final byte[] pinHash; // SHA-256 of salt and PIN; the PIN itself is not kept
+    private final long pinKey;
+    private final String accountNumber; // 6 or 7 letters/digits
     private final Date accountOpened;
-    private Date accountClosed; // nullable (null => still open)
+    private volatile TransactionJournal journal; // nullable (null => not journaled)
+    private long journalKey;
+    private volatile TransactionHistory history; // nullable (null => no history kept)
+    private Runnable[] closeListeners = NO_LISTENERS; // guarded by this
 
     /**
      * Creates an open bank account (no closed date).
      * @param client the owner of this account (non-null)
-     * @param accountNumber the account number (length 6 or 7)
+     * @param accountNumber the account number (6 or 7 letters/digits)
      * @param pin the PIN code
      * @param accountOpened the opening date (non-null)
      * @throws IllegalArgumentException if any argument is invalid
@@ -45,19 +78,22 @@ public class BankAccount
             final int pin,
             final Date accountOpened
     ) {
+        final long start = BankMetrics.start();
         validateCore(client, accountNumber, accountOpened);
         this.client = client;
         this.accountNumber = accountNumber;
-        this.pin = pin;
+        this.pinSalt = PinVerifier.newSalt();
+        this.pinHash = PinVerifier.hash(pinSalt, pin);
+        this.pinKey = AccountNumberCodec.encode(accountNumber);
         this.accountOpened = accountOpened;
-        this.accountClosed = null;
-        this.balanceUsd = 0.0;
+        this.state = new BalanceVersion(0L, null);
+        BankMetrics.record(BankMetrics.Operation.ACCOUNT_NEW, start);
     }
 
     /**
      * Creates a bank account with explicit opened and (optional) closed date.
      * @param client the owner (non-null)
-     * @param accountNumber the account number (length 6 or 7)
+     * @param accountNumber the account number (6 or 7 letters/digits)
      * @param pin the PIN
      * @param accountOpened opening date (non-null)
      * @param accountClosed closing date (nullable)
@@ -70,51 +106,157 @@ public class BankAccount
             final Date accountOpened,
             final Date accountClosed
     ) {
+        final long start = BankMetrics.start();
+        validateCore(client, accountNumber, accountOpened);
+        this.client = client;
+        this.accountNumber = accountNumber;
+        this.pinSalt = PinVerifier.newSalt();
+        this.pinHash = PinVerifier.hash(pinSalt, pin);
+        this.pinKey = AccountNumberCodec.encode(accountNumber);
+        this.accountOpened = accountOpened;
+        this.state = new BalanceVersion(0L, accountClosed); // closed date may be null
+        BankMetrics.record(BankMetrics.Operation.ACCOUNT_NEW, start);
+    }
+
+    /**
+     * Rebuilds an account from persistent storage, where only the PIN's
+     * salt and hash are kept.
+     * @param client the owner (non-null)
+     * @param accountNumber the account number (6 or 7 letters/digits)
+     * @param pinSalt the stored PIN salt
+     * @param pinHash the stored PIN hash
+     * @param accountOpened opening date (non-null)
+     * @param accountClosed closing date (nullable)
+     * @throws IllegalArgumentException if arguments are invalid
+     */
+    BankAccount(
+            final BankClient client,
+            final String accountNumber,
+            final byte[] pinSalt,
+            final byte[] pinHash,
+            final Date accountOpened,
+            final Date accountClosed
+    ) {
+        final long start = BankMetrics.start();
         validateCore(client, accountNumber, accountOpened);
+        if (pinSalt == null || pinSalt.length != PinVerifier.SALT_LENGTH
+                || pinHash == null || pinHash.length != PinVerifier.HASH_LENGTH) {
+            throw new IllegalArgumentException("Stored PIN hash is malformed.");
+        }
         this.client = client;
         this.accountNumber = accountNumber;
-        this.pin = pin;
+        this.pinSalt = pinSalt.clone();
+        this.pinHash = pinHash.clone();
+        this.pinKey = AccountNumberCodec.encode(accountNumber);
         this.accountOpened = accountOpened;
-        this.accountClosed = accountClosed; // may be null
-        this.balanceUsd = 0.0;
+        this.state = new BalanceVersion(0L, accountClosed); // closed date may be null
+        BankMetrics.record(BankMetrics.Operation.ACCOUNT_NEW, start);
     }
 
 
 
     /**
      * Deposits a positive amount into this account.
+     * The amount is rounded to the nearest cent (half-even).
      * @param amountUsd amount to deposit; must be > 0
      * @throws IllegalArgumentException if amount is not positive
      */
- public void deposit(final double amountUsd) {
-    if (amountUsd <= 0.0) {
+    public void deposit(final double amountUsd) {
+        depositCents(toCents(amountUsd));
+    }
+
+    /**
+     * Deposits a positive amount, given in cents, into this account.
+     * @param amountCents amount to deposit in cents; must be > 0
+     * @throws IllegalArgumentException if amount is not positive
+     */
+    public void depositCents(final long amountCents) {
+        postDeposit(amountCents, TransactionJournal.NO_DATE);
+    }
+
+    /**
+     * Deposits a positive amount, given in cents, dated for the account's history.
+     * @param amountCents amount to deposit in cents; must be > 0
+     * @param postingDate the date the deposit is posted on (non-null)
+     * @throws IllegalArgumentException if amount is not positive or the date is null
+     */
+    public void depositCents(final long amountCents, final Date postingDate) {
+        postDeposit(amountCents, epochDayOf(postingDate));
+    }
+
+    private void postDeposit(final long amountCents, final int epochDay) {
+        final long start = BankMetrics.start();
+        if (amountCents <= 0L) {
+            BankMetrics.fail(BankMetrics.Failure.INVALID_AMOUNT);
             throw new IllegalArgumentException("Deposit amount must be positive.");
         }
-        balanceUsd += amountUsd;
- }
+        credit(amountCents, epochDay);
+        remember(TransactionHistory.DEPOSIT, amountCents, epochDay);
+        BankMetrics.record(BankMetrics.Operation.DEPOSIT, start);
+    }
 
     /**
      * Withdraws a positive amount if sufficient funds exist.
+     * The amount is rounded to the nearest cent (half-even).
      * @param amountUsd amount to withdraw; must be > 0 and <= balance
      * @throws IllegalArgumentException if amount is invalid or insufficient funds
      */
     public void withdraw(final double amountUsd) {
-        validateWithdrawAmount(amountUsd);
-        balanceUsd -= amountUsd;
+        withdrawCents(toCents(amountUsd));
+    }
+
+    /**
+     * Withdraws a positive amount, given in cents, if sufficient funds exist.
+     * @param amountCents amount to withdraw in cents; must be > 0 and <= balance
+     * @throws IllegalArgumentException if amount is invalid or insufficient funds
+     */
+    public void withdrawCents(final long amountCents) {
+        postWithdrawal(amountCents, TransactionJournal.NO_DATE);
+    }
+
+    /**
+     * Withdraws a positive amount, given in cents, dated for the account's history.
+     * @param amountCents amount to withdraw in cents; must be > 0 and <= balance
+     * @param postingDate the date the withdrawal is posted on (non-null)
+     * @throws IllegalArgumentException if amount is invalid, funds are insufficient or the date is null
+     */
+    public void withdrawCents(final long amountCents, final Date postingDate) {
+        postWithdrawal(amountCents, epochDayOf(postingDate));
+    }
+
+    private void postWithdrawal(final long amountCents, final int epochDay) {
+        final long start = BankMetrics.start();
+        validateWithdrawAmount(amountCents);
+        debit(amountCents, epochDay);
+        remember(TransactionHistory.WITHDRAWAL, amountCents, epochDay);
+        BankMetrics.record(BankMetrics.Operation.WITHDRAW, start);
     }
 
     /**
      * Withdraws a positive amount if PIN matches and sufficient funds exist.
      * @param amountUsd amount to withdraw; must be > 0 and <= balance
-     * @param pinToMatch PIN to check; must equal this.pin
-     * @throws IllegalArgumentException if PIN is wrong or amount invalid/insufficient
+     * @param pinToMatch PIN to check; must match the PIN the account was created with
+     * @throws IllegalArgumentException if PIN is wrong, too many wrong PINs were
+     *         entered recently, or amount invalid/insufficient
      */
     public void withdraw(final double amountUsd, final int pinToMatch) {
-        if (pinToMatch != this.pin) {
-            throw new IllegalArgumentException("Incorrect PIN.");
-        }
-        validateWithdrawAmount(amountUsd);
-        balanceUsd -= amountUsd;
+        withdrawCents(toCents(amountUsd), pinToMatch);
+    }
+
+    /**
+     * Withdraws a positive amount, given in cents, if PIN matches and sufficient funds exist.
+     * @param amountCents amount to withdraw in cents; must be > 0 and <= balance
+     * @param pinToMatch PIN to check; must match the PIN the account was created with
+     * @throws IllegalArgumentException if PIN is wrong, too many wrong PINs were
+     *         entered recently, or amount invalid/insufficient
+     */
+    public void withdrawCents(final long amountCents, final int pinToMatch) {
+        final long start = BankMetrics.start();
+        PinVerifier.SHARED.verify(pinKey, pinSalt, pinHash, pinToMatch);
+        validateWithdrawAmount(amountCents);
+        debit(amountCents, TransactionJournal.NO_DATE);
+        remember(TransactionHistory.WITHDRAWAL, amountCents, TransactionJournal.NO_DATE);
+        BankMetrics.record(BankMetrics.Operation.WITHDRAW, start);
     }
 
     /**
@@ -131,28 +273,30 @@ public class BankAccount
      * @return formatted details string
      */
     public String getDetails() {
-        final String owner = clientName();
+        final long start = BankMetrics.start();
         final String openedPhrase = formatOpenPhrase(accountOpened);
-        final String balancePhrase = String.format("$%.0f USD", balanceUsd);
 
         final StringBuilder sb = new StringBuilder();
-        sb.append(owner)
-                .append(" had ")
-                .append(balancePhrase)
+        client.getName().appendFullName(sb)
+                .append(" had ");
+        final BalanceVersion current = state;
+        Money.appendUsd(sb, current.balanceCents())
                 .append(" in account #")
                 .append(accountNumber)
                 .append(" which was opened on ")
                 .append(openedPhrase);
 
-        if (accountClosed != null) {
+        if (current.closed() != null) {
             sb.append(" and closed ")
-                    .append(formatClosedPhrase(accountClosed))
+                    .append(formatClosedPhrase(current.closed()))
                     .append(".");
         } else {
             sb.append(" and is still open.")
                     .append("");
         }
-        return sb.toString();
+        final String details = sb.toString();
+        BankMetrics.record(BankMetrics.Operation.ACCOUNT_DETAILS, start);
+        return details;
     }
 
 
@@ -163,24 +307,469 @@ public class BankAccount
         if (accountOpened == null) {
             throw new IllegalArgumentException("accountOpened must not be null.");
         }
-        if (accountNumber == null) {
-            throw new IllegalArgumentException("accountNumber must not be null.");
+        Identifiers.validateAccountNumber(accountNumber);
+    }
+
+    private void validateWithdrawAmount(final long amountCents) {
+        if (amountCents <= 0L) {
+            BankMetrics.fail(BankMetrics.Failure.INVALID_AMOUNT);
+            throw new IllegalArgumentException("Withdraw amount must be positive.");
         }
-        final int len = accountNumber.length();
-        if (len != MIN_ACCOUNT_LEN && len != MAX_ACCOUNT_LEN) {
-            throw new IllegalArgumentException("Account number length must be 6 or 7.");
+    }
+
+    // Adds to the balance in one compare-and-set, or, with a journal,
+    // under the monitor once the deposit record is appended.
+    private void credit(final long amountCents, final int epochDay) {
+        final TransactionJournal attached = journal;
+        if (attached != null) {
+            final long sequence;
+            final BalanceVersion.Commit commit;
+            synchronized (this) {
+                final BalanceVersion current = state;
+                final long balance = Money.add(current.balanceCents(), amountCents);
+                sequence = attached.append(journalKey, TransactionJournal.DEPOSIT, amountCents, epochDay);
+                commit = installPending(current, balance, current.closed());
+            }
+            awaitJournaled(attached, sequence, commit, amountCents, null, null);
+            return;
         }
+        BalanceVersion current;
+        BalanceVersion next;
+        do {
+            current = state;
+            next = current.successor(Money.add(current.balanceCents(), amountCents), current.closed());
+        } while (!STATE.compareAndSet(this, current, next));
+        next.publish();
     }
 
-    private void validateWithdrawAmount(final double amountUsd) {
-        if (amountUsd <= 0.0) {
-            throw new IllegalArgumentException("Withdraw amount must be positive.");
+    // Checks funds and subtracts in one compare-and-set so a concurrent
+    // withdrawal can never slip in between the check and the debit.
+    // With a journal, the monitor keeps the funds checked until the
+    // withdrawal record is appended and the new balance installed.
+    private void debit(final long amountCents, final int epochDay) {
+        final TransactionJournal attached = journal;
+        if (attached != null) {
+            final long sequence;
+            final BalanceVersion.Commit commit;
+            synchronized (this) {
+                final BalanceVersion current = state;
+                requireFunds(current, amountCents);
+                sequence = attached.append(journalKey, TransactionJournal.WITHDRAW, amountCents, epochDay);
+                commit = installPending(current, current.balanceCents() - amountCents, current.closed());
+            }
+            awaitJournaled(attached, sequence, commit, -amountCents, null, null);
+            return;
         }
-        if (amountUsd > balanceUsd) {
+        BalanceVersion current;
+        BalanceVersion next;
+        do {
+            current = state;
+            requireFunds(current, amountCents);
+            next = current.successor(current.balanceCents() - amountCents, current.closed());
+        } while (!STATE.compareAndSet(this, current, next));
+        next.publish();
+    }
+
+    private static void requireFunds(final BalanceVersion current, final long amountCents) {
+        if (amountCents > current.balanceCents()) {
+            BankMetrics.fail(BankMetrics.Failure.INSUFFICIENT_FUNDS);
             throw new IllegalArgumentException("Insufficient funds.");
         }
     }
 
+    // Installs the state computed by a journaled write. Every write to a
+    // journaled account holds the monitor, so the compare-and-set only
+    // fails if the journal was attached while the account was in use.
+    private void install(final BalanceVersion current, final BalanceVersion next) {
+        if (!STATE.compareAndSet(this, current, next)) {
+            throw new IllegalStateException("Account #" + accountNumber + " was changed outside its journal.");
+        }
+    }
+
+    // Installs a journaled change whose record is appended but not yet
+    // durable, in a commit of its own so snapshots cannot see it yet.
+    // The caller holds the monitor.
+    private BalanceVersion.Commit installPending(final BalanceVersion current,
+                                                 final long balanceCents, final Date closed) {
+        final BalanceVersion.Commit commit = new BalanceVersion.Commit();
+        final BalanceVersion next = current.successor(balanceCents, closed, commit);
+        install(current, next);
+        next.joined();
+        return commit;
+    }
+
+    // Waits, without the monitor, until a journaled change is durable, then
+    // lets snapshots see it. Changes are appended in the order they are
+    // installed, so when the journal fails every change above this one
+    // fails as well; each one undoes its own delta (and its closing date)
+    // in its own commit, and together they restore the last durable state.
+    // The balance may dip below zero while they do.
+    private void awaitJournaled(final TransactionJournal attached, final long sequence,
+                                final BalanceVersion.Commit commit, final long deltaCents,
+                                final Date closing, final Date closedBefore) {
+        try {
+            attached.awaitDurable(sequence);
+        } catch (final RuntimeException e) {
+            synchronized (this) {
+                final BalanceVersion current = state;
+                final Date closed = closing != null && current.closed() == closing ? closedBefore : current.closed();
+                final BalanceVersion undone = current.successor(current.balanceCents() - deltaCents, closed, commit);
+                install(current, undone);
+                undone.joined();
+            }
+            throw e;
+        } finally {
+            commit.close();
+            settle();
+        }
+    }
+
+    /**
+     * Posts one leg of a transfer as part of a commit. The leg is not
+     * visible to snapshots until the caller closes the commit and calls
+     * {@link #settle()}. On a journaled account the caller holds the
+     * monitor and has already made the leg durable with
+     * {@link #appendPosting} and {@link #awaitPosting}.
+     * @param deltaCents signed amount in cents; a debit needs sufficient funds
+     * @param commit the transfer's commit
+     * @throws IllegalArgumentException if funds are insufficient
+     * @throws ArithmeticException if the balance would overflow
+     */
+    void post(final long deltaCents, final BalanceVersion.Commit commit) {
+        BalanceVersion current;
+        BalanceVersion next;
+        do {
+            current = state;
+            if (-deltaCents > current.balanceCents()) {
+                BankMetrics.fail(BankMetrics.Failure.INSUFFICIENT_FUNDS);
+                throw new IllegalArgumentException("Insufficient funds.");
+            }
+            next = current.successor(Money.add(current.balanceCents(), deltaCents), current.closed(), commit);
+        } while (!STATE.compareAndSet(this, current, next));
+        next.joined();
+    }
+
+    /**
+     * Stamps this account's newest version once a commit that touched it is closed.
+     */
+    void settle() {
+        state.publish();
+    }
+
+    /**
+     * Tells whether this account writes its journal ahead of every change.
+     * @return true if a journal is attached
+     */
+    boolean isJournaled() {
+        return journal != null;
+    }
+
+    /**
+     * Checks that a transfer leg can be posted to this account. The caller
+     * holds the monitor of this journaled account, so the answer stays
+     * true until the leg is posted.
+     * @param deltaCents signed amount in cents
+     * @throws IllegalArgumentException if funds are insufficient
+     * @throws ArithmeticException if the balance would overflow
+     */
+    void checkPosting(final long deltaCents) {
+        final BalanceVersion current = state;
+        if (deltaCents < 0L) {
+            requireFunds(current, -deltaCents);
+        } else {
+            Money.add(current.balanceCents(), deltaCents);
+        }
+    }
+
+    /**
+     * Appends a transfer leg to this account's journal without waiting for it.
+     * @param deltaCents signed amount in cents, not zero
+     * @return the sequence number to pass to {@link #awaitPosting}
+     */
+    long appendPosting(final long deltaCents) {
+        return journal.append(journalKey,
+                deltaCents > 0L ? TransactionJournal.DEPOSIT : TransactionJournal.WITHDRAW,
+                Math.abs(deltaCents), TransactionJournal.NO_DATE);
+    }
+
+    /**
+     * Waits until a leg appended with {@link #appendPosting} is durable.
+     * @param sequence the sequence number appendPosting returned
+     */
+    void awaitPosting(final long sequence) {
+        journal.awaitDurable(sequence);
+    }
+
+    /**
+     * Adds a settled transfer leg to the history.
+     * @param deltaCents signed amount in cents, not zero
+     */
+    void rememberTransfer(final long deltaCents) {
+        remember(deltaCents > 0L ? TransactionHistory.TRANSFER_IN : TransactionHistory.TRANSFER_OUT,
+                Math.abs(deltaCents), TransactionJournal.NO_DATE);
+    }
+
+    /**
+     * Returns the newest version, for snapshot reads.
+     * @return the current version
+     */
+    BalanceVersion currentVersion() {
+        return state;
+    }
+
+    /**
+     * Applies a run of batch postings to this account in one compare-and-set.
+     * Postings are replayed against a local balance; ones that fail get a
+     * result code and are skipped, and the rest land together or not at all.
+     * With a journal, the postings that succeed are appended as one group
+     * with the new balance, and the call returns once they are durable.
+     * @param amountsCents signed amounts in cents for the whole batch
+     * @param order posting indexes; order[from..to) belong to this account
+     * @param from first position in order (inclusive)
+     * @param to last position in order (exclusive)
+     * @param results receives one PostingBatch code per posting index
+     */
+    void applyPostings(final long[] amountsCents, final int[] order,
+                       final int from, final int to, final byte[] results) {
+        final TransactionJournal attached = journal;
+        if (attached != null) {
+            long last = 0L;
+            long delta = 0L;
+            BalanceVersion.Commit commit = null;
+            synchronized (this) {
+                final BalanceVersion current = state;
+                final long balance = replayPostings(current.balanceCents(), amountsCents, order, from, to, results);
+                for (int i = from; i < to; i++) {
+                    final int index = order[i];
+                    if (results[index] == PostingBatch.OK) {
+                        final long amount = amountsCents[index];
+                        last = attached.append(journalKey,
+                                amount > 0L ? TransactionJournal.DEPOSIT : TransactionJournal.WITHDRAW,
+                                Math.abs(amount), TransactionJournal.NO_DATE);
+                    }
+                }
+                if (last != 0L) {
+                    delta = balance - current.balanceCents();
+                    commit = installPending(current, balance, current.closed());
+                }
+            }
+            if (commit != null) {
+                awaitJournaled(attached, last, commit, delta, null, null);
+            }
+        } else {
+            BalanceVersion current;
+            BalanceVersion next;
+            do {
+                current = state;
+                final long balance = replayPostings(current.balanceCents(), amountsCents, order, from, to, results);
+                next = current.successor(balance, current.closed());
+            } while (!STATE.compareAndSet(this, current, next));
+            next.publish();
+        }
+
+        final TransactionHistory kept = history;
+        if (kept != null) {
+            final int today = TransactionHistory.today();
+            for (int i = from; i < to; i++) {
+                final int index = order[i];
+                if (results[index] == PostingBatch.OK) {
+                    final long amount = amountsCents[index];
+                    kept.append(today, amount > 0L ? TransactionHistory.DEPOSIT : TransactionHistory.WITHDRAWAL,
+                            Math.abs(amount));
+                }
+            }
+        }
+    }
+
+    // Runs batch postings against a starting balance, filling in each
+    // result code; returns the balance after the ones that succeed
+    private static long replayPostings(final long startCents, final long[] amountsCents, final int[] order,
+                                       final int from, final int to, final byte[] results) {
+        long balance = startCents;
+        for (int i = from; i < to; i++) {
+            final int index = order[i];
+            final long amount = amountsCents[index];
+            if (amount == 0L || amount == Long.MIN_VALUE) {
+                results[index] = PostingBatch.INVALID_AMOUNT;
+            } else if (amount > 0L) {
+                if (balance > Long.MAX_VALUE - amount) {
+                    results[index] = PostingBatch.OVERFLOW;
+                } else {
+                    balance += amount;
+                    results[index] = PostingBatch.OK;
+                }
+            } else if (-amount > balance) {
+                results[index] = PostingBatch.INSUFFICIENT_FUNDS;
+            } else {
+                balance += amount;
+                results[index] = PostingBatch.OK;
+            }
+        }
+        return balance;
+    }
+
+    /**
+     * Applies one day of interest and fees in one compare-and-set, computed
+     * from the balance being replaced. The net change is journaled as a
+     * single deposit or withdrawal, and kept in the history as interest or a fee.
+     * @param schedule the accrual rules
+     * @return the balance before accrual, in cents
+     */
+    long applyAccrual(final EndOfDayAccrual.Schedule schedule) {
+        final TransactionJournal attached = journal;
+        long current;
+        long next;
+        if (attached != null) {
+            long sequence = 0L;
+            BalanceVersion.Commit commit = null;
+            synchronized (this) {
+                final BalanceVersion version = state;
+                current = version.balanceCents();
+                next = schedule.apply(current);
+                if (next != current) {
+                    sequence = attached.append(journalKey,
+                            next > current ? TransactionJournal.DEPOSIT : TransactionJournal.WITHDRAW,
+                            Math.abs(next - current), TransactionJournal.NO_DATE);
+                    commit = installPending(version, next, version.closed());
+                }
+            }
+            if (commit != null) {
+                awaitJournaled(attached, sequence, commit, next - current, null, null);
+            }
+        } else {
+            BalanceVersion version;
+            BalanceVersion successor;
+            do {
+                version = state;
+                current = version.balanceCents();
+                next = schedule.apply(current);
+                successor = version.successor(next, version.closed());
+            } while (!STATE.compareAndSet(this, version, successor));
+            successor.publish();
+        }
+
+        if (next > current) {
+            remember(TransactionHistory.INTEREST, next - current, TransactionJournal.NO_DATE);
+        } else if (next < current) {
+            remember(TransactionHistory.FEE, current - next, TransactionJournal.NO_DATE);
+        }
+        return current;
+    }
+
+    /**
+     * Re-applies a journal record while replaying a journal at startup.
+     * Amounts are applied without validation: the journal only holds
+     * postings that already succeeded once.
+     * @param type the TransactionJournal record type
+     * @param amountCents the amount in cents
+     * @param epochDay the record date (used by CLOSE)
+     */
+    void applyJournaled(final byte type, final long amountCents, final int epochDay) {
+        final BalanceVersion current = state;
+        switch (type) {
+            case TransactionJournal.DEPOSIT:
+                replace(current.balanceCents() + amountCents, current.closed());
+                break;
+            case TransactionJournal.WITHDRAW:
+                replace(current.balanceCents() - amountCents, current.closed());
+                break;
+            case TransactionJournal.CLOSE:
+                replace(current.balanceCents(), Date.ofEpochDay(epochDay));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown journal record type: " + type);
+        }
+    }
+
+    /**
+     * Starts writing every successful posting and closure of this account to a journal.
+     * Each change returns once its record is durable, and snapshots only
+     * see it from then on. Attach before the account is shared between threads.
+     *
+     * @param journal the journal to write to (non-null)
+     * @throws IllegalArgumentException if journal is null or the account number cannot be encoded
+     */
+    public synchronized void attachJournal(final TransactionJournal journal) {
+        if (journal == null) {
+            throw new IllegalArgumentException("Journal must not be null.");
+        }
+        this.journalKey = AccountNumberCodec.encode(accountNumber);
+        this.journal = journal;
+    }
+
+    /**
+     * Starts keeping every later successful posting of this account in a history.
+     * Postings replayed from a journal are not added.
+     * @param history the history to append to (non-null)
+     * @throws IllegalArgumentException if history is null
+     */
+    public void attachHistory(final TransactionHistory history) {
+        if (history == null) {
+            throw new IllegalArgumentException("History must not be null.");
+        }
+        this.history = history;
+    }
+
+    /**
+     * Returns the history postings are kept in.
+     * @return the attached history, or null if none is attached
+     */
+    public TransactionHistory getHistory() {
+        return history;
+    }
+
+    // Undated postings are kept under Date.today()
+    private void remember(final byte type, final long amountCents, final int epochDay) {
+        final TransactionHistory kept = history;
+        if (kept != null) {
+            kept.append(epochDay == TransactionJournal.NO_DATE ? TransactionHistory.today() : epochDay,
+                    type, amountCents);
+        }
+    }
+
+    private static int epochDayOf(final Date postingDate) {
+        if (postingDate == null) {
+            throw new IllegalArgumentException("Posting date must not be null.");
+        }
+        return postingDate.getEpochDay();
+    }
+
+    /**
+     * Sets the balance when rebuilding an account from persistent storage.
+     * @param cents the stored balance in cents
+     */
+    void restoreBalanceCents(final long cents) {
+        replace(cents, state.closed());
+    }
+
+    // Installs a state without compare-and-set; only for rebuilding an
+    // account from storage or its journal at startup, before it is shared
+    private void replace(final long balanceCents, final Date closed) {
+        final BalanceVersion next = state.successor(balanceCents, closed);
+        state = next;
+        next.publish();
+    }
+
+    /**
+     * Returns the PIN salt, for persistent storage only.
+     * @return the salt
+     */
+    byte[] pinSalt() {
+        return pinSalt.clone();
+    }
+
+    /**
+     * Returns the PIN hash, for persistent storage only.
+     * @return the hash
+     */
+    byte[] pinHash() {
+        return pinHash.clone();
+    }
+
+    private static long toCents(final double amountUsd) {
+        return Money.fromUsd(amountUsd, POSTING_ROUNDING);
+    }
+
     // Formats: "Monday January 1, 1900"
     private String formatOpenPhrase(final Date d) {
         return capitalizeDay(d.getDayOfTheWeek()) + " " + monthName(d.getMonth()) + " " + d.getDay() + ", " + d.getYear();
@@ -224,20 +813,56 @@ public class BankAccount
         }
     }
 
-
-    private String clientName() {
-        return client.getName().getFullName();
-    }
-
     /**
      * Closes the account on the given date.
+     * The closing date is set under the monitor, so a transfer, which
+     * holds this account's monitor, never sees the account close halfway
+     * through. With a journal, the call then waits for the record without
+     * the monitor. Close listeners run afterwards, on this thread.
      * @param closeDate the closing date (non-null)
      */
     public void close(final Date closeDate) {
         if (closeDate == null) {
             throw new IllegalArgumentException("closeDate must not be null.");
         }
-        this.accountClosed = closeDate;
+        final TransactionJournal attached = journal;
+        final Runnable[] listeners;
+        if (attached != null) {
+            final long sequence;
+            final BalanceVersion.Commit commit;
+            final Date closedBefore;
+            synchronized (this) {
+                final BalanceVersion current = state;
+                closedBefore = current.closed();
+                sequence = attached.append(journalKey, TransactionJournal.CLOSE, 0L, closeDate.getEpochDay());
+                commit = installPending(current, current.balanceCents(), closeDate);
+                listeners = closeListeners;
+            }
+            awaitJournaled(attached, sequence, commit, 0L, closeDate, closedBefore);
+        } else {
+            synchronized (this) {
+                BalanceVersion current;
+                BalanceVersion next;
+                do {
+                    current = state;
+                    next = current.successor(current.balanceCents(), closeDate);
+                } while (!STATE.compareAndSet(this, current, next));
+                next.publish();
+                listeners = closeListeners;
+            }
+        }
+        for (final Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Registers code to run each time the account is closed.
+     * @param listener the code to run (non-null)
+     */
+    synchronized void addCloseListener(final Runnable listener) {
+        closeListeners = Arrays.copyOf(closeListeners, closeListeners.length + 1);
+        closeListeners[closeListeners.length - 1] = listener;
     }
 
     /**
@@ -245,7 +870,15 @@ public class BankAccount
      * @return current balance amount in USD
      */
     public double getBalanceUsd() {
-        return balanceUsd;
+        return Money.toUsd(state.balanceCents());
+    }
+
+    /**
+     * Returns the current balance in cents.
+     * @return current balance amount in cents
+     */
+    public long getBalanceCents() {
+        return state.balanceCents();
     }
 
     /**
@@ -277,7 +910,7 @@ public class BankAccount
      * @return closing date or null
      */
     public Date getAccountClosed() {
-        return accountClosed;
+        return state.closed();
     }
 
 }
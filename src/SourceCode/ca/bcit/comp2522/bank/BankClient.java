@@ -1,6 +1,7 @@
 package ca.bcit.comp2522.bank;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * Represents a bank client with personal details, birth/death dates,
@@ -11,20 +12,21 @@ import java.util.*;
  */
 public final class BankClient
 {
-    private static final int MIN_CLIENT_ID_LENGTH = 6;
-    private static final int MAX_CLIENT_ID_LENGTH = 7;
-
+    private static final Runnable[] NO_LISTENERS = {};
+    private static final AtomicReferenceFieldUpdater<BankClient, Date> DATE_DIED =
+            AtomicReferenceFieldUpdater.newUpdater(BankClient.class, Date.class, "dateDied");
 
     private final String clientID;
     private final Name name;
     private final Date dateBorn;
     private final Date signupDate;
-    private final Date dateDied;
+    private volatile Date dateDied; // nullable (null => alive); set once by recordDeath
+    private Runnable[] deathListeners = NO_LISTENERS; // guarded by this
 
     /**
      * Constructs a BankClient object.
      *
-     * @param clientID   a 6- or 7-digit unique client ID
+     * @param clientID   a 6- or 7-digit unique client ID (surrounding whitespace is dropped)
      * @param name       the client's name (must not be null)
      * @param dateBorn   the client's date of birth (must not be null)
      * @param signupDate the date the client signed up (must be after or equal to dateBorn)
@@ -37,27 +39,19 @@ public final class BankClient
                       final Date signupDate,
                       final Date dateDied)
     {
-        validateClientID(clientID);
+        final long start = BankMetrics.start();
+        final String normalizedID = Identifiers.normalizeClientID(clientID);
         validateNameObject(name);
         validateDateBorn(dateBorn);
         validatesignUpDate(signupDate, dateBorn);
 
 
-        this.clientID = clientID;
+        this.clientID = normalizedID;
         this.name = name;
         this.dateBorn = dateBorn;
         this.signupDate = signupDate;
         this.dateDied = dateDied;
-    }
-
-    private static void validateClientID(final String clientID)
-    {
-        if (clientID == null || clientID.isEmpty()
-                || !clientID.trim().matches("\\d{" + MIN_CLIENT_ID_LENGTH + "," + MAX_CLIENT_ID_LENGTH + "}"))
-        {
-            throw new IllegalArgumentException(
-                    "Client ID must have " + MIN_CLIENT_ID_LENGTH + "-" + MAX_CLIENT_ID_LENGTH + " digits.");
-        }
+        BankMetrics.record(BankMetrics.Operation.CLIENT_NEW, start);
     }
 
     private static void validateNameObject(final Name name)
@@ -82,9 +76,7 @@ public final class BankClient
         {
             throw new IllegalArgumentException("Signup Date must not be null.");
         }
-        if (signupDate.getYear() < dateBorn.getYear()
-               ||  (signupDate.getYear() == dateBorn.getYear() && signupDate.getMonth() < dateBorn.getMonth())
-               || (signupDate.getYear() == dateBorn.getYear() && signupDate.getMonth() == dateBorn.getMonth() && signupDate.getDay() < dateBorn.getDay()))
+        if (signupDate.isBefore(dateBorn))
         {
             throw new IllegalArgumentException("Signup Date cannot be before Date of Birth.");
         }
@@ -101,6 +93,53 @@ public final class BankClient
     }
 
 
+    /**
+     * Records the client's date of death. Safe to call from several
+     * threads: exactly one of them records it, and the rest are rejected.
+     *
+     * @param dateDied the date of death (not before the date of birth)
+     * @throws IllegalArgumentException if the date is null or invalid, or a
+     *                                  date of death is already recorded
+     */
+    public void recordDeath(final Date dateDied)
+    {
+        if (dateDied == null)
+        {
+            throw new IllegalArgumentException("Date died must not be null.");
+        }
+        if (dateDied.isBefore(dateBorn))
+        {
+            throw new IllegalArgumentException("Date died cannot be before Date of Birth.");
+        }
+        if (!DATE_DIED.compareAndSet(this, null, dateDied))
+        {
+            throw new IllegalArgumentException("Date died is already recorded.");
+        }
+
+        final Runnable[] listeners;
+        synchronized (this)
+        {
+            listeners = deathListeners;
+        }
+        for (final Runnable listener : listeners)
+        {
+            listener.run();
+        }
+    }
+
+    /**
+     * Registers code to run, on the recording thread, once the client's
+     * death is recorded. A listener added afterwards is never run.
+     *
+     * @param listener the code to run (non-null)
+     */
+    synchronized void addDeathListener(final Runnable listener)
+    {
+        deathListeners = Arrays.copyOf(deathListeners, deathListeners.length + 1);
+        deathListeners[deathListeners.length - 1] = listener;
+    }
+
+
     /**
      * Returns details about the client in the required format.
      *
@@ -108,6 +147,7 @@ public final class BankClient
      */
     public String getDetails()
     {
+        final long start = BankMetrics.start();
         String aliveStatus;
         if (isAlive())
         {
@@ -121,7 +161,7 @@ public final class BankClient
                     + dateDied.getYear() + ")";
         }
 
-        return name.getFullName()
+        final String details = name.getFullName()
                 + " client #" + clientID
                 + " " + aliveStatus
                 + " joined the bank on "
@@ -129,6 +169,8 @@ public final class BankClient
                 + signupDate.getMonth() + " "
                 + signupDate.getDay() + ", "
                 + signupDate.getYear();
+        BankMetrics.record(BankMetrics.Operation.CLIENT_DETAILS, start);
+        return details;
     }
 
     /**
@@ -0,0 +1,561 @@
+package ca.bcit.comp2522.bank;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms and failure counters for the banking operations.
+ * It is always on and cheap enough to leave on in production. Every
+ * successful call and every failure is counted exactly, with one LongAdder
+ * add. Latency is sampled: one call in 16 (picked at random per thread)
+ * reads the clock twice and lands in the histogram. On virtual machines
+ * System.nanoTime alone can cost 40 ns, more than a whole deposit, so
+ * timing every call would not be cheap. Nothing is locked and nothing is
+ * allocated.
+ *
+ * Histograms are log-linear, as in HdrHistogram. Each power of two is
+ * split into 32 equal buckets, so a recorded value is off by at most about
+ * 3%. One fixed array covers 0 ns up to Long.MAX_VALUE ns. Only calls that
+ * succeed are timed; calls that throw are counted as failures instead.
+ *
+ * The same data reaches Java Flight Recorder in three ways:
+ *   ca.bcit.comp2522.bank.OperationStatistics  periodic, one per operation
+ *   ca.bcit.comp2522.bank.SlowOperation        operations slower than the slow limit
+ *   ca.bcit.comp2522.bank.ValidationFailure    every failure counted here
+ *
+ * Slow operations are only seen when they are sampled.
+ *
+ * System properties: bank.metrics=false starts disabled,
+ * bank.metrics.sampleEvery sets the sampling interval (a power of two;
+ * 1 times every call), and bank.metrics.slowNanos sets the slow limit
+ * (default 1 ms). A value that is malformed or out of range falls back to
+ * its default.
+ *
+ * @author Nazanin Mohsenimehr
+ * @version 1.0
+ */
+public final class BankMetrics
+{
+    /** Operations that are timed. */
+    public enum Operation
+    {
+        /** A deposit, in dollars or cents. */
+        DEPOSIT,
+        /** A withdrawal, with or without a PIN. */
+        WITHDRAW,
+        /** Constructing a BankClient. */
+        CLIENT_NEW,
+        /** Constructing a BankAccount. */
+        ACCOUNT_NEW,
+        /** BankClient.getDetails. */
+        CLIENT_DETAILS,
+        /** BankAccount.getDetails. */
+        ACCOUNT_DETAILS
+    }
+
+    /** Validation failures that are counted. */
+    public enum Failure
+    {
+        /** A withdrawal larger than the balance. */
+        INSUFFICIENT_FUNDS,
+        /** A deposit or withdrawal amount that is not positive. */
+        INVALID_AMOUNT,
+        /** A wrong PIN. */
+        WRONG_PIN,
+        /** A PIN attempt on a locked-out account. */
+        PIN_LOCKED_OUT,
+        /** A client ID that is not 6-7 digits. */
+        INVALID_CLIENT_ID,
+        /** A name containing a forbidden word. */
+        FORBIDDEN_NAME
+    }
+
+    private static final String ENABLED_PROPERTY = "bank.metrics";
+    private static final String SAMPLE_EVERY_PROPERTY = "bank.metrics.sampleEvery";
+    private static final String SLOW_NANOS_PROPERTY = "bank.metrics.slowNanos";
+    private static final int DEFAULT_SAMPLE_EVERY = 16;
+    private static final long DEFAULT_SLOW_NANOS = 1_000_000L;
+
+    // Returned by start() in place of a time: disabled, or counted but not timed
+    private static final long NOT_COUNTED = Long.MIN_VALUE;
+    private static final long NOT_SAMPLED = Long.MIN_VALUE + 1L;
+
+    private static final double[] SNAPSHOT_PERCENTILES = {50.0, 90.0, 99.0, 99.9};
+    private static final double NANOS_PER_MICRO = 1e3;
+    private static final double HUNDRED_PERCENT = 100.0;
+
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final Failure[] FAILURES = Failure.values();
+    private static final LongAdder[] CALLS = new LongAdder[OPERATIONS.length];
+    private static final LatencyHistogram[] LATENCIES = new LatencyHistogram[OPERATIONS.length];
+    private static final LongAdder[] FAILURE_COUNTS = new LongAdder[FAILURES.length];
+    private static final int SAMPLE_MASK = sampleMask(Integer.getInteger(SAMPLE_EVERY_PROPERTY, DEFAULT_SAMPLE_EVERY));
+    private static final long SLOW_NANOS = slowNanos(Long.getLong(SLOW_NANOS_PROPERTY, DEFAULT_SLOW_NANOS));
+
+    private static volatile boolean enabled = Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY, "true"));
+
+    static
+    {
+        for (int i = 0; i < LATENCIES.length; i++)
+        {
+            CALLS[i] = new LongAdder();
+            LATENCIES[i] = new LatencyHistogram();
+        }
+        for (int i = 0; i < FAILURE_COUNTS.length; i++)
+        {
+            FAILURE_COUNTS[i] = new LongAdder();
+        }
+        FlightRecorder.addPeriodicEvent(OperationStatisticsEvent.class, BankMetrics::emitStatistics);
+    }
+
+    private BankMetrics()
+    {
+    }
+
+    /**
+     * Log-linear latency histogram with lock-free updates.
+     * Bucket i below 32 holds exactly the value i; above that, each power of
+     * two [2^k, 2^(k+1)) is split into 32 buckets of width 2^(k-5).
+     */
+    static final class LatencyHistogram
+    {
+        private static final int SUB_BUCKET_BITS = 5;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final int SUB_BUCKET_MASK = SUB_BUCKETS - 1;
+        private static final int HIGHEST_BIT = Long.SIZE - 1;
+        private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) << SUB_BUCKET_BITS;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder totalNanos = new LongAdder();
+
+        /**
+         * Records one value.
+         *
+         * @param nanos the value; negative values count as 0
+         */
+        void record(final long nanos)
+        {
+            final long value = Math.max(nanos, 0L);
+            counts.getAndIncrement(bucketOf(value));
+            totalNanos.add(value);
+        }
+
+        /**
+         * Returns how many values were recorded.
+         *
+         * @return the count
+         */
+        long count()
+        {
+            long count = 0L;
+            for (int i = 0; i < BUCKETS; i++)
+            {
+                count += counts.get(i);
+            }
+            return count;
+        }
+
+        /**
+         * Returns the sum of the recorded values.
+         *
+         * @return the sum in nanoseconds
+         */
+        long totalNanos()
+        {
+            return totalNanos.sum();
+        }
+
+        /**
+         * Returns the highest value in the bucket holding the given
+         * percentile, or 0 if nothing was recorded.
+         *
+         * @param percentile 0-100
+         * @return the value in nanoseconds
+         */
+        long valueAtPercentile(final double percentile)
+        {
+            final long[] copy = copyCounts();
+            long count = 0L;
+            for (final long c : copy)
+            {
+                count += c;
+            }
+            return valueAtPercentile(copy, count, percentile);
+        }
+
+        /**
+         * Clears the histogram.
+         */
+        void reset()
+        {
+            for (int i = 0; i < BUCKETS; i++)
+            {
+                counts.set(i, 0L);
+            }
+            totalNanos.reset();
+        }
+
+        // Reads every bucket once, so the percentiles of one report agree with each other
+        private long[] copyCounts()
+        {
+            final long[] copy = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++)
+            {
+                copy[i] = counts.get(i);
+            }
+            return copy;
+        }
+
+        private static long valueAtPercentile(final long[] counts,
+                                              final long count,
+                                              final double percentile)
+        {
+            if (count == 0L)
+            {
+                return 0L;
+            }
+            final long rank = Math.max(1L, (long) Math.ceil(percentile / HUNDRED_PERCENT * count));
+            long seen = 0L;
+            for (int i = 0; i < counts.length; i++)
+            {
+                seen += counts[i];
+                if (seen >= rank)
+                {
+                    return highestValueIn(i);
+                }
+            }
+            return highestValueIn(counts.length - 1);
+        }
+
+        static int bucketOf(final long value)
+        {
+            if (value < SUB_BUCKETS)
+            {
+                return (int) value;
+            }
+            final int shift = HIGHEST_BIT - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+            return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) & SUB_BUCKET_MASK);
+        }
+
+        static long highestValueIn(final int bucket)
+        {
+            if (bucket < SUB_BUCKETS)
+            {
+                return bucket;
+            }
+            final int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+            final long top = (bucket & SUB_BUCKET_MASK) | SUB_BUCKETS;
+            // For the last bucket this wraps to Long.MIN_VALUE, and minus one is Long.MAX_VALUE
+            return ((top + 1L) << shift) - 1L;
+        }
+    }
+
+    @jdk.jfr.Name("ca.bcit.comp2522.bank.OperationStatistics")
+    @Label("Bank Operation Statistics")
+    @Category("Bank")
+    @Description("Counts and latency percentiles of one banking operation since start or reset")
+    @Period("1 s")
+    @StackTrace(false)
+    static final class OperationStatisticsEvent extends Event
+    {
+        @Label("Operation")
+        String operation;
+
+        @Label("Count")
+        long count;
+
+        @Label("Sampled")
+        long sampled;
+
+        @Label("p50")
+        @Timespan(Timespan.NANOSECONDS)
+        long p50;
+
+        @Label("p99")
+        @Timespan(Timespan.NANOSECONDS)
+        long p99;
+
+        @Label("p99.9")
+        @Timespan(Timespan.NANOSECONDS)
+        long p999;
+    }
+
+    @jdk.jfr.Name("ca.bcit.comp2522.bank.SlowOperation")
+    @Label("Slow Bank Operation")
+    @Category("Bank")
+    @Description("A banking operation that took at least bank.metrics.slowNanos")
+    static final class SlowOperationEvent extends Event
+    {
+        @Label("Operation")
+        String operation;
+
+        @Label("Latency")
+        @Timespan(Timespan.NANOSECONDS)
+        long latency;
+    }
+
+    @jdk.jfr.Name("ca.bcit.comp2522.bank.ValidationFailure")
+    @Label("Bank Validation Failure")
+    @Category("Bank")
+    @Description("A banking operation rejected by validation")
+    static final class ValidationFailureEvent extends Event
+    {
+        @Label("Failure")
+        String failure;
+    }
+
+    /**
+     * Turns recording on or off. Counts recorded so far are kept.
+     *
+     * @param on true to record
+     */
+    public static void setEnabled(final boolean on)
+    {
+        enabled = on;
+    }
+
+    /**
+     * Tells whether recording is on.
+     *
+     * @return true if recording
+     */
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Returns how many calls of an operation succeeded while recording.
+     *
+     * @param operation the operation (non-null)
+     * @return the count
+     */
+    public static long count(final Operation operation)
+    {
+        return CALLS[operation.ordinal()].sum();
+    }
+
+    /**
+     * Returns how many calls of an operation were timed.
+     *
+     * @param operation the operation (non-null)
+     * @return the number of latencies in the histogram
+     */
+    public static long sampled(final Operation operation)
+    {
+        return LATENCIES[operation.ordinal()].count();
+    }
+
+    /**
+     * Returns a latency percentile of an operation, from the sampled calls.
+     *
+     * @param operation the operation (non-null)
+     * @param percentile 0-100
+     * @return the latency in nanoseconds, within about 3%, or 0 if none was recorded
+     */
+    public static long percentileNanos(final Operation operation,
+                                       final double percentile)
+    {
+        if (percentile < 0.0 || percentile > HUNDRED_PERCENT)
+        {
+            throw new IllegalArgumentException("Percentile must be 0-100: " + percentile);
+        }
+        return LATENCIES[operation.ordinal()].valueAtPercentile(percentile);
+    }
+
+    /**
+     * Returns how many failures of a kind were counted.
+     *
+     * @param failure the kind of failure (non-null)
+     * @return the count
+     */
+    public static long failures(final Failure failure)
+    {
+        return FAILURE_COUNTS[failure.ordinal()].sum();
+    }
+
+    /**
+     * Clears every histogram and counter.
+     * Updates that race with a reset may land on either side of it.
+     */
+    public static void reset()
+    {
+        for (int i = 0; i < LATENCIES.length; i++)
+        {
+            CALLS[i].reset();
+            LATENCIES[i].reset();
+        }
+        for (final LongAdder counter : FAILURE_COUNTS)
+        {
+            counter.reset();
+        }
+    }
+
+    /**
+     * Returns every operation's count, sampled count and latencies (in
+     * microseconds) and every failure count as a plain-text table.
+     *
+     * @return the snapshot
+     */
+    public static String snapshot()
+    {
+        final StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.ROOT, "%-16s %12s %12s %10s %10s %10s %10s %10s %10s%n",
+                "operation", "count", "sampled", "mean_us", "p50_us", "p90_us", "p99_us", "p99.9_us", "max_us"));
+        for (final Operation operation : OPERATIONS)
+        {
+            final LatencyHistogram histogram = LATENCIES[operation.ordinal()];
+            final long[] counts = histogram.copyCounts();
+            long count = 0L;
+            int highest = 0;
+            for (int i = 0; i < counts.length; i++)
+            {
+                count += counts[i];
+                if (counts[i] != 0L)
+                {
+                    highest = i;
+                }
+            }
+            final double mean = count == 0L ? 0.0 : (double) histogram.totalNanos() / count;
+            out.append(String.format(Locale.ROOT, "%-16s %12d %12d %10.3f",
+                    label(operation), count(operation), count, mean / NANOS_PER_MICRO));
+            for (final double percentile : SNAPSHOT_PERCENTILES)
+            {
+                out.append(String.format(Locale.ROOT, " %10.3f",
+                        LatencyHistogram.valueAtPercentile(counts, count, percentile) / NANOS_PER_MICRO));
+            }
+            out.append(String.format(Locale.ROOT, " %10.3f%n",
+                    count == 0L ? 0.0 : LatencyHistogram.highestValueIn(highest) / NANOS_PER_MICRO));
+        }
+        out.append(String.format(Locale.ROOT, "%n%-20s %12s%n", "failure", "count"));
+        for (final Failure failure : FAILURES)
+        {
+            out.append(String.format(Locale.ROOT, "%-20s %12d%n", label(failure), failures(failure)));
+        }
+        return out.toString();
+    }
+
+    /**
+     * Starts an operation, reading the clock if this call is sampled.
+     *
+     * @return the value to pass to {@link #record}
+     */
+    static long start()
+    {
+        if (!enabled)
+        {
+            return NOT_COUNTED;
+        }
+        if ((ThreadLocalRandom.current().nextInt() & SAMPLE_MASK) != 0)
+        {
+            return NOT_SAMPLED;
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Records a successful operation.
+     *
+     * @param operation the operation
+     * @param start the value {@link #start()} returned
+     */
+    static void record(final Operation operation,
+                       final long start)
+    {
+        if (start == NOT_COUNTED)
+        {
+            return;
+        }
+        CALLS[operation.ordinal()].increment();
+        if (start == NOT_SAMPLED)
+        {
+            return;
+        }
+        final long nanos = System.nanoTime() - start;
+        LATENCIES[operation.ordinal()].record(nanos);
+        if (nanos >= SLOW_NANOS)
+        {
+            final SlowOperationEvent event = new SlowOperationEvent();
+            if (event.isEnabled())
+            {
+                event.operation = label(operation);
+                event.latency = nanos;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Counts a validation failure. Call it just before throwing.
+     *
+     * @param failure the kind of failure
+     */
+    static void fail(final Failure failure)
+    {
+        if (!enabled)
+        {
+            return;
+        }
+        FAILURE_COUNTS[failure.ordinal()].increment();
+        final ValidationFailureEvent event = new ValidationFailureEvent();
+        if (event.isEnabled())
+        {
+            event.failure = label(failure);
+            event.commit();
+        }
+    }
+
+    private static void emitStatistics()
+    {
+        for (final Operation operation : OPERATIONS)
+        {
+            final LatencyHistogram histogram = LATENCIES[operation.ordinal()];
+            final long[] counts = histogram.copyCounts();
+            long count = 0L;
+            for (final long c : counts)
+            {
+                count += c;
+            }
+            final OperationStatisticsEvent event = new OperationStatisticsEvent();
+            event.operation = label(operation);
+            event.count = count(operation);
+            event.sampled = count;
+            event.p50 = LatencyHistogram.valueAtPercentile(counts, count, SNAPSHOT_PERCENTILES[0]);
+            event.p99 = LatencyHistogram.valueAtPercentile(counts, count, SNAPSHOT_PERCENTILES[2]);
+            event.p999 = LatencyHistogram.valueAtPercentile(counts, count, SNAPSHOT_PERCENTILES[3]);
+            event.commit();
+        }
+    }
+
+    // The mask for a sampling interval, or for the default if it is not a power of two
+    private static int sampleMask(final int sampleEvery)
+    {
+        if (sampleEvery < 1 || Integer.bitCount(sampleEvery) != 1)
+        {
+            return DEFAULT_SAMPLE_EVERY - 1;
+        }
+        return sampleEvery - 1;
+    }
+
+    // The slow limit, or the default if it is negative
+    private static long slowNanos(final long configured)
+    {
+        return configured < 0L ? DEFAULT_SLOW_NANOS : configured;
+    }
+
+    private static String label(final Enum<?> value)
+    {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,139 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * In-memory registry of clients by client ID and accounts by account number.
+ * Client IDs (6-7 digits) are used as numeric keys tagged with their digit
+ * count, so "012345" and "0012345" stay distinct. Account numbers are
+ * packed with {@link AccountNumberCodec}, so both lookups are O(1) probes
+ * into a {@link LongKeyedMap} with no boxing or entry objects.
+ *
+ * Each entry costs about 21 bytes of table space on average (see
+ * LongKeyedMap), so 50 million clients plus 50 million accounts need roughly
+ * 2 GB for the tables on top of the client and account objects.
+ *
+ * Not thread-safe: register everything from one thread, then share the
+ * registry read-only.
+ *
+ * @author Nazanin Mohsenimehr
+ * @version 1.0
+ */
+public final class BankRegistry
+{
+    private static final int DEFAULT_EXPECTED_SIZE = 1024;
+
+    private final LongKeyedMap<BankClient> clients;
+    private final LongKeyedMap<BankAccount> accounts;
+
+    /**
+     * Constructs an empty registry with a small default size.
+     */
+    public BankRegistry()
+    {
+        this(DEFAULT_EXPECTED_SIZE, DEFAULT_EXPECTED_SIZE);
+    }
+
+    /**
+     * Constructs an empty registry presized for the expected number of entries.
+     *
+     * @param expectedClients number of clients expected
+     * @param expectedAccounts number of accounts expected
+     */
+    public BankRegistry(final int expectedClients,
+                        final int expectedAccounts)
+    {
+        this.clients = new LongKeyedMap<>(expectedClients);
+        this.accounts = new LongKeyedMap<>(expectedAccounts);
+    }
+
+    /**
+     * Registers a client under its client ID.
+     *
+     * @param client the client (non-null)
+     * @throws IllegalArgumentException if null or the ID is already registered
+     */
+    public void register(final BankClient client)
+    {
+        if (client == null)
+        {
+            throw new IllegalArgumentException("Client must not be null.");
+        }
+        final long key = Identifiers.clientKey(client.getClientID());
+        if (clients.containsKey(key))
+        {
+            throw new IllegalArgumentException("Client ID already registered: " + client.getClientID());
+        }
+        clients.put(key, client);
+    }
+
+    /**
+     * Registers an account under its account number.
+     *
+     * @param account the account (non-null)
+     * @throws IllegalArgumentException if null, the number cannot be encoded,
+     *                                  or it is already registered
+     */
+    public void register(final BankAccount account)
+    {
+        if (account == null)
+        {
+            throw new IllegalArgumentException("Account must not be null.");
+        }
+        final long key = AccountNumberCodec.encode(account.getAccountNumber());
+        if (accounts.containsKey(key))
+        {
+            throw new IllegalArgumentException("Account number already registered: " + account.getAccountNumber());
+        }
+        accounts.put(key, account);
+    }
+
+    /**
+     * Finds a client by client ID.
+     *
+     * @param clientID the client ID
+     * @return the client, or null if not registered or the ID is malformed
+     */
+    public BankClient findClient(final String clientID)
+    {
+        final long key = Identifiers.clientKey(clientID);
+        return key < 0 ? null : clients.get(key);
+    }
+
+    /**
+     * Finds an account by account number.
+     *
+     * @param accountNumber the account number
+     * @return the account, or null if not registered
+     */
+    public BankAccount findAccount(final String accountNumber)
+    {
+        final long key;
+        try
+        {
+            key = AccountNumberCodec.encode(accountNumber);
+        } catch (final IllegalArgumentException e)
+        {
+            return null;
+        }
+        return accounts.get(key);
+    }
+
+    /**
+     * Returns the number of registered clients.
+     *
+     * @return client count
+     */
+    public int clientCount()
+    {
+        return clients.size();
+    }
+
+    /**
+     * Returns the number of registered accounts.
+     *
+     * @return account count
+     */
+    public int accountCount()
+    {
+        return accounts.size();
+    }
+}
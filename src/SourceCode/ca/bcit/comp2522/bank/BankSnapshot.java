@@ -0,0 +1,204 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A consistent, read-only view of account balances and open/closed states
+ * at one moment, taken while tellers keep posting.
+ *
+ * Opening a snapshot copies nothing: it takes the current value of a global
+ * epoch clock and advances the clock. Every account write becomes visible
+ * at the clock value read just after it is installed (see
+ * {@link BalanceVersion}), so the snapshot sees exactly the writes stamped
+ * at or before its epoch, in every account, and later writes never show
+ * up in it. Writers never wait for snapshots. A reader only waits when it
+ * meets a transfer that has not finished, so that it sees both legs or
+ * neither.
+ *
+ * While a snapshot is open, each account keeps the newest version the
+ * snapshot can see. Old versions are dropped by the first write after the
+ * last snapshot that needs them is closed, so close snapshots promptly
+ * (try-with-resources).
+ *
+ * A snapshot is serializable: all reads agree on one order of the writes.
+ * The order may differ from wall-clock time for writes that overlapped a
+ * transfer.
+ *
+ * @author Nazanin Mohsenimehr
+ * @version 1.0
+ */
+public final class BankSnapshot implements AutoCloseable
+{
+    // Versions that exist before the first snapshot have epoch 0
+    private static final long FIRST_EPOCH = 1L;
+
+    // oldestOpen() when nothing is open; above every real epoch, below PENDING
+    private static final long NONE_OPEN = BalanceVersion.PENDING - 1L;
+
+    private static final AtomicLong CLOCK = new AtomicLong(FIRST_EPOCH);
+    private static final TreeSet<Long> OPEN = new TreeSet<>(); // guarded by OPEN
+    private static volatile long oldestOpen = NONE_OPEN;
+
+    private final long epoch;
+    private volatile boolean closed;
+
+    private BankSnapshot(final long epoch)
+    {
+        this.epoch = epoch;
+    }
+
+    /**
+     * Opens a snapshot of every account as of now.
+     *
+     * @return the snapshot; close it when done
+     */
+    public static BankSnapshot open()
+    {
+        synchronized (OPEN)
+        {
+            // Register before advancing the clock: a writer that stamps a
+            // later epoch then also sees this snapshot when it prunes
+            final long epoch = CLOCK.get();
+            OPEN.add(epoch);
+            oldestOpen = OPEN.first();
+            CLOCK.incrementAndGet();
+            return new BankSnapshot(epoch);
+        }
+    }
+
+    /**
+     * Returns the epoch of this snapshot. Later snapshots have larger epochs.
+     *
+     * @return the epoch
+     */
+    public long getEpoch()
+    {
+        return epoch;
+    }
+
+    /**
+     * Returns an account's balance as of this snapshot.
+     *
+     * @param account the account (non-null)
+     * @return the balance in cents
+     * @throws IllegalStateException if the snapshot is closed
+     */
+    public long balanceCents(final BankAccount account)
+    {
+        return versionOf(account).balanceCents();
+    }
+
+    /**
+     * Returns an account's closing date as of this snapshot.
+     *
+     * @param account the account (non-null)
+     * @return the closing date, or null if the account was open
+     * @throws IllegalStateException if the snapshot is closed
+     */
+    public Date closedDate(final BankAccount account)
+    {
+        return versionOf(account).closed();
+    }
+
+    /**
+     * Tells whether an account was open as of this snapshot.
+     *
+     * @param account the account (non-null)
+     * @return true if open
+     * @throws IllegalStateException if the snapshot is closed
+     */
+    public boolean isOpen(final BankAccount account)
+    {
+        return versionOf(account).closed() == null;
+    }
+
+    /**
+     * Returns the total balance of some accounts as of this snapshot.
+     *
+     * @param accounts the accounts (non-null elements)
+     * @return the total in cents
+     * @throws IllegalStateException if the snapshot is closed
+     */
+    public long totalBalanceCents(final BankAccount[] accounts)
+    {
+        long total = 0L;
+        for (final BankAccount account : accounts)
+        {
+            total = Money.add(total, balanceCents(account));
+        }
+        return total;
+    }
+
+    /**
+     * Returns the total balance of some accounts as of this snapshot.
+     *
+     * @param accounts the accounts (non-null elements)
+     * @return the total in cents
+     * @throws IllegalStateException if the snapshot is closed
+     */
+    public long totalBalanceCents(final Iterable<BankAccount> accounts)
+    {
+        long total = 0L;
+        for (final BankAccount account : accounts)
+        {
+            total = Money.add(total, balanceCents(account));
+        }
+        return total;
+    }
+
+    /**
+     * Closes the snapshot so the versions only it needed can be dropped.
+     * Closing twice does nothing.
+     */
+    @Override
+    public void close()
+    {
+        synchronized (OPEN)
+        {
+            if (closed)
+            {
+                return;
+            }
+            closed = true;
+            OPEN.remove(epoch);
+            oldestOpen = OPEN.isEmpty() ? NONE_OPEN : OPEN.first();
+        }
+    }
+
+    /**
+     * Returns the current epoch, which writes are stamped with.
+     *
+     * @return the epoch
+     */
+    static long clock()
+    {
+        return CLOCK.get();
+    }
+
+    /**
+     * Returns the epoch of the oldest open snapshot, or a value above
+     * every epoch if none is open.
+     *
+     * @return the epoch
+     */
+    static long oldestOpen()
+    {
+        return oldestOpen;
+    }
+
+    private BalanceVersion versionOf(final BankAccount account)
+    {
+        if (closed)
+        {
+            throw new IllegalStateException("Snapshot is closed.");
+        }
+        final BalanceVersion version = account.currentVersion().visibleAt(epoch);
+        if (version == null)
+        {
+            // Only possible when close() raced with this read
+            throw new IllegalStateException("Snapshot is closed.");
+        }
+        return version;
+    }
+}
@@ -0,0 +1,330 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Struct-of-arrays copy of a portfolio for whole-book aggregates.
+ * Each account is one row across parallel primitive columns: balance in
+ * cents, opened and closed dates as epoch days, and an ordinal for its
+ * client. Scans walk one or two dense arrays front to back with no object
+ * dereferences, which keeps them cache- and prefetch-friendly and lets the
+ * JIT unroll and vectorize the loops.
+ *
+ * The store is a snapshot: it does not follow later changes to the
+ * BankAccount objects. Use setBalanceCents and close to keep it current.
+ *
+ * Sums are plain long additions; they are exact as long as the total stays
+ * within about 92 quadrillion dollars.
+ *
+ * Not thread-safe.
+ *
+ * @author Nazanin Mohsenimehr
+ * @version 1.0
+ */
+public final class ColumnarAccountStore
+{
+    /** Closed-date value of a row that is still open. */
+    public static final int NOT_CLOSED = Integer.MAX_VALUE;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Date only accepts years in this range
+    private static final int FIRST_YEAR = Date.MIN_YEAR;
+    private static final int LAST_YEAR = Date.CURRENT_YEAR;
+    private static final int FIRST_DAY = Date.of(FIRST_YEAR, 1, 1).getEpochDay();
+    private static final short[] YEAR_OFFSET_BY_DAY = buildYearTable();
+
+    private long[] balanceCents;
+    private int[] openedDay;
+    private int[] closedDay;
+    private int[] clientOrdinal;
+    private int size;
+
+    /**
+     * Constructs an empty store.
+     */
+    public ColumnarAccountStore()
+    {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty store presized for a number of accounts.
+     *
+     * @param expectedAccounts number of accounts expected
+     */
+    public ColumnarAccountStore(final int expectedAccounts)
+    {
+        if (expectedAccounts < 0)
+        {
+            throw new IllegalArgumentException("Expected size must not be negative.");
+        }
+        final int capacity = Math.max(expectedAccounts, 1);
+        this.balanceCents = new long[capacity];
+        this.openedDay = new int[capacity];
+        this.closedDay = new int[capacity];
+        this.clientOrdinal = new int[capacity];
+    }
+
+    /**
+     * Builds a store from accounts, numbering their clients in order of
+     * first appearance.
+     *
+     * @param accounts the accounts (non-null, no null elements)
+     * @return the store; row i holds accounts[i]
+     */
+    public static ColumnarAccountStore of(final BankAccount[] accounts)
+    {
+        final ColumnarAccountStore store = new ColumnarAccountStore(accounts.length);
+        final Map<BankClient, Integer> clients = new IdentityHashMap<>();
+        for (final BankAccount account : accounts)
+        {
+            final int ordinal = clients.computeIfAbsent(account.getClient(), c -> clients.size());
+            store.add(account, ordinal);
+        }
+        return store;
+    }
+
+    /**
+     * Appends an account as a new row.
+     *
+     * @param account the account (non-null)
+     * @param client the client ordinal to store for it
+     * @return the row number
+     */
+    public int add(final BankAccount account,
+                   final int client)
+    {
+        if (account == null)
+        {
+            throw new IllegalArgumentException("Account must not be null.");
+        }
+        if (size == balanceCents.length)
+        {
+            final int capacity = size * 2;
+            balanceCents = Arrays.copyOf(balanceCents, capacity);
+            openedDay = Arrays.copyOf(openedDay, capacity);
+            closedDay = Arrays.copyOf(closedDay, capacity);
+            clientOrdinal = Arrays.copyOf(clientOrdinal, capacity);
+        }
+        final Date closed = account.getAccountClosed();
+        balanceCents[size] = account.getBalanceCents();
+        openedDay[size] = account.getAccountOpened().getEpochDay();
+        closedDay[size] = closed == null ? NOT_CLOSED : closed.getEpochDay();
+        clientOrdinal[size] = client;
+        return size++;
+    }
+
+    /**
+     * Updates the balance of a row.
+     *
+     * @param row the row
+     * @param cents the new balance in cents
+     */
+    public void setBalanceCents(final int row,
+                                final long cents)
+    {
+        balanceCents[checkRow(row)] = cents;
+    }
+
+    /**
+     * Marks a row closed.
+     *
+     * @param row the row
+     * @param closeDate the closing date (non-null)
+     */
+    public void close(final int row,
+                      final Date closeDate)
+    {
+        closedDay[checkRow(row)] = closeDate.getEpochDay();
+    }
+
+    /**
+     * Returns the number of rows.
+     *
+     * @return the row count
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the balance of a row.
+     *
+     * @param row the row
+     * @return the balance in cents
+     */
+    public long balanceCents(final int row)
+    {
+        return balanceCents[checkRow(row)];
+    }
+
+    /**
+     * Returns the client ordinal of a row.
+     *
+     * @param row the row
+     * @return the client ordinal
+     */
+    public int clientOrdinal(final int row)
+    {
+        return clientOrdinal[checkRow(row)];
+    }
+
+    /**
+     * Returns the sum of all balances.
+     *
+     * @return total in cents
+     */
+    public long totalBalanceCents()
+    {
+        final long[] balances = balanceCents;
+        long total = 0L;
+        for (int i = 0; i < size; i++)
+        {
+            total += balances[i];
+        }
+        return total;
+    }
+
+    /**
+     * Returns the smallest balance.
+     *
+     * @return the minimum in cents, or Long.MAX_VALUE if the store is empty
+     */
+    public long minBalanceCents()
+    {
+        final long[] balances = balanceCents;
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < size; i++)
+        {
+            min = Math.min(min, balances[i]);
+        }
+        return min;
+    }
+
+    /**
+     * Returns the largest balance.
+     *
+     * @return the maximum in cents, or Long.MIN_VALUE if the store is empty
+     */
+    public long maxBalanceCents()
+    {
+        final long[] balances = balanceCents;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < size; i++)
+        {
+            max = Math.max(max, balances[i]);
+        }
+        return max;
+    }
+
+    /**
+     * Returns the sum of balances of accounts that are still open.
+     *
+     * @return total in cents
+     */
+    public long openBalanceCents()
+    {
+        final long[] balances = balanceCents;
+        final int[] closed = closedDay;
+        long total = 0L;
+        for (int i = 0; i < size; i++)
+        {
+            total += closed[i] == NOT_CLOSED ? balances[i] : 0L;
+        }
+        return total;
+    }
+
+    /**
+     * Returns the sum of balances of accounts opened in a range of dates.
+     *
+     * @param from first opening date (inclusive)
+     * @param to last opening date (inclusive)
+     * @return total in cents
+     */
+    public long balanceOpenedBetweenCents(final Date from,
+                                          final Date to)
+    {
+        final long[] balances = balanceCents;
+        final int[] opened = openedDay;
+        final int first = from.getEpochDay();
+        final int last = to.getEpochDay();
+        long total = 0L;
+        for (int i = 0; i < size; i++)
+        {
+            final int day = opened[i];
+            total += day >= first && day <= last ? balances[i] : 0L;
+        }
+        return total;
+    }
+
+    /**
+     * Counts balances in equal-width buckets starting at zero. Negative
+     * balances count in the first bucket and balances past the last bucket
+     * count in the last one.
+     *
+     * @param bucketWidthCents width of each bucket in cents (> 0)
+     * @param buckets number of buckets (> 0)
+     * @return counts per bucket
+     */
+    public long[] balanceHistogram(final long bucketWidthCents,
+                                   final int buckets)
+    {
+        if (bucketWidthCents <= 0L || buckets <= 0)
+        {
+            throw new IllegalArgumentException("Bucket width and count must be positive.");
+        }
+        final long[] balances = balanceCents;
+        final long[] counts = new long[buckets];
+        final long lastBucket = buckets - 1;
+        for (int i = 0; i < size; i++)
+        {
+            final long bucket = Math.max(balances[i], 0L) / bucketWidthCents;
+            counts[(int) Math.min(bucket, lastBucket)]++;
+        }
+        return counts;
+    }
+
+    /**
+     * Counts accounts by the year they were opened.
+     *
+     * @return counts indexed by year - 1800, from 1800 to the current year
+     */
+    public int[] countByOpenYear()
+    {
+        final int[] opened = openedDay;
+        final short[] yearOffset = YEAR_OFFSET_BY_DAY;
+        final int[] counts = new int[LAST_YEAR - FIRST_YEAR + 1];
+        for (int i = 0; i < size; i++)
+        {
+            counts[yearOffset[opened[i] - FIRST_DAY]]++;
+        }
+        return counts;
+    }
+
+    private int checkRow(final int row)
+    {
+        if (row < 0 || row >= size)
+        {
+            throw new IllegalArgumentException("No row " + row);
+        }
+        return row;
+    }
+
+    // Year offset (year - 1800) of every supported epoch day
+    private static short[] buildYearTable()
+    {
+        final int lastDay = Date.of(LAST_YEAR, 12, 31).getEpochDay();
+        final short[] table = new short[lastDay - FIRST_DAY + 1];
+        for (int year = FIRST_YEAR; year <= LAST_YEAR; year++)
+        {
+            final int start = Date.of(year, 1, 1).getEpochDay() - FIRST_DAY;
+            final int end = year == LAST_YEAR ? table.length : Date.of(year + 1, 1, 1).getEpochDay() - FIRST_DAY;
+            Arrays.fill(table, start, end, (short) (year - FIRST_YEAR));
+        }
+        return table;
+    }
+}
@@ -0,0 +1,586 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Streams clients and accounts out of a large UTF-8 CSV file.
+ * Rows are read through one fixed-size byte buffer and split into fields
+ * by offset, so memory stays constant whatever the file size. Numbers and
+ * dates are parsed straight from the bytes; only the strings a BankClient
+ * or BankAccount must keep (names, client ID, account number) get created.
+ * Every row goes through the normal constructors, so the usual validation
+ * rules apply. A row that fails is handed to an error sink and the import
+ * carries on.
+ *
+ * Row format (no quoting, one account per row):
+ *   clientId,first,last,born,signup,died,accountNumber,pin,opened,closed
+ * Dates are YYYY-MM-DD; died and closed may be empty.
+ *
+ * @author Nazanin Mohsenimehr
+ * @version 1.0
+ */
+public final class CsvImporter
+{
+    private static final int FIELD_COUNT = 10;
+    private static final int CLIENT_ID = 0;
+    private static final int FIRST = 1;
+    private static final int LAST = 2;
+    private static final int BORN = 3;
+    private static final int SIGNUP = 4;
+    private static final int DIED = 5;
+    private static final int ACCOUNT_NUMBER = 6;
+    private static final int PIN = 7;
+    private static final int OPENED = 8;
+    private static final int CLOSED = 9;
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final int SPLIT_PROBE_SIZE = 4096;
+    private static final int DECIMAL_RADIX = 10;
+    private static final byte SEPARATOR = ',';
+    private static final byte DATE_SEPARATOR = '-';
+    private static final byte NEWLINE = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    private final RowSink rows;
+    private final ErrorSink errors;
+    private final boolean skipHeader;
+    private final int bufferSize;
+
+    /**
+     * Receives each imported client and account.
+     */
+    public interface RowSink
+    {
+        /**
+         * Accepts one imported row.
+         *
+         * @param client the row's client
+         * @param account the row's account
+         */
+        void accept(BankClient client, BankAccount account);
+    }
+
+    /**
+     * Receives rows that failed to parse or validate.
+     */
+    public interface ErrorSink
+    {
+        /**
+         * Reports one rejected row.
+         *
+         * @param byteOffset where the row starts in the input
+         * @param reason why the row was rejected
+         */
+        void reject(long byteOffset, String reason);
+    }
+
+    /**
+     * Row counts and timing for one import.
+     */
+    public static final class Result
+    {
+        private final long accepted;
+        private final long rejected;
+        private final long elapsedNanos;
+
+        private Result(final long accepted,
+                       final long rejected,
+                       final long elapsedNanos)
+        {
+            this.accepted = accepted;
+            this.rejected = rejected;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Returns the number of rows imported.
+         *
+         * @return accepted row count
+         */
+        public long getAccepted()
+        {
+            return accepted;
+        }
+
+        /**
+         * Returns the number of rows sent to the error sink.
+         *
+         * @return rejected row count
+         */
+        public long getRejected()
+        {
+            return rejected;
+        }
+
+        /**
+         * Returns the wall-clock time the import took.
+         *
+         * @return elapsed time in nanoseconds
+         */
+        public long getElapsedNanos()
+        {
+            return elapsedNanos;
+        }
+
+        /**
+         * Returns throughput over all rows, accepted or not.
+         *
+         * @return rows per second
+         */
+        public double rowsPerSecond()
+        {
+            final double seconds = elapsedNanos / 1e9;
+            return seconds == 0 ? 0 : (accepted + rejected) / seconds;
+        }
+    }
+
+    /**
+     * Constructs an importer.
+     *
+     * @param rows where imported rows go (non-null; thread-safe for parallel imports)
+     * @param errors where rejected rows go (non-null; thread-safe for parallel imports)
+     * @param skipHeader true if the first line is a header
+     */
+    public CsvImporter(final RowSink rows,
+                       final ErrorSink errors,
+                       final boolean skipHeader)
+    {
+        this(rows, errors, skipHeader, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructs an importer with a given buffer size. Rows longer than the
+     * buffer are rejected.
+     *
+     * @param rows where imported rows go (non-null; thread-safe for parallel imports)
+     * @param errors where rejected rows go (non-null; thread-safe for parallel imports)
+     * @param skipHeader true if the first line is a header
+     * @param bufferSize read buffer size in bytes
+     */
+    public CsvImporter(final RowSink rows,
+                       final ErrorSink errors,
+                       final boolean skipHeader,
+                       final int bufferSize)
+    {
+        if (rows == null || errors == null)
+        {
+            throw new IllegalArgumentException("Sinks must not be null.");
+        }
+        if (bufferSize <= 0)
+        {
+            throw new IllegalArgumentException("Buffer size must be positive.");
+        }
+        this.rows = rows;
+        this.errors = errors;
+        this.skipHeader = skipHeader;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Imports every row of a stream on the calling thread.
+     *
+     * @param in the CSV input (not closed by this method)
+     * @return row counts and timing
+     * @throws IOException if reading fails
+     */
+    public Result importFrom(final InputStream in) throws IOException
+    {
+        if (in == null)
+        {
+            throw new IllegalArgumentException("Input must not be null.");
+        }
+        final long start = System.nanoTime();
+        final Parser parser = new Parser(0L, skipHeader);
+        parser.run(in);
+        return new Result(parser.accepted, parser.rejected, System.nanoTime() - start);
+    }
+
+    /**
+     * Imports a file by splitting it at line boundaries into one range per
+     * thread and parsing the ranges in parallel.
+     *
+     * @param file the CSV file
+     * @param threads number of worker threads
+     * @return combined row counts and timing
+     * @throws IOException if reading fails
+     */
+    public Result importParallel(final Path file,
+                                 final int threads) throws IOException
+    {
+        if (file == null || threads <= 0)
+        {
+            throw new IllegalArgumentException("File must not be null and threads must be positive.");
+        }
+
+        final long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            final long[] bounds = splitPoints(channel, threads);
+            final ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try
+            {
+                final List<Future<Parser>> parts = new ArrayList<>();
+                for (int i = 0; i < threads; i++)
+                {
+                    final long from = bounds[i];
+                    final long to = bounds[i + 1];
+                    final boolean first = i == 0;
+                    parts.add(pool.submit(() -> {
+                        final Parser parser = new Parser(from, first && skipHeader);
+                        if (to > from)
+                        {
+                            try (FileChannel own = FileChannel.open(file, StandardOpenOption.READ))
+                            {
+                                own.position(from);
+                                parser.run(new RangeInputStream(Channels.newInputStream(own), to - from));
+                            }
+                        }
+                        return parser;
+                    }));
+                }
+
+                long accepted = 0;
+                long rejected = 0;
+                for (final Future<Parser> part : parts)
+                {
+                    final Parser parser = part.get();
+                    accepted += parser.accepted;
+                    rejected += parser.rejected;
+                }
+                return new Result(accepted, rejected, System.nanoTime() - start);
+            } catch (final InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new IOException("Import interrupted.", e);
+            } catch (final ExecutionException e)
+            {
+                if (e.getCause() instanceof IOException)
+                {
+                    throw (IOException) e.getCause();
+                }
+                if (e.getCause() instanceof RuntimeException)
+                {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IOException("Import failed.", e.getCause());
+            } finally
+            {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    // Byte offsets [0, b1, ..., size] where each inner point sits just past a newline
+    private static long[] splitPoints(final FileChannel channel,
+                                      final int parts) throws IOException
+    {
+        final long size = channel.size();
+        final long[] bounds = new long[parts + 1];
+        bounds[parts] = size;
+        final ByteBuffer probe = ByteBuffer.allocate(SPLIT_PROBE_SIZE);
+        for (int i = 1; i < parts; i++)
+        {
+            long position = Math.max(bounds[i - 1], size * i / parts);
+            boolean found = false;
+            while (!found && position < size)
+            {
+                probe.clear();
+                final int read = channel.read(probe, position);
+                if (read <= 0)
+                {
+                    break;
+                }
+                for (int k = 0; k < read && !found; k++)
+                {
+                    position++;
+                    found = probe.get(k) == NEWLINE;
+                }
+            }
+            bounds[i] = Math.min(position, size);
+        }
+        return bounds;
+    }
+
+    /**
+     * Parses one stream of rows with a single reusable buffer.
+     */
+    private final class Parser
+    {
+        private final byte[] buffer;
+        private final int[] fieldStart;
+        private final int[] fieldEnd;
+        private final long baseOffset;
+        private boolean skipNextRow;
+        private long accepted;
+        private long rejected;
+
+        private Parser(final long baseOffset,
+                       final boolean skipFirstRow)
+        {
+            this.buffer = new byte[bufferSize];
+            this.fieldStart = new int[FIELD_COUNT];
+            this.fieldEnd = new int[FIELD_COUNT];
+            this.baseOffset = baseOffset;
+            this.skipNextRow = skipFirstRow;
+        }
+
+        private void run(final InputStream in) throws IOException
+        {
+            int filled = 0;
+            long consumed = baseOffset; // input offset of buffer[0]
+            boolean discarding = false; // inside a row too long for the buffer
+            boolean eof = false;
+
+            while (!eof || filled > 0)
+            {
+                if (!eof && filled < buffer.length)
+                {
+                    final int read = in.read(buffer, filled, buffer.length - filled);
+                    if (read < 0)
+                    {
+                        eof = true;
+                    } else
+                    {
+                        filled += read;
+                    }
+                }
+
+                int rowStart = 0;
+                int newline;
+                while ((newline = indexOf(NEWLINE, rowStart, filled)) >= 0)
+                {
+                    if (discarding)
+                    {
+                        discarding = false;
+                    } else
+                    {
+                        row(rowStart, newline, consumed + rowStart);
+                    }
+                    rowStart = newline + 1;
+                }
+
+                if (eof && rowStart < filled)
+                {
+                    if (!discarding)
+                    {
+                        row(rowStart, filled, consumed + rowStart);
+                    }
+                    rowStart = filled;
+                }
+
+                if (rowStart == 0 && filled == buffer.length)
+                {
+                    if (!discarding)
+                    {
+                        reject(consumed, "Row is longer than " + buffer.length + " bytes.");
+                        discarding = true;
+                    }
+                    rowStart = filled;
+                }
+
+                System.arraycopy(buffer, rowStart, buffer, 0, filled - rowStart);
+                filled -= rowStart;
+                consumed += rowStart;
+                if (eof && filled == 0)
+                {
+                    return;
+                }
+            }
+        }
+
+        private void row(final int start,
+                         final int end,
+                         final long offset)
+        {
+            int limit = end;
+            if (limit > start && buffer[limit - 1] == CARRIAGE_RETURN)
+            {
+                limit--;
+            }
+            if (skipNextRow)
+            {
+                skipNextRow = false;
+                return;
+            }
+            if (limit == start)
+            {
+                return;
+            }
+
+            int field = 0;
+            fieldStart[0] = start;
+            for (int i = start; i < limit; i++)
+            {
+                if (buffer[i] == SEPARATOR)
+                {
+                    if (field == FIELD_COUNT - 1)
+                    {
+                        reject(offset, "Expected " + FIELD_COUNT + " fields but found more.");
+                        return;
+                    }
+                    fieldEnd[field++] = i;
+                    fieldStart[field] = i + 1;
+                }
+            }
+            fieldEnd[field] = limit;
+            if (field != FIELD_COUNT - 1)
+            {
+                reject(offset, "Expected " + FIELD_COUNT + " fields but found " + (field + 1) + ".");
+                return;
+            }
+
+            try
+            {
+                final BankClient client = new BankClient(
+                        text(CLIENT_ID),
+                        new Name(text(FIRST), text(LAST)),
+                        date(BORN),
+                        date(SIGNUP),
+                        optionalDate(DIED));
+                final BankAccount account = new BankAccount(
+                        client,
+                        text(ACCOUNT_NUMBER),
+                        number(fieldStart[PIN], fieldEnd[PIN]),
+                        date(OPENED),
+                        optionalDate(CLOSED));
+                rows.accept(client, account);
+                accepted++;
+            } catch (final IllegalArgumentException e)
+            {
+                reject(offset, e.getMessage());
+            }
+        }
+
+        private void reject(final long offset,
+                            final String reason)
+        {
+            rejected++;
+            errors.reject(offset, reason);
+        }
+
+        private String text(final int field)
+        {
+            return new String(buffer, fieldStart[field], fieldEnd[field] - fieldStart[field], StandardCharsets.UTF_8);
+        }
+
+        private Date optionalDate(final int field)
+        {
+            return fieldStart[field] == fieldEnd[field] ? null : date(field);
+        }
+
+        // YYYY-MM-DD
+        private Date date(final int field)
+        {
+            final int start = fieldStart[field];
+            final int end = fieldEnd[field];
+            final int firstDash = indexOf(DATE_SEPARATOR, start, end);
+            final int secondDash = firstDash < 0 ? -1 : indexOf(DATE_SEPARATOR, firstDash + 1, end);
+            if (secondDash < 0)
+            {
+                throw new IllegalArgumentException("Date must be YYYY-MM-DD.");
+            }
+            return Date.of(number(start, firstDash),
+                    number(firstDash + 1, secondDash),
+                    number(secondDash + 1, end));
+        }
+
+        private int number(final int start,
+                           final int end)
+        {
+            if (start == end)
+            {
+                throw new IllegalArgumentException("Missing number.");
+            }
+            long value = 0;
+            for (int i = start; i < end; i++)
+            {
+                final int digit = buffer[i] - '0';
+                if (digit < 0 || digit >= DECIMAL_RADIX)
+                {
+                    throw new IllegalArgumentException("Not a number.");
+                }
+                value = value * DECIMAL_RADIX + digit;
+                if (value > Integer.MAX_VALUE)
+                {
+                    throw new IllegalArgumentException("Number is too large.");
+                }
+            }
+            return (int) value;
+        }
+
+        private int indexOf(final byte target,
+                            final int from,
+                            final int to)
+        {
+            for (int i = from; i < to; i++)
+            {
+                if (buffer[i] == target)
+                {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Reads at most a fixed number of bytes from another stream.
+     */
+    private static final class RangeInputStream extends InputStream
+    {
+        private final InputStream in;
+        private long remaining;
+
+        private RangeInputStream(final InputStream in,
+                                 final long length)
+        {
+            this.in = in;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            if (remaining <= 0)
+            {
+                return -1;
+            }
+            final int b = in.read();
+            if (b >= 0)
+            {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(final byte[] b,
+                        final int off,
+                        final int len) throws IOException
+        {
+            if (remaining <= 0)
+            {
+                return -1;
+            }
+            final int read = in.read(b, off, (int) Math.min(len, remaining));
+            if (read > 0)
+            {
+                remaining -= read;
+            }
+            return read;
+        }
+    }
+}
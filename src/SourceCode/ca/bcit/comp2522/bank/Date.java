@@ -3,16 +3,30 @@ package ca.bcit.comp2522.bank;
 /**
  * Represents a date with year, month, and day components.
  * Provides methods to get various formatted versions of the date.
+ * Each date also carries its epoch day (days since 1970-01-01), computed
+ * once at construction, so day-of-week, comparison and day arithmetic are
+ * O(1) int operations. Dates are equal when they name the same day, even
+ * if one was built with the constructor and the other came from the cache.
+ * Prefer {@link #of(int, int, int)}, which hands out one shared instance
+ * per calendar day instead of allocating and validating a new one.
+ * Dates run from 1800 to 2025. A deployment that must accept later dates
+ * sets the system property bank.date.lastYear (2025-9999) before Date is
+ * first used; the bound is then fixed for the life of the JVM.
  *
  * @author Leen and Veronica
  * @version 1.0
  */
-public class Date
+public class Date implements Comparable<Date>
 {
-    private static final int MIN_YEAR = 1800;
-    private static final int MAX_YEAR_1800S = 1899;
-    private static final int CURRENT_YEAR = 2025;
-    private static final int CENTURY_YEAR = 2000;
+    /** The first year a Date can have. */
+    static final int MIN_YEAR = 1800;
+
+    private static final String LAST_YEAR_PROPERTY = "bank.date.lastYear";
+    private static final int DEFAULT_LAST_YEAR = 2025;
+    private static final int MAX_LAST_YEAR = 9999;
+
+    /** The last year a Date can have: 2025, or a later bank.date.lastYear. */
+    static final int CURRENT_YEAR = lastYear(System.getProperty(LAST_YEAR_PROPERTY));
     private static final int MIN_MONTH = 1;
     private static final int MAX_MONTH = 12;
     private static final int MIN_DAY = 1;
@@ -31,19 +45,28 @@ public class Date
     private static final int NOV = 11;
     private static final int DEC = 12;
 
-    // Century offsets
-    private static final int ADJUSTMENT_1800S = 2;
-    private static final int ADJUSTMENT_2000S = 6;
-    private static final int ADJUSTMENT_LEAP_YEAR = 6;
-
     private static final int LEAP_YEAR_CYCLE = 4;
     private static final int CENTURY_CYCLE = 100;
     private static final int FOUR_CENTURY_CYCLE = 400;
-    private static final int YEAR_WITHIN_CENTURY_DIVISOR = 100;
-    private static final int TWELVE_YEAR_CYCLE = 12;
 
-    // The month codes for jfmamjjasond is 144025036146
-    private static final int[] MONTH_CODES = {0, 1, 4, 4, 0, 2, 5, 0, 3, 6, 1, 4, 6};
+    // Epoch day 0 is 1970-01-01, a Thursday (index 5 in the 0=Sat mapping)
+    private static final int EPOCH_YEAR = 1970;
+    private static final int EPOCH_DAY_OF_WEEK = 5;
+    private static final int DAYS_IN_COMMON_YEAR = 365;
+
+    // Days in the year before the first of each month (common year), 1-indexed
+    private static final int[] DAYS_BEFORE_MONTH = {0, 0, 31, 59, 90, 120, 151, 181, 212, 243, 273, 304, 334};
+
+    // Flyweight cache laid out as a year x 12 x 31 grid (about 84k slots, ~330 KB).
+    // Slots for impossible days such as Feb 30 simply stay empty.
+    private static final int SLOTS_PER_MONTH = 31;
+    private static final int SLOTS_PER_YEAR = MAX_MONTH * SLOTS_PER_MONTH;
+    private static final Date[] CACHE = new Date[(CURRENT_YEAR - MIN_YEAR + 1) * SLOTS_PER_YEAR];
+
+    private static final int MIN_EPOCH_DAY = toEpochDay(MIN_YEAR, JAN, MIN_DAY);
+    private static final int MAX_EPOCH_DAY = toEpochDay(CURRENT_YEAR, DEC, 31);
+    private static final double DAYS_PER_YEAR = 365.2425;
+    private static final long MILLIS_PER_DAY = 86_400_000L;
 
     private static final int DAYS_IN_MONTH_31 = 31;
     private static final int DAYS_IN_MONTH_30 = 30;
@@ -54,6 +77,7 @@ public class Date
     private final int year;
     private final int month;
     private final int day;
+    private final int epochDay;
 
     /**
      * Constructs a Date object with year, month and day.
@@ -72,6 +96,88 @@ public class Date
         this.year = year;
         this.month = month;
         this.day = day;
+        this.epochDay = toEpochDay(year, month, day);
+    }
+
+    /**
+     * Returns the shared Date for a year, month and day.
+     * A day is validated and allocated the first time it is asked for;
+     * after that every caller gets the same immutable instance.
+     *
+     * @param year the year
+     * @param month the month
+     * @param day the day
+     * @return the canonical Date for that day
+     * @throws IllegalArgumentException if invalid
+     */
+    public static Date of(final int year,
+                          final int month,
+                          final int day)
+    {
+        if (year < MIN_YEAR || year > CURRENT_YEAR
+                || month < MIN_MONTH || month > MAX_MONTH
+                || day < MIN_DAY || day > SLOTS_PER_MONTH)
+        {
+            validateDate(year, month, day);
+        }
+
+        final int slot = (year - MIN_YEAR) * SLOTS_PER_YEAR + (month - MIN_MONTH) * SLOTS_PER_MONTH + (day - MIN_DAY);
+        Date date = CACHE[slot];
+        if (date == null)
+        {
+            // A racing thread may build a duplicate; either is safe to publish
+            // because all fields are final, and the last write wins the slot.
+            date = new Date(year, month, day);
+            CACHE[slot] = date;
+        }
+        return date;
+    }
+
+    /**
+     * Returns today's date in UTC. After the last supported year it returns
+     * 31 December of that year, the last day a Date can name; raise
+     * bank.date.lastYear to keep dating postings correctly.
+     *
+     * @return the canonical Date for today
+     */
+    public static Date today()
+    {
+        final long utcDay = Math.floorDiv(System.currentTimeMillis(), MILLIS_PER_DAY);
+        return ofEpochDay((int) Math.min(utcDay, MAX_EPOCH_DAY));
+    }
+
+    /**
+     * Returns the shared Date for a number of days since 1970-01-01.
+     *
+     * @param epochDay the epoch day
+     * @return the canonical Date for that day
+     * @throws IllegalArgumentException if the day is outside the supported years
+     */
+    public static Date ofEpochDay(final int epochDay)
+    {
+        if (epochDay < MIN_EPOCH_DAY || epochDay > MAX_EPOCH_DAY)
+        {
+            throw new IllegalArgumentException("Year must be between " + MIN_YEAR + " and " + CURRENT_YEAR);
+        }
+
+        // The estimate can be a year off around New Year; step it into place
+        int year = EPOCH_YEAR + (int) Math.floor(epochDay / DAYS_PER_YEAR);
+        while (toEpochDay(year, JAN, MIN_DAY) > epochDay)
+        {
+            year--;
+        }
+        while (year < CURRENT_YEAR && toEpochDay(year + 1, JAN, MIN_DAY) <= epochDay)
+        {
+            year++;
+        }
+
+        final int dayOfYear = epochDay - toEpochDay(year, JAN, MIN_DAY);
+        int month = DEC;
+        while (toEpochDay(year, month, MIN_DAY) - toEpochDay(year, JAN, MIN_DAY) > dayOfYear)
+        {
+            month--;
+        }
+        return of(year, month, epochDay - toEpochDay(year, month, MIN_DAY) + MIN_DAY);
     }
 
     /**
@@ -111,25 +217,87 @@ public class Date
      * @return day of the week index (0=Sat, 1=Sun, 2=Mon, 3=Tue, 4=Wed, 5=Thu, 6=Fri)
      */
     public int getDayOfTheWeek() {
-        int extraDay = 0;
-        if (year >= CENTURY_YEAR && year <= CURRENT_YEAR)
-        {
-            extraDay += ADJUSTMENT_2000S;
-        } else if (year >= MIN_YEAR && year <= MAX_YEAR_1800S)
-        {
-            extraDay += ADJUSTMENT_1800S;
-        }
-        final boolean janOrFeb = (month == JAN || month == FEB);
-        if (janOrFeb && isLeapYear(year))
-        {
-            extraDay += ADJUSTMENT_LEAP_YEAR;
+        return Math.floorMod(epochDay + EPOCH_DAY_OF_WEEK, DAYS_IN_WEEK);
+    }
+
+    /**
+     * Returns the number of days since 1970-01-01 (negative before it).
+     * Two dates compare, and differ in days, exactly as their epoch days do.
+     * @return the epoch day
+     */
+    public int getEpochDay() {
+        return epochDay;
+    }
+
+    /**
+     * Returns the date a number of days after this one.
+     * @param days days to add; negative to go back
+     * @return the shared Date for that day
+     * @throws IllegalArgumentException if the result is outside the supported years
+     */
+    public Date plusDays(final int days) {
+        final long target = (long) epochDay + days;
+        if (target < MIN_EPOCH_DAY || target > MAX_EPOCH_DAY) {
+            throw new IllegalArgumentException("Year must be between " + MIN_YEAR + " and " + CURRENT_YEAR);
         }
-        final int yearWithinCentury = year % YEAR_WITHIN_CENTURY_DIVISOR;
-        final int dozenYear = yearWithinCentury / TWELVE_YEAR_CYCLE;
-        final int remainder = yearWithinCentury - dozenYear * TWELVE_YEAR_CYCLE;
-        final int foursInRemainder = remainder / LEAP_YEAR_CYCLE;
-        final int sum = extraDay + day + dozenYear + remainder + foursInRemainder + MONTH_CODES[month];
-        return sum % DAYS_IN_WEEK;
+        return ofEpochDay((int) target);
+    }
+
+    /**
+     * Returns the number of days from one date to another.
+     * @param from the first date (non-null)
+     * @param to the second date (non-null)
+     * @return days from from to to; negative if to is earlier
+     */
+    public static int daysBetween(final Date from, final Date to) {
+        return to.epochDay - from.epochDay;
+    }
+
+    /**
+     * Tells whether this date is earlier than another.
+     * @param other the other date (non-null)
+     * @return true if this date comes first
+     */
+    public boolean isBefore(final Date other) {
+        return epochDay < other.epochDay;
+    }
+
+    /**
+     * Tells whether this date is later than another.
+     * @param other the other date (non-null)
+     * @return true if this date comes last
+     */
+    public boolean isAfter(final Date other) {
+        return epochDay > other.epochDay;
+    }
+
+    /**
+     * Compares two dates chronologically.
+     * @param other the other date (non-null)
+     * @return negative, zero or positive as this date is earlier, the same day, or later
+     */
+    @Override
+    public int compareTo(final Date other) {
+        return Integer.compare(epochDay, other.epochDay);
+    }
+
+    /**
+     * Tells whether another object is a Date for the same day.
+     * @param other the object to compare with
+     * @return true if it is the same day
+     */
+    @Override
+    public boolean equals(final Object other) {
+        return other instanceof Date && ((Date) other).epochDay == epochDay;
+    }
+
+    /**
+     * Returns a hash code; equal dates have equal hash codes.
+     * @return the epoch day
+     */
+    @Override
+    public int hashCode() {
+        return epochDay;
     }
 
 
@@ -143,7 +311,7 @@ public class Date
      * @param month the month
      * @param day the day
      */
-    private void validateDate(final int year,
+    private static void validateDate(final int year,
                               final int month,
                               final int day)
     {
@@ -170,7 +338,7 @@ public class Date
      * @param month the month
      * @return number of days in a month
      */
-    private int daysInMonth(final int year, final int month) {
+    private static int daysInMonth(final int year, final int month) {
         switch (month) {
             case JAN:
             case MAR:
@@ -192,13 +360,66 @@ public class Date
         }
     }
 
+    // The configured last year, or the default if it is unset, malformed or out of range
+    private static int lastYear(final String configured)
+    {
+        if (configured != null)
+        {
+            try
+            {
+                final int year = Integer.parseInt(configured.trim());
+                if (year >= DEFAULT_LAST_YEAR && year <= MAX_LAST_YEAR)
+                {
+                    return year;
+                }
+            } catch (final NumberFormatException e)
+            {
+                // Fall back to the default below
+            }
+        }
+        return DEFAULT_LAST_YEAR;
+    }
+
+    /**
+     * Converts a valid year, month and day to days since 1970-01-01.
+     *
+     * @param year the year
+     * @param month the month
+     * @param day the day
+     * @return the epoch day
+     */
+    private static int toEpochDay(final int year,
+                                  final int month,
+                                  final int day)
+    {
+        int dayOfYear = DAYS_BEFORE_MONTH[month] + day - 1;
+        if (month > FEB && isLeapYear(year))
+        {
+            dayOfYear++;
+        }
+        final int leapDaysBetween = leapYearsBefore(year) - leapYearsBefore(EPOCH_YEAR);
+        return (year - EPOCH_YEAR) * DAYS_IN_COMMON_YEAR + leapDaysBetween + dayOfYear;
+    }
+
+    /**
+     * Counts the leap years from year 1 up to, but not including, the given year.
+     *
+     * @param year the year
+     * @return number of leap years before it
+     */
+    private static int leapYearsBefore(final int year)
+    {
+        final int previous = year - 1;
+        return previous / LEAP_YEAR_CYCLE - previous / CENTURY_CYCLE + previous / FOUR_CENTURY_CYCLE;
+    }
+
     /**
      * Checks if a year is a leap year.
      *
      * @param year the year
      * @return true if leap year, false otherwise
      */
-    private boolean isLeapYear(final int year) {
+    private static boolean isLeapYear(final int year) {
         return (year % LEAP_YEAR_CYCLE == 0 && year % CENTURY_CYCLE != 0) || (year % FOUR_CENTURY_CYCLE == 0);
     }
 }
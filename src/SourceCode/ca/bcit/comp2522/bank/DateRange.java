@@ -0,0 +1,159 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * An inclusive range of days, from a first {@link Date} to a last one.
+ * The ends are kept as epoch days, so containment and overlap checks are
+ * a couple of int comparisons.
+ *
+ * @author Nazanin Mohsenimehr
+ * @version 1.0
+ */
+public final class DateRange
+{
+    private static final int HASH_MULTIPLIER = 31;
+
+    private final Date first;
+    private final Date last;
+    private final int firstDay;
+    private final int lastDay;
+
+    /**
+     * Constructs a range.
+     *
+     * @param first the first day (non-null)
+     * @param last the last day (non-null, not before first)
+     * @throws IllegalArgumentException if a date is null or last is before first
+     */
+    public DateRange(final Date first,
+                     final Date last)
+    {
+        if (first == null || last == null)
+        {
+            throw new IllegalArgumentException("Range dates must not be null.");
+        }
+        if (last.isBefore(first))
+        {
+            throw new IllegalArgumentException("Range cannot end before it starts.");
+        }
+        this.first = first;
+        this.last = last;
+        this.firstDay = first.getEpochDay();
+        this.lastDay = last.getEpochDay();
+    }
+
+    /**
+     * Returns the first day.
+     *
+     * @return the first day
+     */
+    public Date getFirst()
+    {
+        return first;
+    }
+
+    /**
+     * Returns the last day.
+     *
+     * @return the last day
+     */
+    public Date getLast()
+    {
+        return last;
+    }
+
+    /**
+     * Returns the number of days in the range, counting both ends.
+     *
+     * @return the length in days, at least 1
+     */
+    public int lengthInDays()
+    {
+        return lastDay - firstDay + 1;
+    }
+
+    /**
+     * Tells whether a day falls in the range.
+     *
+     * @param date the day (non-null)
+     * @return true if first &lt;= date &lt;= last
+     */
+    public boolean contains(final Date date)
+    {
+        final int day = date.getEpochDay();
+        return day >= firstDay && day <= lastDay;
+    }
+
+    /**
+     * Tells whether another range lies entirely inside this one.
+     *
+     * @param other the other range (non-null)
+     * @return true if every day of other is in this range
+     */
+    public boolean contains(final DateRange other)
+    {
+        return other.firstDay >= firstDay && other.lastDay <= lastDay;
+    }
+
+    /**
+     * Tells whether two ranges share at least one day.
+     *
+     * @param other the other range (non-null)
+     * @return true if they overlap
+     */
+    public boolean overlaps(final DateRange other)
+    {
+        return other.firstDay <= lastDay && other.lastDay >= firstDay;
+    }
+
+    /**
+     * Returns the days two ranges share.
+     *
+     * @param other the other range (non-null)
+     * @return the shared range, or null if they do not overlap
+     */
+    public DateRange intersection(final DateRange other)
+    {
+        if (!overlaps(other))
+        {
+            return null;
+        }
+        return new DateRange(first.isAfter(other.first) ? first : other.first,
+                last.isBefore(other.last) ? last : other.last);
+    }
+
+    /**
+     * Tells whether another object is a range with the same ends.
+     *
+     * @param other the object to compare with
+     * @return true if it is the same range
+     */
+    @Override
+    public boolean equals(final Object other)
+    {
+        return other instanceof DateRange
+                && ((DateRange) other).firstDay == firstDay
+                && ((DateRange) other).lastDay == lastDay;
+    }
+
+    /**
+     * Returns a hash code; equal ranges have equal hash codes.
+     *
+     * @return the hash code
+     */
+    @Override
+    public int hashCode()
+    {
+        return HASH_MULTIPLIER * firstDay + lastDay;
+    }
+
+    /**
+     * Returns the range as YYYY-MM-DD..YYYY-MM-DD.
+     *
+     * @return the range as text
+     */
+    @Override
+    public String toString()
+    {
+        return first.getYYYYMMDD() + ".." + last.getYYYYMMDD();
+    }
+}
@@ -0,0 +1,538 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Terms that must not appear anywhere in a {@link Name}, ignoring case.
+ *
+ * The terms are compiled into an Aho-Corasick automaton with every
+ * failure link already followed, so a check reads each char of the name
+ * once and makes one table lookup per char, however many terms there are.
+ * Case is folded one char at a time; no lower-case copy of the name is
+ * made. Chars that appear in no term share one column of the table.
+ *
+ * A DenyList never changes. The one Name checks against is swapped by
+ * {@link #install}, {@link #reload} or a {@link #watch} on a file, with a
+ * single volatile write: threads validating names never wait, and each
+ * check sees either the old list or the new one.
+ *
+ * Files hold one term per line. Blank lines and lines starting with '#'
+ * are skipped, and surrounding whitespace is trimmed. At startup the file
+ * named by the system property bank.denyList is loaded if set; otherwise
+ * the list is just "admin".
+ *
+ * @author Nazanin Mohsenimehr
+ * @version 1.0
+ */
+public final class DenyList
+{
+    /** The list used when no file is configured: "admin". */
+    public static final DenyList DEFAULT = compile(List.of("admin"));
+
+    private static final String FILE_PROPERTY = "bank.denyList";
+    private static final String COMMENT = "#";
+
+    private static final int ROOT = 0;
+    private static final int OTHER = 0; // column of chars that appear in no term
+    private static final int NO_MATCH = -1;
+    private static final int ASCII = 128;
+
+    // A changed file is reloaded once it has been quiet this long, and
+    // re-read up to STABLE_ATTEMPTS times if it changes while being read
+    private static final long QUIET_MILLIS = 250L;
+    private static final int STABLE_ATTEMPTS = 5;
+
+    private static volatile DenyList active = initial();
+
+    private final String[] terms;
+    private final int[] asciiColumns;
+    private final char[] otherChars; // sorted folded non-ASCII chars of the terms
+    private final int[] otherColumns;
+    private final int width;
+    private final int[] next; // next[state * width + column]
+    private final int[] matches; // per state: a term ending here, or NO_MATCH
+
+    private DenyList(final String[] terms,
+                     final int[] asciiColumns,
+                     final char[] otherChars,
+                     final int[] otherColumns,
+                     final int width,
+                     final int[] next,
+                     final int[] matches)
+    {
+        this.terms = terms;
+        this.asciiColumns = asciiColumns;
+        this.otherChars = otherChars;
+        this.otherColumns = otherColumns;
+        this.width = width;
+        this.next = next;
+        this.matches = matches;
+    }
+
+    /**
+     * Compiles a list of terms.
+     *
+     * @param terms the blocked terms (non-null, none null or blank)
+     * @return the compiled list
+     * @throws IllegalArgumentException if terms is null or holds a null or blank term
+     */
+    public static DenyList compile(final Collection<String> terms)
+    {
+        if (terms == null)
+        {
+            throw new IllegalArgumentException("Terms must not be null.");
+        }
+        final Set<String> folded = new LinkedHashSet<>();
+        for (final String term : terms)
+        {
+            if (term == null || term.isBlank())
+            {
+                throw new IllegalArgumentException("Deny-list terms must not be null or blank.");
+            }
+            folded.add(fold(term));
+        }
+        final String[] termArray = folded.toArray(new String[0]);
+
+        // Columns: one per distinct char, column 0 for all others
+        final int[] asciiColumns = new int[ASCII];
+        final Set<Character> nonAscii = new TreeSet<>();
+        int width = 1;
+        for (final String term : termArray)
+        {
+            for (int i = 0; i < term.length(); i++)
+            {
+                final char c = term.charAt(i);
+                if (c < ASCII)
+                {
+                    if (asciiColumns[c] == OTHER)
+                    {
+                        asciiColumns[c] = width++;
+                    }
+                } else
+                {
+                    nonAscii.add(c);
+                }
+            }
+        }
+        final char[] otherChars = new char[nonAscii.size()];
+        final int[] otherColumns = new int[nonAscii.size()];
+        int o = 0;
+        for (final char c : nonAscii)
+        {
+            otherChars[o] = c;
+            otherColumns[o++] = width++;
+        }
+        for (char c = 'A'; c <= 'Z'; c++)
+        {
+            asciiColumns[c] = asciiColumns[Character.toLowerCase(c)];
+        }
+
+        // Trie; state 0 is the root and never a child, so 0 also means "no child"
+        int states = 1;
+        for (final String term : termArray)
+        {
+            states += term.length();
+        }
+        int[] next = new int[states * width];
+        int[] matches = new int[states];
+        Arrays.fill(matches, NO_MATCH);
+        int used = 1;
+        for (int t = 0; t < termArray.length; t++)
+        {
+            final String term = termArray[t];
+            int state = ROOT;
+            for (int i = 0; i < term.length(); i++)
+            {
+                final int cell = state * width + column(term.charAt(i), asciiColumns, otherChars, otherColumns);
+                if (next[cell] == ROOT)
+                {
+                    next[cell] = used++;
+                }
+                state = next[cell];
+            }
+            if (matches[state] == NO_MATCH)
+            {
+                matches[state] = t;
+            }
+        }
+        next = Arrays.copyOf(next, used * width);
+        matches = Arrays.copyOf(matches, used);
+
+        // Breadth-first: give each state its failure state's moves where it
+        // has no child, so matching never follows a failure link
+        final int[] failure = new int[used];
+        final int[] queue = new int[used];
+        int head = 0;
+        int tail = 0;
+        for (int c = 1; c < width; c++)
+        {
+            final int child = next[c];
+            if (child != ROOT)
+            {
+                queue[tail++] = child;
+            }
+        }
+        while (head < tail)
+        {
+            final int state = queue[head++];
+            if (matches[state] == NO_MATCH)
+            {
+                matches[state] = matches[failure[state]];
+            }
+            for (int c = 1; c < width; c++)
+            {
+                final int cell = state * width + c;
+                final int child = next[cell];
+                final int fallback = next[failure[state] * width + c];
+                if (child == ROOT)
+                {
+                    next[cell] = fallback;
+                } else
+                {
+                    failure[child] = fallback;
+                    queue[tail++] = child;
+                }
+            }
+        }
+        return new DenyList(termArray, asciiColumns, otherChars, otherColumns, width, next, matches);
+    }
+
+    /**
+     * Reads and compiles a deny-list file.
+     *
+     * @param file the file (UTF-8, one term per line)
+     * @return the compiled list
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file holds no terms
+     */
+    public static DenyList load(final Path file) throws IOException
+    {
+        final List<String> terms = new ArrayList<>();
+        for (final String line : Files.readAllLines(file, StandardCharsets.UTF_8))
+        {
+            final String term = line.strip();
+            if (!term.isEmpty() && !term.startsWith(COMMENT))
+            {
+                terms.add(term);
+            }
+        }
+        if (terms.isEmpty())
+        {
+            throw new IllegalArgumentException("Deny-list file has no terms: " + file);
+        }
+        return compile(terms);
+    }
+
+    /**
+     * Returns the list names are checked against.
+     *
+     * @return the active list
+     */
+    public static DenyList active()
+    {
+        return active;
+    }
+
+    /**
+     * Makes a list the one names are checked against.
+     *
+     * @param list the list (non-null)
+     * @throws IllegalArgumentException if list is null
+     */
+    public static void install(final DenyList list)
+    {
+        if (list == null)
+        {
+            throw new IllegalArgumentException("Deny list must not be null.");
+        }
+        active = list;
+    }
+
+    /**
+     * Loads a file and makes it the active list. If loading fails, the
+     * active list is left as it was.
+     *
+     * @param file the file
+     * @return the new active list
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file holds no terms
+     */
+    public static DenyList reload(final Path file) throws IOException
+    {
+        final DenyList list = load(file);
+        install(list);
+        return list;
+    }
+
+    /**
+     * Loads a file now and again every time it changes, on a daemon thread.
+     * A change is loaded only once the file has stopped changing for a
+     * moment and reads the same before and after, so a half-written file
+     * is not installed. Writers should still replace the file with an
+     * atomic rename where they can. A change that cannot be loaded leaves
+     * the previous list active and is reported by
+     * {@link Watcher#lastError()} and {@link Watcher#failureCount()}.
+     *
+     * @param file the file
+     * @return the watcher; close it to stop watching
+     * @throws IOException if the file cannot be read or watched
+     */
+    public static Watcher watch(final Path file) throws IOException
+    {
+        final Path absolute = file.toAbsolutePath();
+        reload(absolute);
+        final WatchService service = absolute.getFileSystem().newWatchService();
+        absolute.getParent().register(service,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        final Watcher watcher = new Watcher(absolute, service);
+        final Thread thread = new Thread(watcher::run, "deny-list-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        return watcher;
+    }
+
+    /**
+     * Returns the first term found in some text, ignoring case.
+     *
+     * @param text the text to check (non-null)
+     * @return the term as it was compiled (case-folded), or null if none occurs
+     */
+    public String firstMatch(final CharSequence text)
+    {
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++)
+        {
+            final char c = text.charAt(i);
+            final int column = c < ASCII ? asciiColumns[c] : column(fold(c), asciiColumns, otherChars, otherColumns);
+            state = next[state * width + column];
+            final int match = matches[state];
+            if (match != NO_MATCH)
+            {
+                return terms[match];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Tells whether some text contains any term, ignoring case.
+     *
+     * @param text the text to check (non-null)
+     * @return true if a term occurs
+     */
+    public boolean matches(final CharSequence text)
+    {
+        return firstMatch(text) != null;
+    }
+
+    /**
+     * Returns how many distinct terms the list holds.
+     *
+     * @return the number of terms
+     */
+    public int size()
+    {
+        return terms.length;
+    }
+
+    /**
+     * Watches a deny-list file; see {@link DenyList#watch}.
+     */
+    public static final class Watcher implements AutoCloseable
+    {
+        private final Path file;
+        private final WatchService service;
+
+        // Written only by the watcher thread
+        private volatile long reloadCount;
+        private volatile long failureCount;
+        private volatile Exception lastError;
+
+        private Watcher(final Path file,
+                        final WatchService service)
+        {
+            this.file = file;
+            this.service = service;
+        }
+
+        /**
+         * Stops watching. The active list stays as it is.
+         *
+         * @throws IOException if the watch service cannot be closed
+         */
+        @Override
+        public void close() throws IOException
+        {
+            service.close();
+        }
+
+        /**
+         * Returns how many times a change to the file has been installed.
+         *
+         * @return the number of successful reloads since watching began
+         */
+        public long reloadCount()
+        {
+            return reloadCount;
+        }
+
+        /**
+         * Returns how many changes to the file could not be installed.
+         *
+         * @return the number of failed reloads since watching began
+         */
+        public long failureCount()
+        {
+            return failureCount;
+        }
+
+        /**
+         * Returns why the most recent reload failed.
+         *
+         * @return the error, or null if the most recent reload succeeded or none has run
+         */
+        public Exception lastError()
+        {
+            return lastError;
+        }
+
+        private void run()
+        {
+            try
+            {
+                while (true)
+                {
+                    if (!concernsFile(service.take()))
+                    {
+                        continue;
+                    }
+                    // Wait until a quiet period passes with no further events
+                    WatchKey more;
+                    while ((more = service.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null)
+                    {
+                        concernsFile(more);
+                    }
+                    reloadWhenStable();
+                }
+            } catch (final InterruptedException | ClosedWatchServiceException e)
+            {
+                // Closed or interrupted: stop watching
+            }
+        }
+
+        private boolean concernsFile(final WatchKey key)
+        {
+            boolean changed = false;
+            for (final WatchEvent<?> event : key.pollEvents())
+            {
+                changed |= file.getFileName().equals(event.context());
+            }
+            key.reset();
+            return changed;
+        }
+
+        // Installs the file only if its size and modification time are the
+        // same before and after reading it
+        private void reloadWhenStable() throws InterruptedException
+        {
+            try
+            {
+                for (int attempt = 1; attempt <= STABLE_ATTEMPTS; attempt++)
+                {
+                    final BasicFileAttributes before = Files.readAttributes(file, BasicFileAttributes.class);
+                    final DenyList list = load(file);
+                    final BasicFileAttributes after = Files.readAttributes(file, BasicFileAttributes.class);
+                    if (sameContents(before, after))
+                    {
+                        install(list);
+                        lastError = null;
+                        reloadCount++;
+                        return;
+                    }
+                    Thread.sleep(QUIET_MILLIS);
+                }
+                fail(new IOException("Deny-list file kept changing while being read: " + file));
+            } catch (final IOException | IllegalArgumentException e)
+            {
+                fail(e);
+            }
+        }
+
+        private void fail(final Exception error)
+        {
+            lastError = error;
+            failureCount++;
+        }
+
+        private static boolean sameContents(final BasicFileAttributes before,
+                                            final BasicFileAttributes after)
+        {
+            final FileTime modified = before.lastModifiedTime();
+            return modified.equals(after.lastModifiedTime()) && before.size() == after.size();
+        }
+    }
+
+    private static DenyList initial()
+    {
+        final String file = System.getProperty(FILE_PROPERTY);
+        if (file == null)
+        {
+            return DEFAULT;
+        }
+        try
+        {
+            return load(Path.of(file));
+        } catch (final IOException e)
+        {
+            throw new UncheckedIOException("Cannot load deny list " + file, e);
+        }
+    }
+
+    private static String fold(final String term)
+    {
+        final char[] folded = new char[term.length()];
+        for (int i = 0; i < folded.length; i++)
+        {
+            folded[i] = fold(term.charAt(i));
+        }
+        return new String(folded);
+    }
+
+    private static char fold(final char c)
+    {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    // Column of a folded char
+    private static int column(final char c,
+                              final int[] asciiColumns,
+                              final char[] otherChars,
+                              final int[] otherColumns)
+    {
+        if (c < ASCII)
+        {
+            return asciiColumns[c];
+        }
+        final int index = Arrays.binarySearch(otherChars, c);
+        return index < 0 ? OTHER : otherColumns[index];
+    }
+}
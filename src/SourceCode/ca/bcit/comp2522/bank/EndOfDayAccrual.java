@@ -0,0 +1,410 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * End-of-day batch that applies one day of interest and fees to every open
+ * account. The accounts are split into index ranges and processed with
+ * fork/join; closed accounts are skipped with a single null check.
+ *
+ * Each account's new balance depends only on its own balance, and the
+ * totals are integer sums, so the outcome is the same for any parallelism.
+ *
+ * A batch built without a parallelism runs on the common fork/join pool. A
+ * batch given its own parallelism owns a pool of that size, which
+ * {@link #close()} shuts down.
+ *
+ * @author Nazanin Mohsenimehr
+ * @version 1.0
+ */
+public final class EndOfDayAccrual implements AutoCloseable
+{
+    private static final int ACCOUNTS_PER_TASK = 1024;
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final Schedule schedule;
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+
+    /**
+     * Interest and fee rules for one day.
+     * Interest: the balance earns the annual rate of the highest tier whose
+     * floor it reaches, divided over 365 days and rounded half-even to the cent.
+     * Fee: a flat daily fee, charged when the balance after interest is below
+     * the waiver balance, and never more than that balance.
+     */
+    public static final class Schedule
+    {
+        private static final long BASIS_POINTS = 10_000L;
+        private static final long DAYS_PER_YEAR = 365L;
+        private static final long DAILY_DIVISOR = BASIS_POINTS * DAYS_PER_YEAR;
+
+        private final long[] tierFloorsCents;
+        private final int[] annualBasisPoints;
+        private final long dailyFeeCents;
+        private final long feeWaiverCents;
+
+        /**
+         * Constructs a schedule.
+         *
+         * @param tierFloorsCents lowest balance of each tier, ascending, starting at 0
+         * @param annualBasisPoints annual interest rate of each tier (100 = 1%)
+         * @param dailyFeeCents fee charged per day (>= 0)
+         * @param feeWaiverCents balance at or above which no fee is charged
+         * @throws IllegalArgumentException if the tiers or amounts are invalid
+         */
+        public Schedule(final long[] tierFloorsCents,
+                        final int[] annualBasisPoints,
+                        final long dailyFeeCents,
+                        final long feeWaiverCents)
+        {
+            validateTiers(tierFloorsCents, annualBasisPoints);
+            if (dailyFeeCents < 0L || feeWaiverCents < 0L)
+            {
+                throw new IllegalArgumentException("Fee amounts must not be negative.");
+            }
+            this.tierFloorsCents = tierFloorsCents.clone();
+            this.annualBasisPoints = annualBasisPoints.clone();
+            this.dailyFeeCents = dailyFeeCents;
+            this.feeWaiverCents = feeWaiverCents;
+        }
+
+        /**
+         * Returns one day of interest on a balance.
+         *
+         * @param balanceCents the balance in cents (>= 0)
+         * @return the interest in cents
+         * @throws IllegalArgumentException if the balance is negative
+         * @throws ArithmeticException if the interest overflows
+         */
+        public long interestCents(final long balanceCents)
+        {
+            requireNonNegative(balanceCents);
+            final long rate = annualBasisPoints[tierOf(balanceCents)];
+            final long whole = Math.multiplyExact(balanceCents / DAILY_DIVISOR, rate);
+            final long scaled = balanceCents % DAILY_DIVISOR * rate;
+
+            long part = scaled / DAILY_DIVISOR;
+            final long twiceRemainder = 2L * (scaled % DAILY_DIVISOR);
+            if (twiceRemainder > DAILY_DIVISOR || (twiceRemainder == DAILY_DIVISOR && (part & 1L) != 0L))
+            {
+                part++;
+            }
+            return Math.addExact(whole, part);
+        }
+
+        /**
+         * Returns the fee charged on a balance that already includes interest.
+         *
+         * @param balanceCents the balance in cents (>= 0)
+         * @return the fee in cents
+         * @throws IllegalArgumentException if the balance is negative
+         */
+        public long feeCents(final long balanceCents)
+        {
+            requireNonNegative(balanceCents);
+            if (balanceCents >= feeWaiverCents)
+            {
+                return 0L;
+            }
+            return Math.min(dailyFeeCents, balanceCents);
+        }
+
+        /**
+         * Returns the balance after one day of interest and fees.
+         *
+         * @param balanceCents the balance in cents (>= 0)
+         * @return the new balance in cents
+         * @throws ArithmeticException if the balance overflows
+         */
+        long apply(final long balanceCents)
+        {
+            final long withInterest = Money.add(balanceCents, interestCents(balanceCents));
+            return withInterest - feeCents(withInterest);
+        }
+
+        private static void requireNonNegative(final long balanceCents)
+        {
+            if (balanceCents < 0L)
+            {
+                throw new IllegalArgumentException("Balance must not be negative: " + balanceCents);
+            }
+        }
+
+        // The first tier starts at 0, so any balance >= 0 stops at a tier
+        private int tierOf(final long balanceCents)
+        {
+            int tier = tierFloorsCents.length - 1;
+            while (balanceCents < tierFloorsCents[tier])
+            {
+                tier--;
+            }
+            return tier;
+        }
+
+        private static void validateTiers(final long[] floors,
+                                          final int[] rates)
+        {
+            if (floors == null || rates == null || floors.length == 0 || floors.length != rates.length)
+            {
+                throw new IllegalArgumentException("Each tier needs one floor and one rate.");
+            }
+            if (floors[0] != 0L)
+            {
+                throw new IllegalArgumentException("The first tier must start at 0.");
+            }
+            for (int i = 0; i < floors.length; i++)
+            {
+                if (i > 0 && floors[i] <= floors[i - 1])
+                {
+                    throw new IllegalArgumentException("Tier floors must be ascending.");
+                }
+                if (rates[i] < 0)
+                {
+                    throw new IllegalArgumentException("Interest rates must not be negative.");
+                }
+            }
+        }
+    }
+
+    /**
+     * What one end-of-day run did.
+     */
+    public static final class Result
+    {
+        private final int accrued;
+        private final int skipped;
+        private final long interestCents;
+        private final long feeCents;
+        private final long elapsedNanos;
+
+        private Result(final long[] totals,
+                       final long elapsedNanos)
+        {
+            this.accrued = (int) totals[Totals.ACCRUED];
+            this.skipped = (int) totals[Totals.SKIPPED];
+            this.interestCents = totals[Totals.INTEREST];
+            this.feeCents = totals[Totals.FEES];
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Returns the number of open accounts processed.
+         *
+         * @return accrued account count
+         */
+        public int getAccrued()
+        {
+            return accrued;
+        }
+
+        /**
+         * Returns the number of closed accounts skipped.
+         *
+         * @return skipped account count
+         */
+        public int getSkipped()
+        {
+            return skipped;
+        }
+
+        /**
+         * Returns the total interest credited.
+         *
+         * @return interest in cents
+         */
+        public long getInterestCents()
+        {
+            return interestCents;
+        }
+
+        /**
+         * Returns the total fees charged.
+         *
+         * @return fees in cents
+         */
+        public long getFeeCents()
+        {
+            return feeCents;
+        }
+
+        /**
+         * Returns the wall-clock time of the run.
+         *
+         * @return elapsed nanoseconds
+         */
+        public long getElapsedNanos()
+        {
+            return elapsedNanos;
+        }
+
+        /**
+         * Returns throughput over all accounts, processed or skipped.
+         *
+         * @return accounts per second
+         */
+        public double accountsPerSecond()
+        {
+            return elapsedNanos == 0L ? 0.0 : (accrued + skipped) * NANOS_PER_SECOND / elapsedNanos;
+        }
+    }
+
+    // Indexes into the partial totals each task returns
+    private static final class Totals
+    {
+        private static final int ACCRUED = 0;
+        private static final int SKIPPED = 1;
+        private static final int INTEREST = 2;
+        private static final int FEES = 3;
+        private static final int SIZE = 4;
+    }
+
+    /**
+     * Constructs an accrual batch that runs on the common fork/join pool.
+     *
+     * @param schedule the interest and fee rules (non-null)
+     */
+    public EndOfDayAccrual(final Schedule schedule)
+    {
+        this(schedule, ForkJoinPool.commonPool(), false);
+    }
+
+    /**
+     * Constructs an accrual batch with its own pool of a given parallelism.
+     * Close the batch when done with it to stop the pool's threads.
+     *
+     * @param schedule the interest and fee rules (non-null)
+     * @param parallelism how many worker threads to use (>= 1)
+     */
+    public EndOfDayAccrual(final Schedule schedule,
+                           final int parallelism)
+    {
+        this(schedule, newPool(parallelism), true);
+    }
+
+    private EndOfDayAccrual(final Schedule schedule,
+                            final ForkJoinPool pool,
+                            final boolean ownsPool)
+    {
+        if (schedule == null)
+        {
+            if (ownsPool)
+            {
+                pool.shutdown();
+            }
+            throw new IllegalArgumentException("Schedule must not be null.");
+        }
+        this.schedule = schedule;
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+    }
+
+    private static ForkJoinPool newPool(final int parallelism)
+    {
+        if (parallelism < 1)
+        {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        return new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Applies one day of interest and fees to every open account.
+     *
+     * @param accounts the accounts (non-null, no null elements)
+     * @return what the run did
+     */
+    public Result run(final List<BankAccount> accounts)
+    {
+        return run(accounts.toArray(new BankAccount[0]));
+    }
+
+    /**
+     * Applies one day of interest and fees to every open account.
+     *
+     * @param accounts the accounts (non-null, no null elements)
+     * @return what the run did
+     */
+    public Result run(final BankAccount[] accounts)
+    {
+        if (accounts == null)
+        {
+            throw new IllegalArgumentException("Accounts must not be null.");
+        }
+        final long start = System.nanoTime();
+        final long[] totals = pool.invoke(new RangeTask(accounts, 0, accounts.length));
+        return new Result(totals, System.nanoTime() - start);
+    }
+
+    /**
+     * Stops the batch's own worker threads; the common pool is left running.
+     * Runs already under way finish first.
+     */
+    @Override
+    public void close()
+    {
+        if (ownsPool)
+        {
+            pool.shutdown();
+        }
+    }
+
+    private final class RangeTask extends RecursiveTask<long[]>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final transient BankAccount[] accounts;
+        private final int from;
+        private final int to;
+
+        private RangeTask(final BankAccount[] accounts,
+                          final int from,
+                          final int to)
+        {
+            this.accounts = accounts;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute()
+        {
+            if (to - from <= ACCOUNTS_PER_TASK)
+            {
+                return accrue();
+            }
+            final int middle = (from + to) >>> 1;
+            final RangeTask left = new RangeTask(accounts, from, middle);
+            left.fork();
+            final long[] totals = new RangeTask(accounts, middle, to).compute();
+            final long[] leftTotals = left.join();
+            for (int i = 0; i < Totals.SIZE; i++)
+            {
+                totals[i] += leftTotals[i];
+            }
+            return totals;
+        }
+
+        private long[] accrue()
+        {
+            final long[] totals = new long[Totals.SIZE];
+            for (int i = from; i < to; i++)
+            {
+                final BankAccount account = accounts[i];
+                if (account.getAccountClosed() != null)
+                {
+                    totals[Totals.SKIPPED]++;
+                    continue;
+                }
+                final long before = account.applyAccrual(schedule);
+                final long interest = schedule.interestCents(before);
+                totals[Totals.ACCRUED]++;
+                totals[Totals.INTEREST] += interest;
+                totals[Totals.FEES] += schedule.feeCents(before + interest);
+            }
+            return totals;
+        }
+    }
+}
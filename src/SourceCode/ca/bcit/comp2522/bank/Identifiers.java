@@ -0,0 +1,172 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * Validates and normalizes client IDs and account numbers.
+ * Checks are plain character scans: no regular expressions, no string
+ * building, and nothing allocated unless an ID really needs trimming
+ * (or, of course, validation fails and an exception is thrown).
+ *
+ * @author Nazanin Mohsenimehr
+ * @version 1.0
+ */
+public final class Identifiers
+{
+    private static final int MIN_CLIENT_ID_LENGTH = 6;
+    private static final int MAX_CLIENT_ID_LENGTH = 7;
+    private static final int MIN_ACCOUNT_LEN = 6;
+    private static final int MAX_ACCOUNT_LEN = 7;
+
+    private static final int DECIMAL_RADIX = 10;
+    private static final long DIGIT_COUNT_TAG = 10_000_000L;
+
+    // Same definition of whitespace as String.trim()
+    private static final char LAST_WHITESPACE = ' ';
+
+    private Identifiers()
+    {
+    }
+
+    /**
+     * Validates a client ID and returns it without surrounding whitespace.
+     * Returns the same String instance when there is nothing to trim.
+     *
+     * @param clientID a 6- or 7-digit client ID, optionally padded with whitespace
+     * @return the normalized client ID
+     * @throws IllegalArgumentException if the ID is not 6-7 digits
+     */
+    public static String normalizeClientID(final String clientID)
+    {
+        if (clientID == null)
+        {
+            throw invalidClientID();
+        }
+        final int start = trimStart(clientID);
+        final int end = trimEnd(clientID, start);
+        final int length = end - start;
+        if (length < MIN_CLIENT_ID_LENGTH || length > MAX_CLIENT_ID_LENGTH)
+        {
+            throw invalidClientID();
+        }
+        for (int i = start; i < end; i++)
+        {
+            if (!isDigit(clientID.charAt(i)))
+            {
+                throw invalidClientID();
+            }
+        }
+        return length == clientID.length() ? clientID : clientID.substring(start, end);
+    }
+
+    /**
+     * Validates an account number: 6 or 7 ASCII letters or digits.
+     *
+     * @param accountNumber the account number
+     * @throws IllegalArgumentException if the account number is invalid
+     */
+    public static void validateAccountNumber(final String accountNumber)
+    {
+        if (accountNumber == null)
+        {
+            throw new IllegalArgumentException("accountNumber must not be null.");
+        }
+        final int len = accountNumber.length();
+        if (len != MIN_ACCOUNT_LEN && len != MAX_ACCOUNT_LEN)
+        {
+            throw new IllegalArgumentException("Account number length must be 6 or 7.");
+        }
+        for (int i = 0; i < len; i++)
+        {
+            final char c = accountNumber.charAt(i);
+            if (!isDigit(c) && !(c >= 'A' && c <= 'Z') && !(c >= 'a' && c <= 'z'))
+            {
+                throw new IllegalArgumentException("Account number may only contain letters and digits.");
+            }
+        }
+    }
+
+    /**
+     * Turns a client ID into a numeric key: its digits plus its digit count
+     * times 10^7, so "012345" and "0012345" get different keys.
+     * Surrounding whitespace is ignored.
+     *
+     * @param clientID the client ID
+     * @return the key, or -1 if the ID is not 1-7 digits
+     */
+    static long clientKey(final String clientID)
+    {
+        if (clientID == null)
+        {
+            return -1L;
+        }
+        final int start = trimStart(clientID);
+        final int end = trimEnd(clientID, start);
+        if (start == end || end - start > MAX_CLIENT_ID_LENGTH)
+        {
+            return -1L;
+        }
+
+        long key = 0L;
+        for (int i = start; i < end; i++)
+        {
+            final char c = clientID.charAt(i);
+            if (!isDigit(c))
+            {
+                return -1L;
+            }
+            key = key * DECIMAL_RADIX + (c - '0');
+        }
+        return (end - start) * DIGIT_COUNT_TAG + key;
+    }
+
+    /**
+     * Turns a key made by {@link #clientKey} back into its client ID.
+     *
+     * @param key a valid client key
+     * @return the client ID, with its leading zeros
+     */
+    static String clientID(final long key)
+    {
+        final int length = (int) (key / DIGIT_COUNT_TAG);
+        long digits = key % DIGIT_COUNT_TAG;
+        final char[] id = new char[length];
+        for (int i = length - 1; i >= 0; i--)
+        {
+            id[i] = (char) ('0' + digits % DECIMAL_RADIX);
+            digits /= DECIMAL_RADIX;
+        }
+        return new String(id);
+    }
+
+    private static IllegalArgumentException invalidClientID()
+    {
+        BankMetrics.fail(BankMetrics.Failure.INVALID_CLIENT_ID);
+        return new IllegalArgumentException(
+                "Client ID must have " + MIN_CLIENT_ID_LENGTH + "-" + MAX_CLIENT_ID_LENGTH + " digits.");
+    }
+
+    private static int trimStart(final String s)
+    {
+        int start = 0;
+        while (start < s.length() && s.charAt(start) <= LAST_WHITESPACE)
+        {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimEnd(final String s,
+                               final int start)
+    {
+        int end = s.length();
+        while (end > start && s.charAt(end - 1) <= LAST_WHITESPACE)
+        {
+            end--;
+        }
+        return end;
+    }
+
+    private static boolean isDigit(final char c)
+    {
+        return c >= '0' && c <= '9';
+    }
+}
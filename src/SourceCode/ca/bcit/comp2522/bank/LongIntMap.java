@@ -0,0 +1,197 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from primitive long keys to non-negative int
+ * values. The int counterpart of {@link LongKeyedMap}: keys and values
+ * live in two parallel primitive arrays with linear probing, so neither is
+ * boxed. An empty slot holds {@link #ABSENT}, which is why values must not
+ * be negative.
+ *
+ * Memory: each slot costs 8 bytes (long key) plus 4 bytes (int value),
+ * i.e. 12 bytes. With the table kept between 37.5% and 75% full that is
+ * 16 to 32 bytes per entry, with no value objects on top.
+ *
+ * Not thread-safe: build it from one thread, then share it read-only.
+ *
+ * @author Nazanin Mohsenimehr
+ * @version 1.0
+ */
+public final class LongIntMap
+{
+    /** Returned by {@link #get} for a key with no value. */
+    public static final int ABSENT = -1;
+
+    private static final int MIN_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 30;
+    private static final int LOAD_FACTOR_NUMERATOR = 3;
+    private static final int LOAD_FACTOR_DENOMINATOR = 4;
+    private static final int LONG_BITS = 64;
+
+    // 2^64 divided by the golden ratio; spreads sequential ids across the table
+    private static final long FIBONACCI_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int shift;
+    private int resizeAt;
+
+    /**
+     * Constructs an empty map sized for the expected number of entries.
+     *
+     * @param expectedSize number of entries expected (non-negative)
+     * @throws IllegalArgumentException if expectedSize is negative or too large
+     */
+    public LongIntMap(final int expectedSize)
+    {
+        if (expectedSize < 0)
+        {
+            throw new IllegalArgumentException("Expected size must not be negative.");
+        }
+        final long needed = (long) expectedSize * LOAD_FACTOR_DENOMINATOR / LOAD_FACTOR_NUMERATOR + 1;
+        if (needed > MAX_CAPACITY)
+        {
+            throw new IllegalArgumentException("Expected size is too large: " + expectedSize);
+        }
+        int capacity = MIN_CAPACITY;
+        while (capacity < needed)
+        {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * Returns the value for a key.
+     *
+     * @param key the key
+     * @return the value, or ABSENT if there is none
+     */
+    public int get(final long key)
+    {
+        final int mask = keys.length - 1;
+        int slot = slotFor(key);
+        int value;
+        while ((value = values[slot]) != ABSENT)
+        {
+            if (keys[slot] == key)
+            {
+                return value;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return ABSENT;
+    }
+
+    /**
+     * Checks whether a key is present.
+     *
+     * @param key the key
+     * @return true if the key has a value
+     */
+    public boolean containsKey(final long key)
+    {
+        return get(key) != ABSENT;
+    }
+
+    /**
+     * Associates a value with a key, replacing any previous value.
+     *
+     * @param key the key
+     * @param value the value (non-negative)
+     * @return the previous value, or ABSENT if the key was absent
+     * @throws IllegalArgumentException if value is negative
+     */
+    public int put(final long key,
+                   final int value)
+    {
+        if (value < 0)
+        {
+            throw new IllegalArgumentException("Value must not be negative: " + value);
+        }
+
+        final int mask = keys.length - 1;
+        int slot = slotFor(key);
+        int existing;
+        while ((existing = values[slot]) != ABSENT)
+        {
+            if (keys[slot] == key)
+            {
+                values[slot] = value;
+                return existing;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeAt)
+        {
+            grow();
+        }
+        return ABSENT;
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return the number of entries
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the number of slots in the table.
+     *
+     * @return the table capacity
+     */
+    public int capacity()
+    {
+        return keys.length;
+    }
+
+    private int slotFor(final long key)
+    {
+        return (int) ((key * FIBONACCI_MULTIPLIER) >>> shift);
+    }
+
+    private void allocate(final int capacity)
+    {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, ABSENT);
+        shift = LONG_BITS - Integer.numberOfTrailingZeros(capacity);
+        resizeAt = (int) ((long) capacity * LOAD_FACTOR_NUMERATOR / LOAD_FACTOR_DENOMINATOR);
+    }
+
+    private void grow()
+    {
+        if (keys.length == MAX_CAPACITY)
+        {
+            throw new IllegalStateException("Map is full: " + size + " entries.");
+        }
+
+        final long[] oldKeys = keys;
+        final int[] oldValues = values;
+        allocate(oldKeys.length << 1);
+
+        final int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++)
+        {
+            if (oldValues[i] != ABSENT)
+            {
+                int slot = slotFor(oldKeys[i]);
+                while (values[slot] != ABSENT)
+                {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
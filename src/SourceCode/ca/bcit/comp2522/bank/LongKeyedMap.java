@@ -0,0 +1,194 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * Open-addressing hash map from primitive long keys to objects.
+ * Keys and values live in two parallel arrays with linear probing, so there
+ * is no key boxing and no per-entry node object. A null value marks an
+ * empty slot, which is why null values are not allowed.
+ *
+ * Memory: each slot costs 8 bytes (long key) plus 4 bytes (compressed
+ * reference), i.e. 12 bytes. With the table kept between 37.5% and 75%
+ * full that is 16 to 32 bytes per entry, about 21 bytes on average, not
+ * counting the values themselves.
+ *
+ * Not thread-safe: build it from one thread, then share it read-only.
+ *
+ * @param <V> the value type
+ * @author Nazanin Mohsenimehr
+ * @version 1.0
+ */
+public final class LongKeyedMap<V>
+{
+    private static final int MIN_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 30;
+    private static final int LOAD_FACTOR_NUMERATOR = 3;
+    private static final int LOAD_FACTOR_DENOMINATOR = 4;
+    private static final int LONG_BITS = 64;
+
+    // 2^64 divided by the golden ratio; spreads sequential ids across the table
+    private static final long FIBONACCI_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+    private int shift;
+    private int resizeAt;
+
+    /**
+     * Constructs an empty map sized for the expected number of entries.
+     *
+     * @param expectedSize number of entries expected (non-negative)
+     * @throws IllegalArgumentException if expectedSize is negative or too large
+     */
+    public LongKeyedMap(final int expectedSize)
+    {
+        if (expectedSize < 0)
+        {
+            throw new IllegalArgumentException("Expected size must not be negative.");
+        }
+        final long needed = (long) expectedSize * LOAD_FACTOR_DENOMINATOR / LOAD_FACTOR_NUMERATOR + 1;
+        if (needed > MAX_CAPACITY)
+        {
+            throw new IllegalArgumentException("Expected size is too large: " + expectedSize);
+        }
+        int capacity = MIN_CAPACITY;
+        while (capacity < needed)
+        {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * Returns the value for a key.
+     *
+     * @param key the key
+     * @return the value, or null if absent
+     */
+    @SuppressWarnings("unchecked")
+    public V get(final long key)
+    {
+        final int mask = keys.length - 1;
+        int slot = slotFor(key);
+        Object value;
+        while ((value = values[slot]) != null)
+        {
+            if (keys[slot] == key)
+            {
+                return (V) value;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether a key is present.
+     *
+     * @param key the key
+     * @return true if the key has a value
+     */
+    public boolean containsKey(final long key)
+    {
+        return get(key) != null;
+    }
+
+    /**
+     * Associates a value with a key, replacing any previous value.
+     *
+     * @param key the key
+     * @param value the value (non-null)
+     * @return the previous value, or null if the key was absent
+     * @throws IllegalArgumentException if value is null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(final long key,
+                 final V value)
+    {
+        if (value == null)
+        {
+            throw new IllegalArgumentException("Value must not be null.");
+        }
+
+        final int mask = keys.length - 1;
+        int slot = slotFor(key);
+        Object existing;
+        while ((existing = values[slot]) != null)
+        {
+            if (keys[slot] == key)
+            {
+                values[slot] = value;
+                return (V) existing;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeAt)
+        {
+            grow();
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return the number of entries
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the number of slots in the table.
+     *
+     * @return the table capacity
+     */
+    public int capacity()
+    {
+        return keys.length;
+    }
+
+    private int slotFor(final long key)
+    {
+        return (int) ((key * FIBONACCI_MULTIPLIER) >>> shift);
+    }
+
+    private void allocate(final int capacity)
+    {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        shift = LONG_BITS - Integer.numberOfTrailingZeros(capacity);
+        resizeAt = (int) ((long) capacity * LOAD_FACTOR_NUMERATOR / LOAD_FACTOR_DENOMINATOR);
+    }
+
+    private void grow()
+    {
+        if (keys.length == MAX_CAPACITY)
+        {
+            throw new IllegalStateException("Map is full: " + size + " entries.");
+        }
+
+        final long[] oldKeys = keys;
+        final Object[] oldValues = values;
+        allocate(oldKeys.length << 1);
+
+        final int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++)
+        {
+            if (oldValues[i] != null)
+            {
+                int slot = slotFor(oldKeys[i]);
+                while (values[slot] != null)
+                {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
@@ -31,14 +31,14 @@ public class Main {
     public static void main(final String[] args) {
         // ===== Albert Einstein =====
         final Name n1 = new Name("Albert", "Einstein");
-        final Date b1 = new Date(1879, 3, 14);
-        final Date d1 = new Date(1955, 4, 18);
-        final Date signup1 = new Date(1900, 1, 1);
+        final Date b1 = Date.of(1879, 3, 14);
+        final Date d1 = Date.of(1955, 4, 18);
+        final Date signup1 = Date.of(1900, 1, 1);
         final BankClient c1 = new BankClient(n1, b1, d1, "123456", signup1);
         final BankAccount a1 = new BankAccount(
                 c1, "abc123", 3141,
-                new Date(1900, 1, 1),
-                new Date(1950, 10, 14)
+                Date.of(1900, 1, 1),
+                Date.of(1950, 10, 14)
         );
         printNameInfo(n1);
         System.out.println(c1.getDetails());
@@ -50,13 +50,13 @@ public class Main {
 
         // ===== Nelson Mandela =====
         final Name n2 = new Name("Nelson", "Mandela");
-        final Date b2 = new Date(1918, 7, 18);
-        final Date d2 = new Date(2013, 12, 5);
-        final Date signup2 = new Date(1994, 5, 10);
+        final Date b2 = Date.of(1918, 7, 18);
+        final Date d2 = Date.of(2013, 12, 5);
+        final Date signup2 = Date.of(1994, 5, 10);
         final BankClient c2 = new BankClient(n2, b2, d2, "111222", signup2);
         final BankAccount a2 = new BankAccount(
                 c2, "654321", 4664,
-                new Date(1994, 5, 10),
+                Date.of(1994, 5, 10),
                 null // still open
         );
         printNameInfo(n2);
@@ -69,14 +69,14 @@ public class Main {
 
         // ===== Frida Kahlo =====
         final Name n3 = new Name("Frida", "Kahlo");
-        final Date b3 = new Date(1907, 7, 6);
-        final Date d3 = new Date(1954, 7, 13);
-        final Date signup3 = new Date(1940, 1, 1);
+        final Date b3 = Date.of(1907, 7, 6);
+        final Date d3 = Date.of(1954, 7, 13);
+        final Date signup3 = Date.of(1940, 1, 1);
         final BankClient c3 = new BankClient(n3, b3, d3, "222333", signup3);
         final BankAccount a3 = new BankAccount(
                 c3, "frd123", 1907,
-                new Date(1940, 1, 1),
-                new Date(1954, 7, 13)
+                Date.of(1940, 1, 1),
+                Date.of(1954, 7, 13)
         );
         printNameInfo(n3);
         System.out.println(c3.getDetails());
@@ -88,13 +88,13 @@ public class Main {
 
         // ===== Jackie Chan =====
         final Name n4 = new Name("Jackie", "Chan");
-        final Date b4 = new Date(1954, 4, 7);
+        final Date b4 = Date.of(1954, 4, 7);
         final Date d4 = null; // still alive
-        final Date signup4 = new Date(1980, 10, 1);
+        final Date signup4 = Date.of(1980, 10, 1);
         final BankClient c4 = new BankClient(n4, b4, d4, "3334444", signup4); // 7-digit id
         final BankAccount a4 = new BankAccount(
                 c4, "chan789", 1954,
-                new Date(1980, 10, 1),
+                Date.of(1980, 10, 1),
                 null // still open
         );
         printNameInfo(n4);
@@ -0,0 +1,199 @@
+package ca.bcit.comp2522.bank;
+
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point money helpers. Amounts are held as a primitive long count of
+ * cents (minor units), so arithmetic is exact and allocates nothing.
+ * A posting to a BankAccount still allocates one balance version; see
+ * {@link BankAccount}.
+ * Conversions to and from double take an explicit rounding mode.
+ *
+ * @author Nazanin Mohsenimehr
+ * @version 1.0
+ */
+public final class Money
+{
+    /** Number of minor units (cents) in one dollar. */
+    public static final long CENTS_PER_DOLLAR = 100L;
+
+    private static final double CENTS_PER_DOLLAR_D = 100.0;
+    private static final double HALF = 0.5;
+
+    // Products like 0.29 * 100 or 1.005 * 100 land a hair off the whole or
+    // half cent the caller wrote; snap those back before rounding.
+    private static final double REPRESENTATION_TOLERANCE = 1e-6;
+    private static final double HALVES = 2.0;
+
+    private static final double MAX_CENTS = 9.0e18;
+
+    private Money()
+    {
+    }
+
+    /**
+     * Converts a dollar amount to cents using the given rounding mode.
+     *
+     * @param amountUsd the amount in dollars; must be finite
+     * @param mode how to round fractions of a cent
+     * @return the amount in cents
+     * @throws IllegalArgumentException if the amount is not finite or out of range
+     * @throws ArithmeticException if mode is UNNECESSARY and rounding is needed
+     */
+    public static long fromUsd(final double amountUsd,
+                               final RoundingMode mode)
+    {
+        if (Double.isNaN(amountUsd) || Double.isInfinite(amountUsd))
+        {
+            throw new IllegalArgumentException("Amount must be a finite number.");
+        }
+
+        double scaled = amountUsd * CENTS_PER_DOLLAR_D;
+        if (Math.abs(scaled) > MAX_CENTS)
+        {
+            throw new IllegalArgumentException("Amount is out of range: " + amountUsd);
+        }
+
+        final double nearestHalf = Math.rint(scaled * HALVES) / HALVES;
+        if (Math.abs(scaled - nearestHalf) < REPRESENTATION_TOLERANCE)
+        {
+            scaled = nearestHalf;
+        }
+        return (long) round(scaled, mode);
+    }
+
+    /**
+     * Converts cents to a dollar amount.
+     *
+     * @param cents the amount in cents
+     * @return the amount in dollars
+     */
+    public static double toUsd(final long cents)
+    {
+        return cents / CENTS_PER_DOLLAR_D;
+    }
+
+    /**
+     * Adds two amounts in cents.
+     *
+     * @param a first amount in cents
+     * @param b second amount in cents
+     * @return the sum in cents
+     * @throws ArithmeticException on overflow
+     */
+    public static long add(final long a,
+                           final long b)
+    {
+        return Math.addExact(a, b);
+    }
+
+    /**
+     * Subtracts one amount in cents from another.
+     *
+     * @param a amount in cents
+     * @param b amount in cents to subtract
+     * @return the difference in cents
+     * @throws ArithmeticException on overflow
+     */
+    public static long subtract(final long a,
+                                final long b)
+    {
+        return Math.subtractExact(a, b);
+    }
+
+    /**
+     * Rounds an amount in cents to whole dollars.
+     *
+     * @param cents the amount in cents
+     * @param mode how to round the leftover cents
+     * @return the amount in whole dollars
+     * @throws ArithmeticException if mode is UNNECESSARY and rounding is needed
+     */
+    public static long toWholeDollars(final long cents,
+                                      final RoundingMode mode)
+    {
+        final long dollars = cents / CENTS_PER_DOLLAR;
+        final long remainder = cents % CENTS_PER_DOLLAR;
+        if (remainder == 0)
+        {
+            return dollars;
+        }
+
+        final long sign = cents < 0 ? -1L : 1L;
+        final long twice = Math.abs(remainder) * 2;
+        final boolean awayFromZero;
+        switch (mode)
+        {
+            case UP:
+                awayFromZero = true;
+                break;
+            case DOWN:
+                awayFromZero = false;
+                break;
+            case CEILING:
+                awayFromZero = sign > 0;
+                break;
+            case FLOOR:
+                awayFromZero = sign < 0;
+                break;
+            case HALF_UP:
+                awayFromZero = twice >= CENTS_PER_DOLLAR;
+                break;
+            case HALF_DOWN:
+                awayFromZero = twice > CENTS_PER_DOLLAR;
+                break;
+            case HALF_EVEN:
+                awayFromZero = twice > CENTS_PER_DOLLAR
+                        || (twice == CENTS_PER_DOLLAR && (dollars & 1L) != 0);
+                break;
+            default:
+                throw new ArithmeticException("Rounding necessary for " + cents + " cents.");
+        }
+        return awayFromZero ? dollars + sign : dollars;
+    }
+
+    /**
+     * Appends an amount as "$N USD", rounded half-up to whole dollars.
+     * This is the same text String.format("$%.0f USD", usd) produces,
+     * without the formatter or any boxing.
+     *
+     * @param sb the builder to append to
+     * @param cents the amount in cents
+     * @return the same builder
+     */
+    public static StringBuilder appendUsd(final StringBuilder sb,
+                                          final long cents)
+    {
+        return sb.append('$')
+                .append(toWholeDollars(cents, RoundingMode.HALF_UP))
+                .append(" USD");
+    }
+
+    private static double round(final double scaled,
+                                final RoundingMode mode)
+    {
+        switch (mode)
+        {
+            case UP:
+                return scaled < 0 ? Math.floor(scaled) : Math.ceil(scaled);
+            case DOWN:
+                return scaled < 0 ? Math.ceil(scaled) : Math.floor(scaled);
+            case CEILING:
+                return Math.ceil(scaled);
+            case FLOOR:
+                return Math.floor(scaled);
+            case HALF_UP:
+                return Math.signum(scaled) * Math.floor(Math.abs(scaled) + HALF);
+            case HALF_DOWN:
+                return Math.signum(scaled) * Math.ceil(Math.abs(scaled) - HALF);
+            case HALF_EVEN:
+                return Math.rint(scaled);
+            default:
+                if (scaled != Math.rint(scaled))
+                {
+                    throw new ArithmeticException("Rounding necessary for " + scaled + " cents.");
+                }
+                return scaled;
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package ca.bcit.comp2522.bank;
 
-import java.sql.SQLOutput;
+import java.io.IOException;
 
 /**
  * Name stores a person's first and last names and provides formatting methods.
+ * Since a Name never changes, each rendered form is built on first use and
+ * cached; the append methods write those cached forms into a caller's buffer.
  *
  * @author Leen and Veronica
  * @version 1.0
@@ -13,11 +15,16 @@ public class Name
     private static final int MAX_NAME_LENGTH = 45;
     private static final int FIRST_CHAR = 0;
     private static final int SECOND_CHAR = 1;
-    private static final String FORBIDDEN_WORD = "admin";
 
     private final String first;
     private final String last;
 
+    // Rendered forms, filled in lazily. Racing threads may both compute one,
+    // which is harmless: the results are equal immutable Strings.
+    private String initial;
+    private String fullName;
+    private String reverseName;
+
     /**
      * Constructs a Name object with a first and last name
      *
@@ -55,8 +62,13 @@ public class Name
      * @return initials in format F.L.
      */
     public String getInitial() {
-        return first.substring(FIRST_CHAR, SECOND_CHAR).toUpperCase() + "." +
-                last.substring(FIRST_CHAR, SECOND_CHAR).toUpperCase() + ".";
+        String rendered = initial;
+        if (rendered == null) {
+            rendered = first.substring(FIRST_CHAR, SECOND_CHAR).toUpperCase() + "." +
+                    last.substring(FIRST_CHAR, SECOND_CHAR).toUpperCase() + ".";
+            initial = rendered;
+        }
+        return rendered;
     }
 
     /**
@@ -64,8 +76,13 @@ public class Name
      * @return full name in title format
      */
     public String getFullName() {
-        return first.substring(FIRST_CHAR, SECOND_CHAR).toUpperCase() + first.substring(SECOND_CHAR).toLowerCase()
-                + " " + last.substring(FIRST_CHAR, SECOND_CHAR).toUpperCase() + last.substring(SECOND_CHAR).toLowerCase();
+        String rendered = fullName;
+        if (rendered == null) {
+            rendered = first.substring(FIRST_CHAR, SECOND_CHAR).toUpperCase() + first.substring(SECOND_CHAR).toLowerCase()
+                    + " " + last.substring(FIRST_CHAR, SECOND_CHAR).toUpperCase() + last.substring(SECOND_CHAR).toLowerCase();
+            fullName = rendered;
+        }
+        return rendered;
     }
 
     /**
@@ -73,6 +90,80 @@ public class Name
      * @return reversed name
      */
     public String getReverseName()
+    {
+        String rendered = reverseName;
+        if (rendered == null)
+        {
+            rendered = renderReverseName();
+            reverseName = rendered;
+        }
+        return rendered;
+    }
+
+    /**
+     * Appends the initials (F.L.) to a buffer.
+     * @param out the buffer to write to
+     * @return the same buffer
+     */
+    public StringBuilder appendInitial(final StringBuilder out) {
+        return out.append(getInitial());
+    }
+
+    /**
+     * Appends the initials (F.L.) to any Appendable.
+     * @param out where to write
+     * @param <A> the type of out
+     * @return the same Appendable
+     * @throws IOException if out fails
+     */
+    public <A extends Appendable> A appendInitial(final A out) throws IOException {
+        out.append(getInitial());
+        return out;
+    }
+
+    /**
+     * Appends the full name in title format to a buffer.
+     * @param out the buffer to write to
+     * @return the same buffer
+     */
+    public StringBuilder appendFullName(final StringBuilder out) {
+        return out.append(getFullName());
+    }
+
+    /**
+     * Appends the full name in title format to any Appendable.
+     * @param out where to write
+     * @param <A> the type of out
+     * @return the same Appendable
+     * @throws IOException if out fails
+     */
+    public <A extends Appendable> A appendFullName(final A out) throws IOException {
+        out.append(getFullName());
+        return out;
+    }
+
+    /**
+     * Appends the reversed name to a buffer.
+     * @param out the buffer to write to
+     * @return the same buffer
+     */
+    public StringBuilder appendReverseName(final StringBuilder out) {
+        return out.append(getReverseName());
+    }
+
+    /**
+     * Appends the reversed name to any Appendable.
+     * @param out where to write
+     * @param <A> the type of out
+     * @return the same Appendable
+     * @throws IOException if out fails
+     */
+    public <A extends Appendable> A appendReverseName(final A out) throws IOException {
+        out.append(getReverseName());
+        return out;
+    }
+
+    private String renderReverseName()
     {
         final StringBuilder builder;
         builder = new StringBuilder();
@@ -88,7 +179,7 @@ public class Name
      * Validates a name per the following guidelines.
      * Name must not be null or empty.
      * Name must be fewer than 45 characters.
-     * Name must not contain the word "admin".
+     * Name must not contain a term of the active {@link DenyList}, ignoring case.
      *
      * @param name the name to be checked
      */
@@ -104,9 +195,11 @@ public class Name
             throw new IllegalArgumentException("Name cannot be longer than " + MAX_NAME_LENGTH);
         }
 
-        if (name.toLowerCase().contains(FORBIDDEN_WORD))
+        final String forbidden = DenyList.active().firstMatch(name);
+        if (forbidden != null)
         {
-            throw new IllegalArgumentException("Name cannot contain " + FORBIDDEN_WORD);
+            BankMetrics.fail(BankMetrics.Failure.FORBIDDEN_NAME);
+            throw new IllegalArgumentException("Name cannot contain " + forbidden);
         }
     }
 
@@ -0,0 +1,519 @@
+package ca.bcit.comp2522.bank;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Looks clients up by a partial or misspelled surname.
+ *
+ * Surnames are case-folded and kept in a trie made of parallel arrays:
+ * one label, first child and next sibling per node, plus a list of client
+ * keys (see {@link Identifiers#clientKey}) at the node where a surname
+ * ends. Folding lower-cases letters, strips accents and drops everything
+ * that is not a letter or digit, so "O'Brien", "OBRIEN" and "Öbrien" all
+ * become "obrien".
+ *
+ * A search ranks what it finds as follows:
+ *   1. the surname itself;
+ *   2. surnames one edit away (a letter added, dropped, changed, or two
+ *      neighbouring letters swapped);
+ *   3. surnames that start with the query, shorter ones first;
+ *   4. surnames two edits away.
+ * Queries of up to 2 letters allow no edits, and queries of up to 5
+ * letters allow one. Edit distances are computed while walking the trie,
+ * one row per letter, and a branch is left as soon as every cell of its
+ * row is over the limit, so only a small part of the trie is visited.
+ * Matches of equal rank come shorter surname first, then newest client
+ * first. No stage collects more matches than were asked for.
+ *
+ * Clients can be added at any time. Searches run in parallel with each
+ * other; adding a client waits for running searches.
+ *
+ * @author Nazanin Mohsenimehr
+ * @version 1.0
+ */
+public final class NameSearchIndex
+{
+    /** Most results one search returns by default. */
+    public static final int DEFAULT_LIMIT = 20;
+
+    private static final int ROOT = 0;
+    private static final int NONE = 0; // no child or sibling; the root never is one
+    private static final int NO_POSTING = -1;
+    private static final int INITIAL_NODES = 1024;
+    private static final int INITIAL_POSTINGS = 1024;
+
+    private static final int MAX_EDITS = 2;
+    private static final int ONE_EDIT_LENGTH = 3;  // shortest query allowing one edit
+    private static final int TWO_EDIT_LENGTH = 6;  // shortest query allowing two edits
+
+    private static final int RANK_EXACT = 0;
+    private static final int RANK_ONE_EDIT = 1;
+    private static final int RANK_PREFIX = 2;
+    private static final int RANK_TWO_EDITS = 3;
+
+    // Candidate packing: rank | surname length | discovery order | client key
+    private static final int KEY_BITS = 27;
+    private static final int ORDER_BITS = 23;
+    private static final int LENGTH_BITS = 8;
+    private static final int ORDER_SHIFT = KEY_BITS;
+    private static final int LENGTH_SHIFT = ORDER_SHIFT + ORDER_BITS;
+    private static final int RANK_SHIFT = LENGTH_SHIFT + LENGTH_BITS;
+    private static final long KEY_MASK = (1L << KEY_BITS) - 1L;
+    private static final int MAX_LIMIT = (1 << ORDER_BITS) / 4;
+
+    // Edit-walk node packing: rank | surname length | node
+    private static final int NODE_BITS = 32;
+    private static final int FOUND_LENGTH_BITS = 8;
+    private static final int FOUND_RANK_SHIFT = NODE_BITS + FOUND_LENGTH_BITS;
+    private static final long NODE_MASK = (1L << NODE_BITS) - 1L;
+    private static final long FOUND_LENGTH_MASK = (1L << FOUND_LENGTH_BITS) - 1L;
+    private static final int INITIAL_FOUND = 64;
+
+    private static final char FIRST_NON_ASCII = '\u0080';
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Trie nodes; guarded by lock
+    private char[] labels = new char[INITIAL_NODES];
+    private int[] firstChild = new int[INITIAL_NODES];
+    private int[] nextSibling = new int[INITIAL_NODES];
+    private int[] postingHead = new int[INITIAL_NODES];
+    private int nodeCount = 1;
+
+    // Posting lists, newest first; guarded by lock
+    private int[] postingKeys = new int[INITIAL_POSTINGS];
+    private int[] postingNext = new int[INITIAL_POSTINGS];
+    private int postingCount;
+
+    /**
+     * Constructs an empty index.
+     */
+    public NameSearchIndex()
+    {
+        postingHead[ROOT] = NO_POSTING;
+    }
+
+    /**
+     * Adds a client under its surname.
+     *
+     * @param client the client (non-null)
+     * @throws IllegalArgumentException if client is null
+     */
+    public void add(final BankClient client)
+    {
+        if (client == null)
+        {
+            throw new IllegalArgumentException("Client must not be null.");
+        }
+        final String surname = fold(client.getName().getLast());
+        final int key = (int) Identifiers.clientKey(client.getClientID());
+
+        lock.writeLock().lock();
+        try
+        {
+            int node = ROOT;
+            for (int i = 0; i < surname.length(); i++)
+            {
+                node = childOrAdd(node, surname.charAt(i));
+            }
+            if (postingCount == postingKeys.length)
+            {
+                postingKeys = Arrays.copyOf(postingKeys, postingCount * 2);
+                postingNext = Arrays.copyOf(postingNext, postingCount * 2);
+            }
+            postingKeys[postingCount] = key;
+            postingNext[postingCount] = postingHead[node];
+            postingHead[node] = postingCount++;
+        } finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns how many clients were added.
+     *
+     * @return the number of clients
+     */
+    public int size()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return postingCount;
+        } finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds up to {@link #DEFAULT_LIMIT} clients whose surname matches a query.
+     *
+     * @param surname all or the start of a surname, possibly misspelled
+     * @return client IDs, best match first
+     */
+    public List<String> search(final String surname)
+    {
+        return search(surname, DEFAULT_LIMIT);
+    }
+
+    /**
+     * Finds clients whose surname matches a query.
+     *
+     * @param surname all or the start of a surname, possibly misspelled (non-null)
+     * @param limit the most IDs to return; must be positive
+     * @return client IDs, best match first
+     * @throws IllegalArgumentException if surname is null or limit is out of range
+     */
+    public List<String> search(final String surname,
+                               final int limit)
+    {
+        if (surname == null)
+        {
+            throw new IllegalArgumentException("Surname must not be null.");
+        }
+        if (limit <= 0 || limit > MAX_LIMIT)
+        {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIMIT + ".");
+        }
+        final String query = fold(surname);
+        if (query.isEmpty())
+        {
+            return new ArrayList<>();
+        }
+
+        final Matches matches = new Matches(limit);
+        lock.readLock().lock();
+        try
+        {
+            final int node = find(query);
+            if (node != NONE)
+            {
+                matches.addAll(node, RANK_EXACT, query.length());
+                collectPrefixed(node, query.length(), matches);
+            }
+            final int maxEdits = query.length() >= TWO_EDIT_LENGTH ? MAX_EDITS
+                    : query.length() >= ONE_EDIT_LENGTH ? 1 : 0;
+            if (maxEdits > 0)
+            {
+                final int[][] rows = new int[query.length() + maxEdits + 1][query.length() + 1];
+                for (int j = 0; j <= query.length(); j++)
+                {
+                    rows[0][j] = j;
+                }
+                final SimilarNodes similar = new SimilarNodes(limit, maxEdits, rows.length);
+                collectSimilar(ROOT, 0, query, rows, maxEdits, similar);
+                similar.addTo(matches);
+            }
+        } finally
+        {
+            lock.readLock().unlock();
+        }
+        return matches.ranked();
+    }
+
+    /**
+     * Folds a name for indexing: accents removed, letters lower-cased, and
+     * anything but letters and digits dropped.
+     *
+     * @param name the name
+     * @return the folded name
+     */
+    static String fold(final String name)
+    {
+        String text = name;
+        for (int i = 0; i < text.length(); i++)
+        {
+            if (text.charAt(i) >= FIRST_NON_ASCII)
+            {
+                // Splits accented letters into letter plus mark; marks are dropped below
+                text = Normalizer.normalize(text, Normalizer.Form.NFD);
+                break;
+            }
+        }
+        final StringBuilder folded = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++)
+        {
+            final char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c))
+            {
+                folded.append(Character.toLowerCase(Character.toUpperCase(c)));
+            }
+        }
+        return folded.toString();
+    }
+
+    // Collects results per rank, each capped at the limit
+    private final class Matches
+    {
+        private final int limit;
+        private final int[] counts = new int[RANK_TWO_EDITS + 1];
+        private long[] packed;
+        private int size;
+
+        private Matches(final int limit)
+        {
+            this.limit = limit;
+            this.packed = new long[Math.min(limit, INITIAL_POSTINGS)];
+        }
+
+        private boolean full(final int rank)
+        {
+            return counts[rank] >= limit;
+        }
+
+        // Adds the clients under a node; returns false once the rank is full
+        private boolean addAll(final int node,
+                               final int rank,
+                               final int length)
+        {
+            for (int p = postingHead[node]; p != NO_POSTING; p = postingNext[p])
+            {
+                if (full(rank))
+                {
+                    return false;
+                }
+                if (size == packed.length)
+                {
+                    packed = Arrays.copyOf(packed, size * 2);
+                }
+                packed[size] = (long) rank << RANK_SHIFT
+                        | (long) length << LENGTH_SHIFT
+                        | (long) size << ORDER_SHIFT
+                        | postingKeys[p];
+                size++;
+                counts[rank]++;
+            }
+            return true;
+        }
+
+        private List<String> ranked()
+        {
+            Arrays.sort(packed, 0, size);
+            // A surname can be both a prefix match and an edit away; keep its best rank
+            final Set<Integer> seen = new HashSet<>();
+            final List<String> ids = new ArrayList<>(Math.min(size, limit));
+            for (int i = 0; i < size && ids.size() < limit; i++)
+            {
+                final int key = (int) (packed[i] & KEY_MASK);
+                if (seen.add(key))
+                {
+                    ids.add(Identifiers.clientID(key));
+                }
+            }
+            return ids;
+        }
+    }
+
+    private int find(final String query)
+    {
+        int node = ROOT;
+        for (int i = 0; i < query.length(); i++)
+        {
+            node = child(node, query.charAt(i));
+            if (node == NONE)
+            {
+                break;
+            }
+        }
+        return node;
+    }
+
+    private int child(final int node,
+                      final char label)
+    {
+        int c = firstChild[node];
+        while (c != NONE && labels[c] != label)
+        {
+            c = nextSibling[c];
+        }
+        return c;
+    }
+
+    private int childOrAdd(final int node,
+                           final char label)
+    {
+        final int existing = child(node, label);
+        if (existing != NONE)
+        {
+            return existing;
+        }
+        if (nodeCount == labels.length)
+        {
+            final int capacity = nodeCount * 2;
+            labels = Arrays.copyOf(labels, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            postingHead = Arrays.copyOf(postingHead, capacity);
+        }
+        final int added = nodeCount++;
+        labels[added] = label;
+        firstChild[added] = NONE;
+        nextSibling[added] = firstChild[node];
+        postingHead[added] = NO_POSTING;
+        firstChild[node] = added;
+        return added;
+    }
+
+    // Breadth-first below the query's node, so shorter surnames come first
+    private void collectPrefixed(final int start,
+                                 final int startLength,
+                                 final Matches matches)
+    {
+        int[] level = {start};
+        int levelSize = 1;
+        int length = startLength;
+        while (levelSize > 0 && !matches.full(RANK_PREFIX))
+        {
+            int[] next = new int[Math.max(levelSize, 1)];
+            int nextSize = 0;
+            length++;
+            for (int i = 0; i < levelSize; i++)
+            {
+                for (int c = firstChild[level[i]]; c != NONE; c = nextSibling[c])
+                {
+                    if (!matches.addAll(c, RANK_PREFIX, length))
+                    {
+                        return;
+                    }
+                    if (nextSize == next.length)
+                    {
+                        next = Arrays.copyOf(next, nextSize * 2);
+                    }
+                    next[nextSize++] = c;
+                }
+            }
+            level = next;
+            levelSize = nextSize;
+        }
+    }
+
+    // Nodes found by the edit-distance walk. The walk is depth-first, so it
+    // finds surnames in no useful order; they are kept here and handed to
+    // Matches by rank and then length, so a stage that overflows keeps the
+    // shortest surnames. Postings are counted per rank and length, which
+    // tells the walk when going deeper can no longer change the result.
+    private final class SimilarNodes
+    {
+        private final int limit;
+        private final boolean twoEdits;
+        private final int[][] postings; // [rank][length], each capped at limit
+        private long[] found = new long[INITIAL_FOUND];
+        private int size;
+
+        private SimilarNodes(final int limit,
+                             final int maxEdits,
+                             final int maxLength)
+        {
+            this.limit = limit;
+            this.twoEdits = maxEdits == MAX_EDITS;
+            this.postings = new int[RANK_TWO_EDITS + 1][maxLength + 1];
+        }
+
+        private void add(final int node,
+                         final int rank,
+                         final int length)
+        {
+            if (postingHead[node] == NO_POSTING)
+            {
+                return;
+            }
+            if (size == found.length)
+            {
+                found = Arrays.copyOf(found, size * 2);
+            }
+            found[size++] = (long) rank << FOUND_RANK_SHIFT | (long) length << NODE_BITS | node;
+            int count = 0;
+            for (int p = postingHead[node]; p != NO_POSTING && count < limit; p = postingNext[p])
+            {
+                count++;
+            }
+            postings[rank][length] += count;
+        }
+
+        // True once every edit stage holds a full result of surnames no longer than length
+        private boolean full(final int length)
+        {
+            return full(RANK_ONE_EDIT, length) && (!twoEdits || full(RANK_TWO_EDITS, length));
+        }
+
+        private boolean full(final int rank,
+                             final int length)
+        {
+            int total = 0;
+            for (int l = 0; l <= length && l < postings[rank].length; l++)
+            {
+                total += postings[rank][l];
+            }
+            return total >= limit;
+        }
+
+        private void addTo(final Matches matches)
+        {
+            Arrays.sort(found, 0, size);
+            for (int i = 0; i < size; i++)
+            {
+                final int rank = (int) (found[i] >>> FOUND_RANK_SHIFT);
+                if (!matches.full(rank))
+                {
+                    matches.addAll((int) (found[i] & NODE_MASK), rank,
+                            (int) (found[i] >>> NODE_BITS & FOUND_LENGTH_MASK));
+                }
+            }
+        }
+    }
+
+    // Depth-first with one row of the edit-distance table per trie level.
+    // rows[depth] holds the distances between the first depth letters of
+    // the current path and each prefix of the query. A branch is left once
+    // its row is over the limit, or once shorter surnames fill every stage.
+    private void collectSimilar(final int node,
+                                final int depth,
+                                final String query,
+                                final int[][] rows,
+                                final int maxEdits,
+                                final SimilarNodes similar)
+    {
+        final int length = query.length();
+        final int[] above = rows[depth];
+        final int[] row = rows[depth + 1];
+        for (int c = firstChild[node]; c != NONE; c = nextSibling[c])
+        {
+            final char label = labels[c];
+            row[0] = depth + 1;
+            int best = row[0];
+            for (int j = 1; j <= length; j++)
+            {
+                final char q = query.charAt(j - 1);
+                int cell = Math.min(above[j] + 1, row[j - 1] + 1);
+                cell = Math.min(cell, above[j - 1] + (q == label ? 0 : 1));
+                if (depth > 0 && j > 1 && q == labels[node] && query.charAt(j - 2) == label)
+                {
+                    // Swapped neighbours count as one edit
+                    cell = Math.min(cell, rows[depth - 1][j - 2] + 1);
+                }
+                row[j] = cell;
+                best = Math.min(best, cell);
+            }
+            final int edits = row[length];
+            if (edits == 1)
+            {
+                similar.add(c, RANK_ONE_EDIT, depth + 1);
+            } else if (edits == MAX_EDITS && maxEdits == MAX_EDITS)
+            {
+                similar.add(c, RANK_TWO_EDITS, depth + 1);
+            }
+            if (best <= maxEdits && depth + 2 < rows.length && !similar.full(depth + 1))
+            {
+                collectSimilar(c, depth + 1, query, rows, maxEdits, similar);
+            }
+        }
+    }
+}
@@ -0,0 +1,572 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.Arrays;
+
+/**
+ * Compressed set of non-negative int ordinals, laid out like a roaring
+ * bitmap. Ordinals are split by their high 16 bits into chunks of 65536;
+ * each chunk is stored either as a sorted char array (up to 4096 members,
+ * 2 bytes each) or as a 1024-word bitset (8 KB, any density), whichever is
+ * smaller. AND, OR and AND NOT work chunk by chunk and return new bitmaps,
+ * so query results never disturb the indexes they came from.
+ *
+ * Not thread-safe.
+ *
+ * @author Nazanin Mohsenimehr
+ * @version 1.0
+ */
+public final class OrdinalBitmap
+{
+    private static final int CHUNK_BITS = 16;
+    private static final int LOW_MASK = 0xFFFF;
+    private static final int WORD_SHIFT = 6;
+    private static final int WORDS_PER_CHUNK = 1 << (CHUNK_BITS - WORD_SHIFT);
+    private static final int MAX_ARRAY_SIZE = 4096;
+    private static final int INITIAL_CHUNKS = 4;
+    private static final int INITIAL_ARRAY_SIZE = 4;
+
+    private char[] keys;
+    private Chunk[] chunks;
+    private int chunkCount;
+
+    // One 65536-ordinal chunk: a sorted array or a bitset, never both
+    private static final class Chunk
+    {
+        private char[] values;
+        private long[] words;
+        private int cardinality;
+
+        private static Chunk ofArray(final char[] values,
+                                     final int cardinality)
+        {
+            final Chunk chunk = new Chunk();
+            chunk.values = values;
+            chunk.cardinality = cardinality;
+            return chunk;
+        }
+
+        private static Chunk ofWords(final long[] words)
+        {
+            final Chunk chunk = new Chunk();
+            chunk.words = words;
+            for (final long word : words)
+            {
+                chunk.cardinality += Long.bitCount(word);
+            }
+            if (chunk.cardinality <= MAX_ARRAY_SIZE)
+            {
+                chunk.toArray();
+            }
+            return chunk;
+        }
+
+        private boolean contains(final int low)
+        {
+            if (words != null)
+            {
+                return (words[low >>> WORD_SHIFT] & (1L << low)) != 0L;
+            }
+            return Arrays.binarySearch(values, 0, cardinality, (char) low) >= 0;
+        }
+
+        private boolean add(final int low)
+        {
+            if (words != null)
+            {
+                final long before = words[low >>> WORD_SHIFT];
+                final long after = before | (1L << low);
+                words[low >>> WORD_SHIFT] = after;
+                if (before == after)
+                {
+                    return false;
+                }
+                cardinality++;
+                return true;
+            }
+            final int at = Arrays.binarySearch(values, 0, cardinality, (char) low);
+            if (at >= 0)
+            {
+                return false;
+            }
+            if (cardinality == MAX_ARRAY_SIZE)
+            {
+                toWords();
+                return add(low);
+            }
+            final int insert = -at - 1;
+            if (cardinality == values.length)
+            {
+                values = Arrays.copyOf(values, Math.min(MAX_ARRAY_SIZE, values.length * 2));
+            }
+            System.arraycopy(values, insert, values, insert + 1, cardinality - insert);
+            values[insert] = (char) low;
+            cardinality++;
+            return true;
+        }
+
+        private boolean remove(final int low)
+        {
+            if (words != null)
+            {
+                final long before = words[low >>> WORD_SHIFT];
+                final long after = before & ~(1L << low);
+                words[low >>> WORD_SHIFT] = after;
+                if (before == after)
+                {
+                    return false;
+                }
+                if (--cardinality <= MAX_ARRAY_SIZE)
+                {
+                    toArray();
+                }
+                return true;
+            }
+            final int at = Arrays.binarySearch(values, 0, cardinality, (char) low);
+            if (at < 0)
+            {
+                return false;
+            }
+            System.arraycopy(values, at + 1, values, at, cardinality - at - 1);
+            cardinality--;
+            return true;
+        }
+
+        private void toWords()
+        {
+            final long[] bits = new long[WORDS_PER_CHUNK];
+            for (int i = 0; i < cardinality; i++)
+            {
+                bits[values[i] >>> WORD_SHIFT] |= 1L << values[i];
+            }
+            words = bits;
+            values = null;
+        }
+
+        private void toArray()
+        {
+            final char[] array = new char[Math.max(cardinality, 1)];
+            int n = 0;
+            for (int w = 0; w < WORDS_PER_CHUNK; w++)
+            {
+                long word = words[w];
+                while (word != 0L)
+                {
+                    array[n++] = (char) ((w << WORD_SHIFT) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1L;
+                }
+            }
+            values = array;
+            words = null;
+        }
+
+        private long[] wordsCopy()
+        {
+            if (words != null)
+            {
+                return words.clone();
+            }
+            final long[] bits = new long[WORDS_PER_CHUNK];
+            for (int i = 0; i < cardinality; i++)
+            {
+                bits[values[i] >>> WORD_SHIFT] |= 1L << values[i];
+            }
+            return bits;
+        }
+
+        private Chunk copy()
+        {
+            return words != null ? ofWords(words.clone()) : ofArray(values.clone(), cardinality);
+        }
+
+        private static Chunk and(final Chunk a,
+                                 final Chunk b)
+        {
+            if (a.words != null && b.words != null)
+            {
+                final long[] bits = new long[WORDS_PER_CHUNK];
+                for (int w = 0; w < WORDS_PER_CHUNK; w++)
+                {
+                    bits[w] = a.words[w] & b.words[w];
+                }
+                return ofWords(bits);
+            }
+            final Chunk small = a.words == null ? a : b;
+            final Chunk other = small == a ? b : a;
+            final char[] out = new char[Math.max(small.cardinality, 1)];
+            int n = 0;
+            for (int i = 0; i < small.cardinality; i++)
+            {
+                if (other.contains(small.values[i]))
+                {
+                    out[n++] = small.values[i];
+                }
+            }
+            return ofArray(out, n);
+        }
+
+        private static Chunk or(final Chunk a,
+                                final Chunk b)
+        {
+            if (a.words == null && b.words == null && a.cardinality + b.cardinality <= MAX_ARRAY_SIZE)
+            {
+                final char[] out = new char[Math.max(a.cardinality + b.cardinality, 1)];
+                int i = 0;
+                int j = 0;
+                int n = 0;
+                while (i < a.cardinality && j < b.cardinality)
+                {
+                    final char x = a.values[i];
+                    final char y = b.values[j];
+                    if (x <= y)
+                    {
+                        i++;
+                    }
+                    if (y <= x)
+                    {
+                        j++;
+                    }
+                    out[n++] = x <= y ? x : y;
+                }
+                while (i < a.cardinality)
+                {
+                    out[n++] = a.values[i++];
+                }
+                while (j < b.cardinality)
+                {
+                    out[n++] = b.values[j++];
+                }
+                return ofArray(out, n);
+            }
+            final long[] bits = a.wordsCopy();
+            if (b.words != null)
+            {
+                for (int w = 0; w < WORDS_PER_CHUNK; w++)
+                {
+                    bits[w] |= b.words[w];
+                }
+            } else
+            {
+                for (int i = 0; i < b.cardinality; i++)
+                {
+                    bits[b.values[i] >>> WORD_SHIFT] |= 1L << b.values[i];
+                }
+            }
+            return ofWords(bits);
+        }
+
+        private static Chunk andNot(final Chunk a,
+                                    final Chunk b)
+        {
+            if (a.words == null)
+            {
+                final char[] out = new char[Math.max(a.cardinality, 1)];
+                int n = 0;
+                for (int i = 0; i < a.cardinality; i++)
+                {
+                    if (!b.contains(a.values[i]))
+                    {
+                        out[n++] = a.values[i];
+                    }
+                }
+                return ofArray(out, n);
+            }
+            final long[] bits = a.words.clone();
+            if (b.words != null)
+            {
+                for (int w = 0; w < WORDS_PER_CHUNK; w++)
+                {
+                    bits[w] &= ~b.words[w];
+                }
+            } else
+            {
+                for (int i = 0; i < b.cardinality; i++)
+                {
+                    bits[b.values[i] >>> WORD_SHIFT] &= ~(1L << b.values[i]);
+                }
+            }
+            return ofWords(bits);
+        }
+
+        private int copyTo(final int[] out,
+                           final int offset,
+                           final int high)
+        {
+            int n = offset;
+            if (words == null)
+            {
+                for (int i = 0; i < cardinality; i++)
+                {
+                    out[n++] = high | values[i];
+                }
+                return n;
+            }
+            for (int w = 0; w < WORDS_PER_CHUNK; w++)
+            {
+                long word = words[w];
+                while (word != 0L)
+                {
+                    out[n++] = high | ((w << WORD_SHIFT) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1L;
+                }
+            }
+            return n;
+        }
+    }
+
+    /**
+     * Constructs an empty bitmap.
+     */
+    public OrdinalBitmap()
+    {
+        this.keys = new char[INITIAL_CHUNKS];
+        this.chunks = new Chunk[INITIAL_CHUNKS];
+    }
+
+    /**
+     * Adds an ordinal.
+     *
+     * @param ordinal the ordinal (>= 0)
+     * @return true if it was not already present
+     * @throws IllegalArgumentException if the ordinal is negative
+     */
+    public boolean add(final int ordinal)
+    {
+        validateOrdinal(ordinal);
+        final int at = indexOf(ordinal >>> CHUNK_BITS);
+        if (at >= 0)
+        {
+            return chunks[at].add(ordinal & LOW_MASK);
+        }
+        final char[] single = new char[INITIAL_ARRAY_SIZE];
+        single[0] = (char) ordinal;
+        insertChunk(-at - 1, (char) (ordinal >>> CHUNK_BITS), Chunk.ofArray(single, 1));
+        return true;
+    }
+
+    /**
+     * Removes an ordinal.
+     *
+     * @param ordinal the ordinal
+     * @return true if it was present
+     */
+    public boolean remove(final int ordinal)
+    {
+        if (ordinal < 0)
+        {
+            return false;
+        }
+        final int at = indexOf(ordinal >>> CHUNK_BITS);
+        if (at < 0 || !chunks[at].remove(ordinal & LOW_MASK))
+        {
+            return false;
+        }
+        if (chunks[at].cardinality == 0)
+        {
+            System.arraycopy(keys, at + 1, keys, at, chunkCount - at - 1);
+            System.arraycopy(chunks, at + 1, chunks, at, chunkCount - at - 1);
+            chunks[--chunkCount] = null;
+        }
+        return true;
+    }
+
+    /**
+     * Adds or removes an ordinal.
+     *
+     * @param ordinal the ordinal (>= 0)
+     * @param present true to add, false to remove
+     */
+    public void set(final int ordinal,
+                    final boolean present)
+    {
+        if (present)
+        {
+            add(ordinal);
+        } else
+        {
+            remove(ordinal);
+        }
+    }
+
+    /**
+     * Tells whether an ordinal is present.
+     *
+     * @param ordinal the ordinal
+     * @return true if present
+     */
+    public boolean contains(final int ordinal)
+    {
+        if (ordinal < 0)
+        {
+            return false;
+        }
+        final int at = indexOf(ordinal >>> CHUNK_BITS);
+        return at >= 0 && chunks[at].contains(ordinal & LOW_MASK);
+    }
+
+    /**
+     * Returns the number of ordinals present.
+     *
+     * @return the cardinality
+     */
+    public int cardinality()
+    {
+        int total = 0;
+        for (int i = 0; i < chunkCount; i++)
+        {
+            total += chunks[i].cardinality;
+        }
+        return total;
+    }
+
+    /**
+     * Returns an independent copy of this bitmap.
+     *
+     * @return a new bitmap
+     */
+    public OrdinalBitmap copy()
+    {
+        final OrdinalBitmap result = new OrdinalBitmap();
+        for (int i = 0; i < chunkCount; i++)
+        {
+            result.appendChunk(keys[i], chunks[i].copy());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the ordinals present in both bitmaps.
+     *
+     * @param other the other bitmap (non-null)
+     * @return a new bitmap
+     */
+    public OrdinalBitmap and(final OrdinalBitmap other)
+    {
+        final OrdinalBitmap result = new OrdinalBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < chunkCount && j < other.chunkCount)
+        {
+            if (keys[i] < other.keys[j])
+            {
+                i++;
+            } else if (keys[i] > other.keys[j])
+            {
+                j++;
+            } else
+            {
+                result.appendChunk(keys[i], Chunk.and(chunks[i++], other.chunks[j++]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the ordinals present in either bitmap.
+     *
+     * @param other the other bitmap (non-null)
+     * @return a new bitmap
+     */
+    public OrdinalBitmap or(final OrdinalBitmap other)
+    {
+        final OrdinalBitmap result = new OrdinalBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < chunkCount || j < other.chunkCount)
+        {
+            if (j == other.chunkCount || (i < chunkCount && keys[i] < other.keys[j]))
+            {
+                result.appendChunk(keys[i], chunks[i++].copy());
+            } else if (i == chunkCount || keys[i] > other.keys[j])
+            {
+                result.appendChunk(other.keys[j], other.chunks[j++].copy());
+            } else
+            {
+                result.appendChunk(keys[i], Chunk.or(chunks[i++], other.chunks[j++]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the ordinals present in this bitmap but not in the other.
+     *
+     * @param other the other bitmap (non-null)
+     * @return a new bitmap
+     */
+    public OrdinalBitmap andNot(final OrdinalBitmap other)
+    {
+        final OrdinalBitmap result = new OrdinalBitmap();
+        int j = 0;
+        for (int i = 0; i < chunkCount; i++)
+        {
+            while (j < other.chunkCount && other.keys[j] < keys[i])
+            {
+                j++;
+            }
+            if (j < other.chunkCount && other.keys[j] == keys[i])
+            {
+                result.appendChunk(keys[i], Chunk.andNot(chunks[i], other.chunks[j]));
+            } else
+            {
+                result.appendChunk(keys[i], chunks[i].copy());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the ordinals present, in ascending order.
+     *
+     * @return a new array of ordinals
+     */
+    public int[] toArray()
+    {
+        final int[] out = new int[cardinality()];
+        int n = 0;
+        for (int i = 0; i < chunkCount; i++)
+        {
+            n = chunks[i].copyTo(out, n, keys[i] << CHUNK_BITS);
+        }
+        return out;
+    }
+
+    // Binary search over chunk keys; returns -(insertion point) - 1 when absent
+    private int indexOf(final int high)
+    {
+        return Arrays.binarySearch(keys, 0, chunkCount, (char) high);
+    }
+
+    private void insertChunk(final int at,
+                             final char key,
+                             final Chunk chunk)
+    {
+        if (chunkCount == keys.length)
+        {
+            keys = Arrays.copyOf(keys, chunkCount * 2);
+            chunks = Arrays.copyOf(chunks, chunkCount * 2);
+        }
+        System.arraycopy(keys, at, keys, at + 1, chunkCount - at);
+        System.arraycopy(chunks, at, chunks, at + 1, chunkCount - at);
+        keys[at] = key;
+        chunks[at] = chunk;
+        chunkCount++;
+    }
+
+    // Used by the set operations, which produce chunks in key order
+    private void appendChunk(final char key,
+                             final Chunk chunk)
+    {
+        if (chunk.cardinality > 0)
+        {
+            insertChunk(chunkCount, key, chunk);
+        }
+    }
+
+    private static void validateOrdinal(final int ordinal)
+    {
+        if (ordinal < 0)
+        {
+            throw new IllegalArgumentException("Ordinal must not be negative: " + ordinal);
+        }
+    }
+}
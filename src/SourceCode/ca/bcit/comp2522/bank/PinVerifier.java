@@ -0,0 +1,488 @@
+package ca.bcit.comp2522.bank;
+
+import java.nio.ByteBuffer;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Checks PINs against salted SHA-256 hashes and throttles guessing.
+ * Hashes are compared with MessageDigest.isEqual, which takes the same time
+ * wherever the first difference is.
+ *
+ * Failed attempts are counted in a fixed array of atomic slots, grouped in
+ * buckets of four that share a cache line. An account key hashes to one
+ * bucket, and a slot there holds a 16-bit fingerprint of the key it
+ * counts for, when its count expires, and the count. After too many
+ * failures the key is locked out until the count expires; each failure
+ * pushes expiry out by the lockout time, and a correct PIN clears only the
+ * key's own slot. Updates are compare-and-set on one long per slot, so
+ * there are no locks and no per-account objects, and a correct PIN with no
+ * failures outstanding costs four plain volatile reads besides the hash.
+ *
+ * Keys that share a bucket never share a count unless their fingerprints
+ * collide too, so guessing at one account does not lock out another, and
+ * a success on one account does not clear another's failures. A key with
+ * no slot is never refused, so a correct PIN always gets through unless
+ * that key itself is locked out. When it fails and all four slots are
+ * busy, it takes over the slot with the fewest failures. So that taking
+ * over a slot cannot reset a key's count, each bucket also remembers the
+ * highest count it has given up, until that count would have expired, and
+ * a key starts counting above it. The cost falls only on keys that fail
+ * while someone is guessing across a whole bucket: their first wrong PIN
+ * may lock them out.
+ *
+ * A 4-digit PIN space is small enough to brute-force offline, salt or not;
+ * hashing keeps PINs out of heap dumps and ledger files, and the throttle
+ * is what stops guessing online.
+ *
+ * @author Nazanin Mohsenimehr
+ * @version 1.0
+ */
+public final class PinVerifier
+{
+    /** Length of a PIN salt in bytes. */
+    public static final int SALT_LENGTH = 16;
+
+    /** Length of a PIN hash in bytes. */
+    public static final int HASH_LENGTH = 32;
+
+    private static final int DEFAULT_STRIPES = 1 << 16;
+    private static final int DEFAULT_MAX_FAILURES = 3;
+    private static final long DEFAULT_LOCKOUT_MILLIS = 15L * 60L * 1000L;
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+    private static final int NO_SLOT = -1;
+    private static final int BUCKET_WAYS = 4;
+
+    // Slot state: key fingerprint in the top 16 bits, expiry in clock millis
+    // in the next 40, failure count in the low byte
+    private static final int FAILURE_BITS = 8;
+    private static final int EXPIRY_BITS = 40;
+    private static final int FINGERPRINT_BITS = 16;
+    private static final int FINGERPRINT_SHIFT = FAILURE_BITS + EXPIRY_BITS;
+    private static final long FAILURE_MASK = (1L << FAILURE_BITS) - 1L;
+    private static final long EXPIRY_MASK = (1L << EXPIRY_BITS) - 1L;
+    private static final long FINGERPRINT_MASK = (1L << FINGERPRINT_BITS) - 1L;
+    private static final int MAX_FAILURE_LIMIT = (int) FAILURE_MASK;
+
+    private static final long MIX_MULTIPLIER = 0x9E3779B97F4A7C15L;
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    // Digests are borrowed from a small shared pool rather than kept per
+    // thread, since the teller server runs each request on a new virtual thread
+    private static final int HASHER_POOL_SIZE =
+            Integer.highestOneBit(2 * Runtime.getRuntime().availableProcessors() - 1) << 1;
+    private static final int HASHER_PROBES = 4;
+
+    private static final SecureRandom SALTS = new SecureRandom();
+    private static final AtomicReferenceArray<Hasher> HASHERS = new AtomicReferenceArray<>(HASHER_POOL_SIZE);
+
+    /** Verifier shared by all accounts. */
+    static final PinVerifier SHARED = new PinVerifier();
+
+    private final AtomicLongArray stripes;
+    private final AtomicLongArray evicted; // per bucket: highest count given up, and its expiry
+    private final int ways;
+    private final int bucketShift;
+    private final int bucketMask;
+    private final int maxFailures;
+    private final long lockoutMillis;
+    private final LongSupplier clockMillis;
+
+    /**
+     * Constructs a verifier with 65536 slots, lockout after 3 failures,
+     * and a 15-minute lockout.
+     */
+    public PinVerifier()
+    {
+        this(DEFAULT_STRIPES, DEFAULT_MAX_FAILURES, DEFAULT_LOCKOUT_MILLIS);
+    }
+
+    /**
+     * Constructs a verifier.
+     *
+     * @param stripes number of slots; a power of two
+     * @param maxFailures failures that trigger a lockout (1-255)
+     * @param lockoutMillis how long a lockout lasts, and how long a failure is remembered
+     */
+    public PinVerifier(final int stripes,
+                       final int maxFailures,
+                       final long lockoutMillis)
+    {
+        this(stripes, maxFailures, lockoutMillis, monotonicMillis());
+    }
+
+    /**
+     * Constructs a verifier with its own clock.
+     *
+     * @param stripes number of slots; a power of two
+     * @param maxFailures failures that trigger a lockout (1-255)
+     * @param lockoutMillis how long a lockout lasts, and how long a failure is remembered
+     * @param clockMillis non-decreasing time in milliseconds, starting at 0 or later
+     */
+    PinVerifier(final int stripes,
+                final int maxFailures,
+                final long lockoutMillis,
+                final LongSupplier clockMillis)
+    {
+        if (stripes < 1 || Integer.bitCount(stripes) != 1)
+        {
+            throw new IllegalArgumentException("Stripe count must be a power of two: " + stripes);
+        }
+        if (maxFailures < 1 || maxFailures > MAX_FAILURE_LIMIT)
+        {
+            throw new IllegalArgumentException("Max failures must be 1-" + MAX_FAILURE_LIMIT + ": " + maxFailures);
+        }
+        if (lockoutMillis < 0L || lockoutMillis > EXPIRY_MASK)
+        {
+            throw new IllegalArgumentException("Lockout must be 0-" + EXPIRY_MASK + " ms.");
+        }
+        this.stripes = new AtomicLongArray(stripes);
+        this.ways = Math.min(BUCKET_WAYS, stripes);
+        final int buckets = stripes / ways;
+        this.evicted = new AtomicLongArray(buckets);
+        this.bucketShift = Long.SIZE - Integer.numberOfTrailingZeros(buckets);
+        this.bucketMask = buckets - 1;
+        this.maxFailures = maxFailures;
+        this.lockoutMillis = lockoutMillis;
+        this.clockMillis = clockMillis;
+    }
+
+    /**
+     * Returns a new random salt.
+     *
+     * @return SALT_LENGTH random bytes
+     */
+    public static byte[] newSalt()
+    {
+        final byte[] salt = new byte[SALT_LENGTH];
+        SALTS.nextBytes(salt);
+        return salt;
+    }
+
+    /**
+     * Hashes a PIN with a salt.
+     *
+     * @param salt the salt (non-null)
+     * @param pin the PIN
+     * @return HASH_LENGTH bytes of SHA-256 over salt and PIN
+     */
+    public static byte[] hash(final byte[] salt,
+                              final int pin)
+    {
+        final Hasher hasher = Hasher.acquire();
+        try
+        {
+            hasher.scratch.putInt(0, pin);
+            hasher.digest.update(salt);
+            hasher.digest.update(hasher.scratch.array(), 0, Integer.BYTES);
+            return hasher.digest.digest();
+        } finally
+        {
+            hasher.release();
+        }
+    }
+
+    /**
+     * Checks a PIN, counting failures against the account key.
+     *
+     * @param key the account key
+     * @param salt the stored salt
+     * @param expectedHash the stored hash
+     * @param pin the PIN to check
+     * @throws IllegalArgumentException if the account is locked out or the PIN is wrong
+     */
+    public void verify(final long key,
+                       final byte[] salt,
+                       final byte[] expectedHash,
+                       final int pin)
+    {
+        final int bucket = bucketOf(key);
+        final long fingerprint = fingerprintOf(key);
+        final long now = clockMillis.getAsLong();
+        final int slot = slotOf(bucket, fingerprint, now);
+        if (slot != NO_SLOT && isLocked(stripes.get(slot), now))
+        {
+            BankMetrics.fail(BankMetrics.Failure.PIN_LOCKED_OUT);
+            throw new IllegalArgumentException("Too many incorrect PIN attempts; try again later.");
+        }
+
+        if (matches(salt, pin, expectedHash))
+        {
+            if (slot != NO_SLOT)
+            {
+                clear(slot, fingerprint);
+            }
+            return;
+        }
+        recordFailure(bucket, fingerprint);
+        BankMetrics.fail(BankMetrics.Failure.WRONG_PIN);
+        throw new IllegalArgumentException("Incorrect PIN.");
+    }
+
+    /**
+     * Tells whether an account key is locked out right now.
+     *
+     * @param key the account key
+     * @return true if locked out
+     */
+    public boolean isLockedOut(final long key)
+    {
+        final long now = clockMillis.getAsLong();
+        final int slot = slotOf(bucketOf(key), fingerprintOf(key), now);
+        return slot != NO_SLOT && isLocked(stripes.get(slot), now);
+    }
+
+    /**
+     * Returns the failures counted for an account key since its last
+     * success, or since its count last expired.
+     *
+     * @param key the account key
+     * @return the failure count
+     */
+    public int failedAttempts(final long key)
+    {
+        final int slot = slotOf(bucketOf(key), fingerprintOf(key), clockMillis.getAsLong());
+        return slot == NO_SLOT ? 0 : (int) (stripes.get(slot) & FAILURE_MASK);
+    }
+
+    // Hashes into a pooled scratch buffer so a check allocates nothing
+    private static boolean matches(final byte[] salt,
+                                   final int pin,
+                                   final byte[] expectedHash)
+    {
+        final Hasher hasher = Hasher.acquire();
+        try
+        {
+            final byte[] scratch = hasher.scratch.array();
+            hasher.scratch.putInt(0, pin);
+            hasher.digest.update(salt);
+            hasher.digest.update(scratch, 0, Integer.BYTES);
+            hasher.digest.digest(scratch, 0, HASH_LENGTH);
+            return MessageDigest.isEqual(scratch, expectedHash);
+        } catch (final DigestException e)
+        {
+            throw new IllegalStateException(HASH_ALGORITHM + " failed.", e);
+        } finally
+        {
+            hasher.release();
+        }
+    }
+
+    // The slot counting for a key, or NO_SLOT if none is
+    private int slotOf(final int bucket,
+                       final long fingerprint,
+                       final long now)
+    {
+        for (int slot = bucket; slot < bucket + ways; slot++)
+        {
+            final long state = stripes.get(slot);
+            if (isLive(state, now) && ownerOf(state) == fingerprint)
+            {
+                return slot;
+            }
+        }
+        return NO_SLOT;
+    }
+
+    private void clear(final int slot,
+                       final long fingerprint)
+    {
+        final long state = stripes.get(slot);
+        if (ownerOf(state) == fingerprint)
+        {
+            stripes.compareAndSet(slot, state, 0L);
+        }
+    }
+
+    // Counts a failure in the key's own slot. A key without one takes a
+    // free slot, or else the one with the fewest failures, and starts above
+    // every count its bucket has given up
+    private void recordFailure(final int bucket,
+                               final long fingerprint)
+    {
+        while (true)
+        {
+            final long now = clockMillis.getAsLong();
+            final long expiry = (now + lockoutMillis) & EXPIRY_MASK;
+            final int slot = slotOf(bucket, fingerprint, now);
+            if (slot != NO_SLOT)
+            {
+                final long state = stripes.get(slot);
+                final long failures = Math.min((state & FAILURE_MASK) + 1L, maxFailures);
+                if (ownerOf(state) == fingerprint && isLive(state, now)
+                        && stripes.compareAndSet(slot, state, stateOf(fingerprint, expiry, failures)))
+                {
+                    return;
+                }
+                continue;
+            }
+
+            final int victim = victimOf(bucket, now);
+            final long state = stripes.get(victim);
+            if (isLive(state, now))
+            {
+                // Raised before the slot changes hands, so the count is never lost
+                raiseEvicted(bucket / ways, state, now);
+            }
+            final long failures = Math.min(evictedFailures(bucket / ways, now) + 1L, maxFailures);
+            if (stripes.compareAndSet(victim, state, stateOf(fingerprint, expiry, failures)))
+            {
+                return;
+            }
+        }
+    }
+
+    // A free slot of the bucket, or else the one with the fewest failures, soonest to expire
+    private int victimOf(final int bucket,
+                         final long now)
+    {
+        int victim = bucket;
+        long victimState = stripes.get(bucket);
+        for (int slot = bucket; slot < bucket + ways; slot++)
+        {
+            final long state = stripes.get(slot);
+            if (!isLive(state, now))
+            {
+                return slot;
+            }
+            if (weightOf(state) < weightOf(victimState))
+            {
+                victim = slot;
+                victimState = state;
+            }
+        }
+        return victim;
+    }
+
+    // Failures first, then expiry: the order in which slots are given up
+    private static long weightOf(final long state)
+    {
+        return (state & FAILURE_MASK) << EXPIRY_BITS | (state >>> FAILURE_BITS) & EXPIRY_MASK;
+    }
+
+    // Remembers a count given up, until it would have expired
+    private void raiseEvicted(final int index,
+                              final long state,
+                              final long now)
+    {
+        while (true)
+        {
+            final long current = evicted.get(index);
+            final long live = isLive(current, now) ? current : 0L;
+            final long failures = Math.max(live & FAILURE_MASK, state & FAILURE_MASK);
+            final long expiry = Math.max((live >>> FAILURE_BITS) & EXPIRY_MASK, (state >>> FAILURE_BITS) & EXPIRY_MASK);
+            final long raised = stateOf(0L, expiry, failures);
+            if (raised == current || evicted.compareAndSet(index, current, raised))
+            {
+                return;
+            }
+        }
+    }
+
+    private long evictedFailures(final int index,
+                                 final long now)
+    {
+        final long state = evicted.get(index);
+        return isLive(state, now) ? state & FAILURE_MASK : 0L;
+    }
+
+    private boolean isLocked(final long state,
+                             final long now)
+    {
+        return (state & FAILURE_MASK) >= maxFailures && isLive(state, now);
+    }
+
+    private static boolean isLive(final long state,
+                                  final long now)
+    {
+        return ((state >>> FAILURE_BITS) & EXPIRY_MASK) > now;
+    }
+
+    private static long stateOf(final long fingerprint,
+                                final long expiry,
+                                final long failures)
+    {
+        return fingerprint << FINGERPRINT_SHIFT | expiry << FAILURE_BITS | failures;
+    }
+
+    private static long ownerOf(final long state)
+    {
+        return state >>> FINGERPRINT_SHIFT;
+    }
+
+    // First slot of the key's bucket
+    private int bucketOf(final long key)
+    {
+        // Fibonacci hashing: the top bits of the product are the best mixed
+        return ((int) ((key * MIX_MULTIPLIER) >>> bucketShift) & bucketMask) * ways;
+    }
+
+    // The 16 bits just below those that chose the bucket
+    private long fingerprintOf(final long key)
+    {
+        return ((key * MIX_MULTIPLIER) >>> (bucketShift - FINGERPRINT_BITS)) & FINGERPRINT_MASK;
+    }
+
+    private static LongSupplier monotonicMillis()
+    {
+        final long origin = System.nanoTime();
+        return () -> (System.nanoTime() - origin) / NANOS_PER_MILLI;
+    }
+
+    private static MessageDigest newDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (final NoSuchAlgorithmException e)
+        {
+            // Every Java platform is required to provide SHA-256
+            throw new IllegalStateException(HASH_ALGORITHM + " is not available.", e);
+        }
+    }
+
+    // A digest and its scratch buffer, lent to one caller at a time
+    private static final class Hasher
+    {
+        private final MessageDigest digest;
+        private final ByteBuffer scratch;
+        private int home;
+
+        private Hasher()
+        {
+            this.digest = newDigest();
+            this.scratch = ByteBuffer.allocate(HASH_LENGTH);
+        }
+
+        // Takes an idle hasher near this thread's home slot, or makes a new one
+        private static Hasher acquire()
+        {
+            final int start = (int) Thread.currentThread().threadId();
+            for (int i = 0; i < HASHER_PROBES; i++)
+            {
+                final int slot = (start + i) & (HASHER_POOL_SIZE - 1);
+                final Hasher hasher = HASHERS.getAndSet(slot, null);
+                if (hasher != null)
+                {
+                    hasher.home = slot;
+                    return hasher;
+                }
+            }
+            final Hasher hasher = new Hasher();
+            hasher.home = start & (HASHER_POOL_SIZE - 1);
+            return hasher;
+        }
+
+        // Puts the hasher back; if its slot was refilled meanwhile it is dropped
+        private void release()
+        {
+            digest.reset();
+            HASHERS.compareAndSet(home, null, this);
+        }
+    }
+}
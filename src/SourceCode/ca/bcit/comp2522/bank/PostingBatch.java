@@ -0,0 +1,151 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Posts many deposits and withdrawals in one call.
+ * Each posting is a signed amount in cents: positive is a deposit,
+ * negative is a withdrawal. All postings for one account are applied
+ * together in a single atomic balance update, in batch order. Instead of
+ * throwing per item, the result is a compact vector of result codes.
+ *
+ * @author Nazanin Mohsenimehr
+ * @version 1.0
+ */
+public final class PostingBatch
+{
+    /** The posting was applied. */
+    public static final byte OK = 0;
+
+    /** The amount was zero (or cannot be negated). */
+    public static final byte INVALID_AMOUNT = 1;
+
+    /** A withdrawal was larger than the balance at that point in the batch. */
+    public static final byte INSUFFICIENT_FUNDS = 2;
+
+    /** The posting had no account. */
+    public static final byte NO_ACCOUNT = 3;
+
+    /** A deposit would overflow the balance. */
+    public static final byte OVERFLOW = 4;
+
+    private PostingBatch()
+    {
+    }
+
+    /**
+     * Posts a batch of signed amounts to one account.
+     *
+     * @param account the account to post to (non-null)
+     * @param amountsCents signed amounts in cents (non-null)
+     * @return one result code per posting
+     * @throws IllegalArgumentException if the batch itself is malformed
+     */
+    public static byte[] post(final BankAccount account,
+                              final long[] amountsCents)
+    {
+        if (account == null)
+        {
+            throw new IllegalArgumentException("Account must not be null.");
+        }
+        validateAmounts(amountsCents);
+
+        final int count = amountsCents.length;
+        final int[] order = new int[count];
+        for (int i = 0; i < count; i++)
+        {
+            order[i] = i;
+        }
+
+        final byte[] results = new byte[count];
+        account.applyPostings(amountsCents, order, 0, count, results);
+        return results;
+    }
+
+    /**
+     * Posts a batch of signed amounts across many accounts.
+     * accounts[i] receives amountsCents[i].
+     *
+     * @param accounts the account for each posting (entries may be null)
+     * @param amountsCents signed amounts in cents
+     * @return one result code per posting
+     * @throws IllegalArgumentException if the batch itself is malformed
+     */
+    public static byte[] post(final BankAccount[] accounts,
+                              final long[] amountsCents)
+    {
+        if (accounts == null)
+        {
+            throw new IllegalArgumentException("Accounts must not be null.");
+        }
+        validateAmounts(amountsCents);
+        if (accounts.length != amountsCents.length)
+        {
+            throw new IllegalArgumentException("Accounts and amounts must have the same length.");
+        }
+
+        final int count = accounts.length;
+        final byte[] results = new byte[count];
+
+        // Number the distinct accounts, then counting-sort posting indexes by
+        // account so each account's postings sit in one run, in batch order.
+        final Map<BankAccount, Integer> groups = new IdentityHashMap<>();
+        final int[] groupOf = new int[count];
+        for (int i = 0; i < count; i++)
+        {
+            if (accounts[i] == null)
+            {
+                groupOf[i] = -1;
+                results[i] = NO_ACCOUNT;
+                continue;
+            }
+            Integer group = groups.get(accounts[i]);
+            if (group == null)
+            {
+                group = groups.size();
+                groups.put(accounts[i], group);
+            }
+            groupOf[i] = group;
+        }
+
+        final int groupCount = groups.size();
+        final int[] starts = new int[groupCount + 1];
+        for (int i = 0; i < count; i++)
+        {
+            if (groupOf[i] >= 0)
+            {
+                starts[groupOf[i] + 1]++;
+            }
+        }
+        for (int g = 0; g < groupCount; g++)
+        {
+            starts[g + 1] += starts[g];
+        }
+
+        final int[] order = new int[starts[groupCount]];
+        final int[] next = starts.clone();
+        for (int i = 0; i < count; i++)
+        {
+            if (groupOf[i] >= 0)
+            {
+                order[next[groupOf[i]]++] = i;
+            }
+        }
+
+        for (int g = 0; g < groupCount; g++)
+        {
+            final int first = order[starts[g]];
+            accounts[first].applyPostings(amountsCents, order, starts[g], starts[g + 1], results);
+        }
+        return results;
+    }
+
+    private static void validateAmounts(final long[] amountsCents)
+    {
+        if (amountsCents == null)
+        {
+            throw new IllegalArgumentException("Amounts must not be null.");
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streams account and client statements to a byte channel, one per line.
+ * The text of each line is exactly what BankAccount.getDetails() or
+ * BankClient.getDetails() returns, but it is encoded as UTF-8 straight into
+ * one reusable buffer: day and month names and the fixed phrases are
+ * pre-encoded, numbers are written digit by digit, and no String.format,
+ * StringBuilder or intermediate String is involved. Output is therefore
+ * bound by I/O rather than allocation.
+ *
+ * Not thread-safe; use one writer per output.
+ *
+ * @author Nazanin Mohsenimehr
+ * @version 1.0
+ */
+public final class StatementWriter implements AutoCloseable
+{
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_LONG_DIGITS = 20;
+    private static final int DECIMAL_RADIX = 10;
+
+    // Indexed by Date.getDayOfTheWeek(): 0 = Saturday ... 6 = Friday
+    private static final byte[][] DAY_NAMES = encodeAll(
+            "Saturday", "Sunday", "Monday", "Tuesday", "Wednesday", "Thursday", "Friday");
+
+    // Indexed by month number; slot 0 unused
+    private static final byte[][] MONTH_NAMES = encodeAll(
+            "", "January", "February", "March", "April", "May", "June",
+            "July", "August", "September", "October", "November", "December");
+
+    private static final byte[] HAD = encode(" had $");
+    private static final byte[] IN_ACCOUNT = encode(" USD in account #");
+    private static final byte[] OPENED_ON = encode(" which was opened on ");
+    private static final byte[] AND_CLOSED = encode(" and closed ");
+    private static final byte[] STILL_OPEN = encode(" and is still open.");
+    private static final byte[] CLIENT_NUMBER = encode(" client #");
+    private static final byte[] ALIVE = encode(" (alive)");
+    private static final byte[] DIED = encode(" (died ");
+    private static final byte[] JOINED = encode(" joined the bank on ");
+    private static final byte[] COMMA_SPACE = encode(", ");
+
+    private static final byte SPACE = ' ';
+    private static final byte PERIOD = '.';
+    private static final byte CLOSE_PAREN = ')';
+    private static final byte MINUS = '-';
+    private static final byte NEWLINE = '\n';
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final byte[] digits;
+
+    /**
+     * Constructs a writer over a channel.
+     *
+     * @param channel where statements go (non-null)
+     */
+    public StatementWriter(final WritableByteChannel channel)
+    {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructs a writer over a channel with a given buffer size.
+     *
+     * @param channel where statements go (non-null)
+     * @param bufferSize buffer size in bytes (at least 20)
+     */
+    public StatementWriter(final WritableByteChannel channel,
+                           final int bufferSize)
+    {
+        if (channel == null)
+        {
+            throw new IllegalArgumentException("Channel must not be null.");
+        }
+        if (bufferSize < MAX_LONG_DIGITS)
+        {
+            throw new IllegalArgumentException("Buffer size is too small: " + bufferSize);
+        }
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.digits = new byte[MAX_LONG_DIGITS];
+    }
+
+    /**
+     * Constructs a writer over an output stream.
+     *
+     * @param out where statements go (non-null)
+     */
+    public StatementWriter(final OutputStream out)
+    {
+        this(Channels.newChannel(out));
+    }
+
+    /**
+     * Writes the same text as account.getDetails(), followed by a newline.
+     * Balance and closing date come from one version of the account, so a
+     * statement never pairs a balance with a closure it has not seen.
+     *
+     * @param account the account (non-null)
+     * @throws IOException if writing fails
+     */
+    public void writeAccount(final BankAccount account) throws IOException
+    {
+        final BalanceVersion current = account.currentVersion();
+        putText(account.getClient().getName().getFullName());
+        put(HAD);
+        putLong(Money.toWholeDollars(current.balanceCents(), RoundingMode.HALF_UP));
+        put(IN_ACCOUNT);
+        putText(account.getAccountNumber());
+        put(OPENED_ON);
+        putLongDate(account.getAccountOpened());
+
+        final Date closed = current.closed();
+        if (closed != null)
+        {
+            put(AND_CLOSED);
+            putLongDate(closed);
+            put(PERIOD);
+        } else
+        {
+            put(STILL_OPEN);
+        }
+        put(NEWLINE);
+    }
+
+    /**
+     * Writes the same text as client.getDetails(), followed by a newline.
+     *
+     * @param client the client (non-null)
+     * @throws IOException if writing fails
+     */
+    public void writeClient(final BankClient client) throws IOException
+    {
+        putText(client.getName().getFullName());
+        put(CLIENT_NUMBER);
+        putText(client.getClientID());
+        if (client.isAlive())
+        {
+            put(ALIVE);
+        } else
+        {
+            put(DIED);
+            putNumericDate(client.getDateDied());
+            put(CLOSE_PAREN);
+        }
+        put(JOINED);
+        putNumericDate(client.getSignupDate());
+        put(NEWLINE);
+    }
+
+    /**
+     * Writes everything buffered so far to the channel.
+     *
+     * @throws IOException if writing fails
+     */
+    public void flush() throws IOException
+    {
+        buffer.flip();
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Flushes and closes the channel.
+     *
+     * @throws IOException if writing or closing fails
+     */
+    @Override
+    public void close() throws IOException
+    {
+        flush();
+        channel.close();
+    }
+
+    // "Monday January 1, 1900", as BankAccount prints dates
+    private void putLongDate(final Date date) throws IOException
+    {
+        put(DAY_NAMES[date.getDayOfTheWeek()]);
+        put(SPACE);
+        put(MONTH_NAMES[date.getMonth()]);
+        put(SPACE);
+        putLong(date.getDay());
+        put(COMMA_SPACE);
+        putLong(date.getYear());
+    }
+
+    // "2, 1 1, 1900" (day-of-week index, month, day, year), as BankClient prints dates
+    private void putNumericDate(final Date date) throws IOException
+    {
+        putLong(date.getDayOfTheWeek());
+        put(COMMA_SPACE);
+        putLong(date.getMonth());
+        put(SPACE);
+        putLong(date.getDay());
+        put(COMMA_SPACE);
+        putLong(date.getYear());
+    }
+
+    private void putLong(final long value) throws IOException
+    {
+        ensure(MAX_LONG_DIGITS);
+        if (value < 0)
+        {
+            buffer.put(MINUS);
+        }
+        long rest = value;
+        int count = 0;
+        do
+        {
+            digits[count++] = (byte) ('0' + Math.abs(rest % DECIMAL_RADIX));
+            rest /= DECIMAL_RADIX;
+        } while (rest != 0);
+        while (count > 0)
+        {
+            buffer.put(digits[--count]);
+        }
+    }
+
+    // UTF-8 encodes a String without allocating
+    private void putText(final String text) throws IOException
+    {
+        final int length = text.length();
+        for (int i = 0; i < length; i++)
+        {
+            final char c = text.charAt(i);
+            if (c < 0x80)
+            {
+                put((byte) c);
+            } else if (c < 0x800)
+            {
+                ensure(2);
+                buffer.put((byte) (0xC0 | (c >> 6)))
+                        .put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(text.charAt(i + 1)))
+            {
+                final int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                ensure(4);
+                buffer.put((byte) (0xF0 | (codePoint >> 18)))
+                        .put((byte) (0x80 | ((codePoint >> 12) & 0x3F)))
+                        .put((byte) (0x80 | ((codePoint >> 6) & 0x3F)))
+                        .put((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c))
+            {
+                put((byte) '?'); // unpaired surrogate, as String.getBytes(UTF_8) does
+            } else
+            {
+                ensure(3);
+                buffer.put((byte) (0xE0 | (c >> 12)))
+                        .put((byte) (0x80 | ((c >> 6) & 0x3F)))
+                        .put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    private void put(final byte[] bytes) throws IOException
+    {
+        ensure(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private void put(final byte b) throws IOException
+    {
+        ensure(1);
+        buffer.put(b);
+    }
+
+    private void ensure(final int bytes) throws IOException
+    {
+        if (buffer.remaining() < bytes)
+        {
+            flush();
+        }
+    }
+
+    private static byte[][] encodeAll(final String... texts)
+    {
+        final byte[][] encoded = new byte[texts.length][];
+        for (int i = 0; i < texts.length; i++)
+        {
+            encoded[i] = encode(texts[i]);
+        }
+        return encoded;
+    }
+
+    private static byte[] encode(final String text)
+    {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
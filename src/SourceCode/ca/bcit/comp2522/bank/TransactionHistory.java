@@ -0,0 +1,522 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.Arrays;
+
+/**
+ * Append-only posting history of one account, for date-range queries such
+ * as "postings of account #654321 between two dates".
+ *
+ * Postings are kept in chunks of parallel primitive arrays (epoch day as
+ * an int, amount in cents as a long, type as a byte), not one object each,
+ * so a posting costs 13 bytes. Chunks hold 1024 postings. The newest chunk
+ * grows as needed, so an account with a few postings stays small.
+ * {@link #compact()} packs full chunks into variable-length bytes: the day
+ * as a zig-zag delta from the previous posting, together with the type,
+ * then the amount. With postings a few days apart and amounts under
+ * $1,638.40 that is 3 bytes a posting, and never more than 15.
+ *
+ * Days are normally appended in order. A range query then binary-searches
+ * the chunks by their first and last day, and the days inside a raw chunk.
+ * A posting dated before the last one is still accepted; its chunk is
+ * marked unsorted and scanned instead.
+ *
+ * Thread-safe: every method locks the history. Visitors run while the
+ * lock is held, so they must not post to the same account.
+ *
+ * @author Nazanin Mohsenimehr
+ * @version 1.0
+ */
+public final class TransactionHistory
+{
+    /** A teller or batch deposit. */
+    public static final byte DEPOSIT = 1;
+
+    /** A teller or batch withdrawal. */
+    public static final byte WITHDRAWAL = 2;
+
+    /** Money received by a transfer. */
+    public static final byte TRANSFER_IN = 3;
+
+    /** Money sent by a transfer. */
+    public static final byte TRANSFER_OUT = 4;
+
+    /** Net end-of-day interest. */
+    public static final byte INTEREST = 5;
+
+    /** Net end-of-day fees. */
+    public static final byte FEE = 6;
+
+    private static final int CHUNK_SIZE = 1024;
+    private static final int INITIAL_CAPACITY = 8;
+    private static final int INITIAL_CHUNKS = 4;
+
+    // Packed entry: varint(zigzag(day delta) << TYPE_BITS | type), varint(amount)
+    private static final int TYPE_BITS = 3;
+    private static final int TYPE_MASK = (1 << TYPE_BITS) - 1;
+    private static final int VARINT_BITS = 7;
+    private static final int VARINT_MASK = (1 << VARINT_BITS) - 1;
+    private static final int VARINT_MORE = 1 << VARINT_BITS;
+    private static final int MAX_PACKED_ENTRY = 15;
+
+    private Chunk[] chunks = new Chunk[INITIAL_CHUNKS];
+    private int chunkCount;
+    private int[] days = new int[INITIAL_CAPACITY];
+    private long[] amounts = new long[INITIAL_CAPACITY];
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    private int tailSize;
+    private boolean tailSorted = true;
+    private boolean chunksInOrder = true;
+    private int lastDay = Integer.MIN_VALUE;
+    private long size;
+
+    /**
+     * Receives the postings of a query, oldest first.
+     */
+    @FunctionalInterface
+    public interface Visitor
+    {
+        /**
+         * Receives one posting.
+         *
+         * @param epochDay the posting day (days since 1970-01-01)
+         * @param type the posting type, such as {@link #DEPOSIT}
+         * @param amountCents the amount in cents, always positive
+         */
+        void accept(int epochDay, byte type, long amountCents);
+    }
+
+    // A full chunk, raw or packed
+    private static final class Chunk
+    {
+        private final int count;
+        private final int firstDay;
+        private final int minDay;
+        private final int maxDay;
+        private final boolean sorted;
+        private int[] days;
+        private long[] amounts;
+        private byte[] types;
+        private byte[] packed; // non-null once compacted; the arrays are then null
+
+        private Chunk(final int[] days,
+                      final long[] amounts,
+                      final byte[] types,
+                      final int count,
+                      final boolean sorted)
+        {
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            for (int i = 0; i < count; i++)
+            {
+                min = Math.min(min, days[i]);
+                max = Math.max(max, days[i]);
+            }
+            this.days = days;
+            this.amounts = amounts;
+            this.types = types;
+            this.count = count;
+            this.firstDay = days[0];
+            this.minDay = min;
+            this.maxDay = max;
+            this.sorted = sorted;
+        }
+    }
+
+    /**
+     * Constructs an empty history.
+     */
+    public TransactionHistory()
+    {
+    }
+
+    /**
+     * Returns the epoch day of {@link Date#today()}, used for postings made
+     * without a date, so they can be found again by Date.
+     *
+     * @return days since 1970-01-01
+     */
+    public static int today()
+    {
+        return Date.today().getEpochDay();
+    }
+
+    /**
+     * Appends a posting.
+     *
+     * @param epochDay the posting day (days since 1970-01-01)
+     * @param type the posting type, {@link #DEPOSIT} to {@link #FEE}
+     * @param amountCents the amount in cents; must be > 0
+     * @throws IllegalArgumentException if the type or amount is invalid
+     */
+    public synchronized void append(final int epochDay,
+                                    final byte type,
+                                    final long amountCents)
+    {
+        if (type < DEPOSIT || type > FEE)
+        {
+            throw new IllegalArgumentException("Unknown posting type: " + type);
+        }
+        if (amountCents <= 0L)
+        {
+            throw new IllegalArgumentException("Posting amount must be positive.");
+        }
+        if (tailSize == days.length)
+        {
+            if (tailSize == CHUNK_SIZE)
+            {
+                sealTail();
+            } else
+            {
+                final int capacity = Math.min(CHUNK_SIZE, tailSize * 2);
+                days = Arrays.copyOf(days, capacity);
+                amounts = Arrays.copyOf(amounts, capacity);
+                types = Arrays.copyOf(types, capacity);
+            }
+        }
+        if (epochDay < lastDay)
+        {
+            tailSorted = false;
+        }
+        days[tailSize] = epochDay;
+        amounts[tailSize] = amountCents;
+        types[tailSize] = type;
+        tailSize++;
+        lastDay = Math.max(lastDay, epochDay);
+        size++;
+    }
+
+    /**
+     * Returns how many postings were appended.
+     *
+     * @return the number of postings
+     */
+    public synchronized long size()
+    {
+        return size;
+    }
+
+    /**
+     * Visits the postings dated within a range, oldest first.
+     *
+     * @param from the first day (inclusive, non-null)
+     * @param to the last day (inclusive, non-null)
+     * @param visitor receives each posting
+     */
+    public void forEach(final Date from,
+                        final Date to,
+                        final Visitor visitor)
+    {
+        requireRange(from, to);
+        forEach(from.getEpochDay(), to.getEpochDay(), visitor);
+    }
+
+    /**
+     * Visits the postings dated within a range, oldest first.
+     *
+     * @param range the days to visit (non-null)
+     * @param visitor receives each posting
+     */
+    public void forEach(final DateRange range,
+                        final Visitor visitor)
+    {
+        if (range == null)
+        {
+            throw new IllegalArgumentException("Range must not be null.");
+        }
+        forEach(range.getFirst().getEpochDay(), range.getLast().getEpochDay(), visitor);
+    }
+
+    /**
+     * Visits the postings dated within a range of epoch days. Postings are
+     * visited in the order they were appended.
+     *
+     * @param fromEpochDay the first day (inclusive)
+     * @param toEpochDay the last day (inclusive)
+     * @param visitor receives each posting (non-null)
+     */
+    public synchronized void forEach(final int fromEpochDay,
+                                     final int toEpochDay,
+                                     final Visitor visitor)
+    {
+        if (visitor == null)
+        {
+            throw new IllegalArgumentException("Visitor must not be null.");
+        }
+        if (fromEpochDay > toEpochDay)
+        {
+            return;
+        }
+        for (int c = firstChunkFrom(fromEpochDay); c < chunkCount; c++)
+        {
+            final Chunk chunk = chunks[c];
+            if (chunksInOrder && chunk.minDay > toEpochDay)
+            {
+                break;
+            }
+            if (chunk.maxDay >= fromEpochDay && chunk.minDay <= toEpochDay)
+            {
+                visitChunk(chunk, fromEpochDay, toEpochDay, visitor);
+            }
+        }
+        visitRaw(days, amounts, types, tailSize, tailSorted, fromEpochDay, toEpochDay, visitor);
+    }
+
+    /**
+     * Counts the postings dated within a range.
+     *
+     * @param from the first day (inclusive, non-null)
+     * @param to the last day (inclusive, non-null)
+     * @return the number of postings
+     */
+    public long count(final Date from,
+                      final Date to)
+    {
+        final long[] count = new long[1];
+        forEach(from, to, (day, type, amount) -> count[0]++);
+        return count[0];
+    }
+
+    /**
+     * Returns money in minus money out over the postings dated within a range.
+     *
+     * @param from the first day (inclusive, non-null)
+     * @param to the last day (inclusive, non-null)
+     * @return the net change in cents
+     */
+    public long netCents(final Date from,
+                         final Date to)
+    {
+        final long[] net = new long[1];
+        forEach(from, to, (day, type, amount) -> net[0] = Money.add(net[0], isCredit(type) ? amount : -amount));
+        return net[0];
+    }
+
+    /**
+     * Packs every full chunk that is not packed yet. Queries keep working
+     * and decode packed chunks as they go.
+     *
+     * @return how many bytes of posting data were saved
+     */
+    public synchronized long compact()
+    {
+        long saved = 0L;
+        final byte[] buffer = new byte[CHUNK_SIZE * MAX_PACKED_ENTRY];
+        for (int c = 0; c < chunkCount; c++)
+        {
+            final Chunk chunk = chunks[c];
+            if (chunk.packed == null)
+            {
+                int position = 0;
+                int previousDay = chunk.firstDay;
+                for (int i = 0; i < chunk.count; i++)
+                {
+                    final long delta = (long) chunk.days[i] - previousDay;
+                    previousDay = chunk.days[i];
+                    position = putVarint(buffer, position, zigZag(delta) << TYPE_BITS | chunk.types[i]);
+                    position = putVarint(buffer, position, chunk.amounts[i]);
+                }
+                chunk.packed = Arrays.copyOf(buffer, position);
+                chunk.days = null;
+                chunk.amounts = null;
+                chunk.types = null;
+                saved += rawBytes(chunk.count) - position;
+            }
+        }
+        return saved;
+    }
+
+    /**
+     * Returns the bytes held by posting data, raw and packed, not counting
+     * array and object headers.
+     *
+     * @return the size in bytes
+     */
+    public synchronized long dataBytes()
+    {
+        long bytes = rawBytes(days.length);
+        for (int c = 0; c < chunkCount; c++)
+        {
+            final Chunk chunk = chunks[c];
+            bytes += chunk.packed == null ? rawBytes(chunk.count) : chunk.packed.length;
+        }
+        return bytes;
+    }
+
+    /**
+     * Tells whether a posting type adds money to the account.
+     *
+     * @param type the posting type
+     * @return true for deposits, incoming transfers and interest
+     */
+    public static boolean isCredit(final byte type)
+    {
+        return type == DEPOSIT || type == TRANSFER_IN || type == INTEREST;
+    }
+
+    private void sealTail()
+    {
+        if (chunkCount == chunks.length)
+        {
+            chunks = Arrays.copyOf(chunks, chunkCount * 2);
+        }
+        final Chunk chunk = new Chunk(days, amounts, types, tailSize, tailSorted);
+        if (!chunk.sorted || chunkCount > 0 && chunk.minDay < chunks[chunkCount - 1].maxDay)
+        {
+            chunksInOrder = false;
+        }
+        chunks[chunkCount++] = chunk;
+        days = new int[CHUNK_SIZE];
+        amounts = new long[CHUNK_SIZE];
+        types = new byte[CHUNK_SIZE];
+        tailSize = 0;
+        tailSorted = true;
+    }
+
+    // With chunks in day order, the first chunk that can hold fromEpochDay; otherwise 0
+    private int firstChunkFrom(final int fromEpochDay)
+    {
+        if (!chunksInOrder)
+        {
+            return 0;
+        }
+        int low = 0;
+        int high = chunkCount;
+        while (low < high)
+        {
+            final int mid = (low + high) >>> 1;
+            if (chunks[mid].maxDay < fromEpochDay)
+            {
+                low = mid + 1;
+            } else
+            {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static void visitChunk(final Chunk chunk,
+                                   final int fromEpochDay,
+                                   final int toEpochDay,
+                                   final Visitor visitor)
+    {
+        if (chunk.packed == null)
+        {
+            visitRaw(chunk.days, chunk.amounts, chunk.types, chunk.count, chunk.sorted,
+                    fromEpochDay, toEpochDay, visitor);
+            return;
+        }
+        final byte[] packed = chunk.packed;
+        int position = 0;
+        long day = chunk.firstDay;
+        for (int i = 0; i < chunk.count; i++)
+        {
+            long header = 0L;
+            int shift = 0;
+            int b;
+            do
+            {
+                b = packed[position++];
+                header |= (long) (b & VARINT_MASK) << shift;
+                shift += VARINT_BITS;
+            } while ((b & VARINT_MORE) != 0);
+            long amount = 0L;
+            shift = 0;
+            do
+            {
+                b = packed[position++];
+                amount |= (long) (b & VARINT_MASK) << shift;
+                shift += VARINT_BITS;
+            } while ((b & VARINT_MORE) != 0);
+
+            day += unZigZag(header >>> TYPE_BITS);
+            if (day > toEpochDay && chunk.sorted)
+            {
+                return;
+            }
+            if (day >= fromEpochDay && day <= toEpochDay)
+            {
+                visitor.accept((int) day, (byte) (header & TYPE_MASK), amount);
+            }
+        }
+    }
+
+    private static void visitRaw(final int[] days,
+                                 final long[] amounts,
+                                 final byte[] types,
+                                 final int count,
+                                 final boolean sorted,
+                                 final int fromEpochDay,
+                                 final int toEpochDay,
+                                 final Visitor visitor)
+    {
+        if (!sorted)
+        {
+            for (int i = 0; i < count; i++)
+            {
+                if (days[i] >= fromEpochDay && days[i] <= toEpochDay)
+                {
+                    visitor.accept(days[i], types[i], amounts[i]);
+                }
+            }
+            return;
+        }
+        // First index whose day is >= fromEpochDay
+        int low = 0;
+        int high = count;
+        while (low < high)
+        {
+            final int mid = (low + high) >>> 1;
+            if (days[mid] < fromEpochDay)
+            {
+                low = mid + 1;
+            } else
+            {
+                high = mid;
+            }
+        }
+        for (int i = low; i < count && days[i] <= toEpochDay; i++)
+        {
+            visitor.accept(days[i], types[i], amounts[i]);
+        }
+    }
+
+    private static int putVarint(final byte[] buffer,
+                                 final int start,
+                                 final long value)
+    {
+        int position = start;
+        long rest = value;
+        while ((rest & ~(long) VARINT_MASK) != 0L)
+        {
+            buffer[position++] = (byte) ((rest & VARINT_MASK) | VARINT_MORE);
+            rest >>>= VARINT_BITS;
+        }
+        buffer[position++] = (byte) rest;
+        return position;
+    }
+
+    private static long zigZag(final long value)
+    {
+        return (value << 1) ^ (value >> (Long.SIZE - 1));
+    }
+
+    private static long unZigZag(final long value)
+    {
+        return (value >>> 1) ^ -(value & 1L);
+    }
+
+    private static long rawBytes(final int postings)
+    {
+        return (long) postings * (Integer.BYTES + Long.BYTES + Byte.BYTES);
+    }
+
+    private static void requireRange(final Date from,
+                                     final Date to)
+    {
+        if (from == null || to == null)
+        {
+            throw new IllegalArgumentException("Dates must not be null.");
+        }
+    }
+}
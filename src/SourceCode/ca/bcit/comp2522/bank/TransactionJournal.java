@@ -0,0 +1,428 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only write-ahead journal of account postings with group commit.
+ * Callers append 32-byte checksummed records into a shared buffer, and one
+ * background thread writes and fsyncs everything that has piled up, then
+ * wakes all the callers it covered. Many concurrent postings therefore
+ * share a single fsync. An optional commit window makes the flusher wait a
+ * little before each fsync so that larger groups form.
+ *
+ * Accounts use it write-ahead: a posting's record is durable before the
+ * posting returns or a snapshot can see it. An account appends under its
+ * monitor but waits without it, so one busy account's postings can share
+ * a group as well.
+ *
+ * Record layout (little-endian): account key (long), amount in cents
+ * (long), epoch day (int), type (byte), 7 bytes padding, CRC32C of the
+ * first 28 bytes (int).
+ *
+ * On open, a torn or corrupt tail left by a crash is truncated away.
+ *
+ * @author Nazanin Mohsenimehr
+ * @version 1.0
+ */
+public final class TransactionJournal implements AutoCloseable
+{
+    /** Record type for a deposit. */
+    public static final byte DEPOSIT = 1;
+
+    /** Record type for a withdrawal. */
+    public static final byte WITHDRAW = 2;
+
+    /** Record type for closing an account. */
+    public static final byte CLOSE = 3;
+
+    /** Epoch day written for postings that carry no date. */
+    public static final int NO_DATE = Integer.MIN_VALUE;
+
+    private static final int RECORD_SIZE = 32;
+    private static final int KEY_OFFSET = 0;
+    private static final int AMOUNT_OFFSET = 8;
+    private static final int DATE_OFFSET = 16;
+    private static final int TYPE_OFFSET = 20;
+    private static final int CHECKSUM_OFFSET = 28;
+
+    private static final int BUFFER_RECORDS = 4096;
+    private static final int REPLAY_CHUNK_RECORDS = 1024;
+
+    private final FileChannel channel;
+    private final long windowNanos;
+    private final ReentrantLock lock;
+    private final Condition pendingWork;
+    private final Condition durable;
+    private final Condition spaceAvailable;
+    private final Thread flusher;
+    private final CRC32C crc;
+    private final byte[] checksumScratch;
+
+    private ByteBuffer filling;
+    private ByteBuffer writing;
+    private long appendedSequence;
+    private long durableSequence;
+    private IOException failure;
+    private boolean closed;
+
+    private TransactionJournal(final FileChannel channel,
+                               final long windowNanos)
+    {
+        this.channel = channel;
+        this.windowNanos = windowNanos;
+        this.lock = new ReentrantLock();
+        this.pendingWork = lock.newCondition();
+        this.durable = lock.newCondition();
+        this.spaceAvailable = lock.newCondition();
+        this.filling = newBuffer();
+        this.writing = newBuffer();
+        this.crc = new CRC32C();
+        this.checksumScratch = new byte[CHECKSUM_OFFSET];
+        this.flusher = new Thread(this::flushLoop, "journal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Opens a journal for appending, creating it if needed.
+     *
+     * @param path the journal file
+     * @param commitWindow how long the flusher waits to gather a group (zero for none)
+     * @param unit the unit of commitWindow
+     * @return the open journal
+     * @throws IOException if the file cannot be opened
+     */
+    public static TransactionJournal open(final Path path,
+                                          final long commitWindow,
+                                          final TimeUnit unit) throws IOException
+    {
+        if (path == null || unit == null)
+        {
+            throw new IllegalArgumentException("Path and unit must not be null.");
+        }
+        if (commitWindow < 0)
+        {
+            throw new IllegalArgumentException("Commit window must not be negative.");
+        }
+
+        final FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try
+        {
+            final long validEnd = scan(channel, null);
+            channel.truncate(validEnd);
+            channel.position(validEnd);
+        } catch (final IOException | RuntimeException e)
+        {
+            channel.close();
+            throw e;
+        }
+        return new TransactionJournal(channel, unit.toNanos(commitWindow));
+    }
+
+    /**
+     * Appends a record and returns its sequence number without waiting for it to be durable.
+     *
+     * @param accountKey the packed account number (see {@link AccountNumberCodec})
+     * @param type DEPOSIT, WITHDRAW or CLOSE
+     * @param amountCents the amount in cents (zero for CLOSE)
+     * @param epochDay the date of the record, or NO_DATE
+     * @return the sequence number to pass to {@link #awaitDurable(long)}
+     * @throws IllegalStateException if the journal is closed or has failed
+     */
+    public long append(final long accountKey,
+                       final byte type,
+                       final long amountCents,
+                       final int epochDay)
+    {
+        lock.lock();
+        try
+        {
+            while (!filling.hasRemaining() && !closed && failure == null)
+            {
+                spaceAvailable.awaitUninterruptibly();
+            }
+            checkUsable();
+
+            final int start = filling.position();
+            filling.putLong(start + KEY_OFFSET, accountKey)
+                    .putLong(start + AMOUNT_OFFSET, amountCents)
+                    .putInt(start + DATE_OFFSET, epochDay)
+                    .put(start + TYPE_OFFSET, type);
+            filling.putInt(start + CHECKSUM_OFFSET, checksum(filling, start, crc, checksumScratch));
+            filling.position(start + RECORD_SIZE);
+
+            pendingWork.signal();
+            return ++appendedSequence;
+        } finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until the record with the given sequence number has been fsynced.
+     *
+     * @param sequence a value returned by append
+     * @throws UncheckedIOException if the flush failed
+     */
+    public void awaitDurable(final long sequence)
+    {
+        lock.lock();
+        try
+        {
+            while (durableSequence < sequence && failure == null)
+            {
+                durable.awaitUninterruptibly();
+            }
+            if (durableSequence < sequence)
+            {
+                throw new UncheckedIOException("Journal flush failed.", failure);
+            }
+        } finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends a record and waits until it is durable.
+     *
+     * @param accountKey the packed account number
+     * @param type DEPOSIT, WITHDRAW or CLOSE
+     * @param amountCents the amount in cents (zero for CLOSE)
+     * @param epochDay the date of the record, or NO_DATE
+     */
+    public void commit(final long accountKey,
+                       final byte type,
+                       final long amountCents,
+                       final int epochDay)
+    {
+        awaitDurable(append(accountKey, type, amountCents, epochDay));
+    }
+
+    /**
+     * Replays a journal file into the accounts of a registry.
+     * Accounts should hold the balances they had when the journal was
+     * started (normally zero). Records for unknown accounts are skipped,
+     * and replay stops at the first torn or corrupt record.
+     *
+     * @param path the journal file
+     * @param registry where to find the accounts
+     * @return the number of records applied
+     * @throws IOException if the file cannot be read
+     */
+    public static long replay(final Path path,
+                              final BankRegistry registry) throws IOException
+    {
+        if (path == null || registry == null)
+        {
+            throw new IllegalArgumentException("Path and registry must not be null.");
+        }
+        final long[] applied = new long[1];
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            scan(channel, (key, type, amount, epochDay) -> {
+                final BankAccount account = registry.findAccount(AccountNumberCodec.decode(key));
+                if (account != null)
+                {
+                    account.applyJournaled(type, amount, epochDay);
+                    applied[0]++;
+                }
+            });
+        }
+        return applied[0];
+    }
+
+    /**
+     * Flushes everything appended so far, stops the flusher and closes the file.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException
+    {
+        lock.lock();
+        try
+        {
+            if (closed)
+            {
+                return;
+            }
+            closed = true;
+            pendingWork.signal();
+            spaceAvailable.signalAll();
+        } finally
+        {
+            lock.unlock();
+        }
+
+        try
+        {
+            flusher.join();
+        } catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    // Waits for records, optionally lingers for the commit window, then
+    // swaps buffers and writes and fsyncs the full one outside the lock.
+    private void flushLoop()
+    {
+        while (true)
+        {
+            final long groupEnd;
+            lock.lock();
+            try
+            {
+                while (filling.position() == 0 && !closed)
+                {
+                    pendingWork.awaitUninterruptibly();
+                }
+                if (filling.position() == 0)
+                {
+                    return;
+                }
+                if (windowNanos > 0 && !closed)
+                {
+                    long remaining = windowNanos;
+                    while (remaining > 0 && filling.hasRemaining() && !closed)
+                    {
+                        try
+                        {
+                            remaining = pendingWork.awaitNanos(remaining);
+                        } catch (final InterruptedException e)
+                        {
+                            remaining = 0;
+                        }
+                    }
+                }
+
+                final ByteBuffer full = filling;
+                filling = writing;
+                writing = full;
+                groupEnd = appendedSequence;
+                spaceAvailable.signalAll();
+            } finally
+            {
+                lock.unlock();
+            }
+
+            IOException error = null;
+            try
+            {
+                writing.flip();
+                while (writing.hasRemaining())
+                {
+                    channel.write(writing);
+                }
+                channel.force(false);
+            } catch (final IOException e)
+            {
+                error = e;
+            }
+            writing.clear();
+
+            lock.lock();
+            try
+            {
+                if (error != null)
+                {
+                    failure = error;
+                    durable.signalAll();
+                    spaceAvailable.signalAll();
+                    return;
+                }
+                durableSequence = groupEnd;
+                durable.signalAll();
+            } finally
+            {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void checkUsable()
+    {
+        if (failure != null)
+        {
+            throw new UncheckedIOException("Journal flush failed.", failure);
+        }
+        if (closed)
+        {
+            throw new IllegalStateException("Journal is closed.");
+        }
+    }
+
+    // Reads records from the start of the file, handing valid ones to the
+    // visitor (if any); returns the byte offset just past the last valid one.
+    private static long scan(final FileChannel channel,
+                             final RecordVisitor visitor) throws IOException
+    {
+        final ByteBuffer chunk = ByteBuffer.allocate(REPLAY_CHUNK_RECORDS * RECORD_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        final CRC32C crc = new CRC32C();
+        final byte[] scratch = new byte[CHECKSUM_OFFSET];
+        long position = 0;
+        while (true)
+        {
+            chunk.clear();
+            final int read = channel.read(chunk, position);
+            if (read < RECORD_SIZE)
+            {
+                return position;
+            }
+            for (int start = 0; start + RECORD_SIZE <= read; start += RECORD_SIZE)
+            {
+                if (chunk.getInt(start + CHECKSUM_OFFSET) != checksum(chunk, start, crc, scratch))
+                {
+                    return position;
+                }
+                if (visitor != null)
+                {
+                    visitor.visit(chunk.getLong(start + KEY_OFFSET),
+                            chunk.get(start + TYPE_OFFSET),
+                            chunk.getLong(start + AMOUNT_OFFSET),
+                            chunk.getInt(start + DATE_OFFSET));
+                }
+                position += RECORD_SIZE;
+            }
+        }
+    }
+
+    private static int checksum(final ByteBuffer buffer,
+                                final int start,
+                                final CRC32C crc,
+                                final byte[] scratch)
+    {
+        buffer.get(start, scratch);
+        crc.reset();
+        crc.update(scratch, 0, scratch.length);
+        return (int) crc.getValue();
+    }
+
+    private static ByteBuffer newBuffer()
+    {
+        return ByteBuffer.allocateDirect(BUFFER_RECORDS * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Receives records read back from a journal file.
+     */
+    private interface RecordVisitor
+    {
+        void visit(long accountKey, byte type, long amountCents, int epochDay);
+    }
+}
@@ -0,0 +1,304 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Moves money between accounts.
+ * A transfer holds the monitors of every account it touches, so no other
+ * transfer and no {@link BankAccount#close(Date)} can interleave with it,
+ * and it refuses closed accounts. Monitors are always taken in one global
+ * order (account number, then identity hash code, then a shared tie lock
+ * for the rare full tie), so two transfers can never wait on each other.
+ *
+ * Plain deposits and withdrawals stay lock-free and may run alongside a
+ * transfer; the money moved is never lost or duplicated either way.
+ *
+ * All legs of a transfer belong to one {@link BalanceVersion.Commit}, so a
+ * {@link BankSnapshot} sees the whole transfer or none of it.
+ *
+ * Legs on journaled accounts are written ahead. A journaled account
+ * cannot change while its monitor is held, so its legs are checked first
+ * and the answer stays true. Debits from accounts without a journal are
+ * posted next, since lock-free withdrawals may still drain them. Then the
+ * journaled legs are made durable together, and only then are the
+ * credits posted. A transfer that fails before its records are durable
+ * has only taken money out, which is put back, and leaves nothing in the
+ * journal.
+ *
+ * @author Nazanin Mohsenimehr
+ * @version 1.0
+ */
+public final class Transfers
+{
+    private static final Object TIE_LOCK = new Object();
+
+    private static final Comparator<BankAccount> LOCK_ORDER = Comparator
+            .comparing(BankAccount::getAccountNumber)
+            .thenComparingInt(System::identityHashCode);
+
+    private Transfers()
+    {
+    }
+
+    /**
+     * Moves an amount from one account to another.
+     *
+     * @param from the account to debit (non-null, open)
+     * @param to the account to credit (non-null, open, not from)
+     * @param amountCents amount in cents; must be > 0
+     * @throws IllegalArgumentException if an account is missing or closed,
+     *                                  the amount is invalid, or funds are insufficient
+     */
+    public static void transfer(final BankAccount from,
+                                final BankAccount to,
+                                final long amountCents)
+    {
+        validateLeg(from, to, amountCents);
+
+        final int order = LOCK_ORDER.compare(from, to);
+        final BankAccount first = order <= 0 ? from : to;
+        final BankAccount second = order <= 0 ? to : from;
+        if (order == 0)
+        {
+            synchronized (TIE_LOCK)
+            {
+                lockedTransfer(first, second, from, to, amountCents);
+            }
+        } else
+        {
+            lockedTransfer(first, second, from, to, amountCents);
+        }
+    }
+
+    /**
+     * Applies several transfers as one: either every leg happens or none.
+     * Legs are netted per account first, so each account only needs funds
+     * for its net outflow.
+     *
+     * @param from the account each leg debits (non-null elements)
+     * @param to the account each leg credits (non-null elements)
+     * @param amountsCents the amount of each leg in cents; each must be > 0
+     * @throws IllegalArgumentException if any leg is invalid, any account is
+     *                                  closed, or any account cannot cover its net outflow
+     */
+    public static void transfer(final BankAccount[] from,
+                                final BankAccount[] to,
+                                final long[] amountsCents)
+    {
+        if (from == null || to == null || amountsCents == null
+                || from.length != to.length || from.length != amountsCents.length)
+        {
+            throw new IllegalArgumentException("Each leg needs a from account, a to account and an amount.");
+        }
+
+        final Map<BankAccount, long[]> net = new IdentityHashMap<>();
+        for (int i = 0; i < amountsCents.length; i++)
+        {
+            validateLeg(from[i], to[i], amountsCents[i]);
+            final long[] out = net.computeIfAbsent(from[i], a -> new long[1]);
+            out[0] = Math.subtractExact(out[0], amountsCents[i]);
+            final long[] in = net.computeIfAbsent(to[i], a -> new long[1]);
+            in[0] = Math.addExact(in[0], amountsCents[i]);
+        }
+
+        final BankAccount[] accounts = net.keySet().toArray(new BankAccount[0]);
+        Arrays.sort(accounts, LOCK_ORDER);
+        final long[] deltas = new long[accounts.length];
+        boolean tie = false;
+        for (int i = 0; i < accounts.length; i++)
+        {
+            deltas[i] = net.get(accounts[i])[0];
+            tie |= i > 0 && LOCK_ORDER.compare(accounts[i - 1], accounts[i]) == 0;
+        }
+
+        if (tie)
+        {
+            synchronized (TIE_LOCK)
+            {
+                lockAndApply(accounts, deltas, 0);
+            }
+        } else
+        {
+            lockAndApply(accounts, deltas, 0);
+        }
+    }
+
+    private static void lockedTransfer(final BankAccount first,
+                                       final BankAccount second,
+                                       final BankAccount from,
+                                       final BankAccount to,
+                                       final long amountCents)
+    {
+        synchronized (first)
+        {
+            synchronized (second)
+            {
+                apply(new BankAccount[] {from, to}, new long[] {-amountCents, amountCents});
+            }
+        }
+    }
+
+    // Takes the monitors one by one in sorted order, then applies the net deltas
+    private static void lockAndApply(final BankAccount[] accounts,
+                                     final long[] deltas,
+                                     final int next)
+    {
+        if (next < accounts.length)
+        {
+            synchronized (accounts[next])
+            {
+                lockAndApply(accounts, deltas, next + 1);
+            }
+            return;
+        }
+
+        apply(accounts, deltas);
+    }
+
+    // Runs with every account's monitor held. No credit is posted until
+    // every step that can fail for lack of funds has passed, so undoing a
+    // failed attempt only puts debited money back, in the same commit, and
+    // snapshots never see the attempt.
+    private static void apply(final BankAccount[] accounts,
+                              final long[] deltas)
+    {
+        for (final BankAccount account : accounts)
+        {
+            requireOpen(account);
+        }
+        for (int i = 0; i < accounts.length; i++)
+        {
+            if (deltas[i] != 0L && accounts[i].isJournaled())
+            {
+                accounts[i].checkPosting(deltas[i]);
+            }
+        }
+
+        final BalanceVersion.Commit commit = new BalanceVersion.Commit();
+        final boolean[] posted = new boolean[accounts.length];
+        final long[] sequences = new long[accounts.length];
+        int appended = 0;
+        try
+        {
+            postUnjournaled(accounts, deltas, true, commit, posted);
+            for (; appended < accounts.length; appended++)
+            {
+                if (deltas[appended] != 0L && accounts[appended].isJournaled())
+                {
+                    sequences[appended] = accounts[appended].appendPosting(deltas[appended]);
+                }
+            }
+            for (int i = 0; i < accounts.length; i++)
+            {
+                if (deltas[i] != 0L && accounts[i].isJournaled())
+                {
+                    accounts[i].awaitPosting(sequences[i]);
+                }
+            }
+            // Nothing below can fail for lack of funds
+            for (int i = 0; i < accounts.length; i++)
+            {
+                if (deltas[i] != 0L && accounts[i].isJournaled())
+                {
+                    accounts[i].post(deltas[i], commit);
+                    posted[i] = true;
+                }
+            }
+            postUnjournaled(accounts, deltas, false, commit, posted);
+        } catch (final RuntimeException e)
+        {
+            for (int i = 0; i < accounts.length; i++)
+            {
+                if (posted[i])
+                {
+                    accounts[i].post(-deltas[i], commit);
+                }
+            }
+            // Cancel what the journal may already have written
+            for (int i = 0; i < appended; i++)
+            {
+                if (deltas[i] != 0L && accounts[i].isJournaled())
+                {
+                    cancelAppended(accounts[i], deltas[i]);
+                }
+            }
+            throw e;
+        } finally
+        {
+            commit.close();
+            settle(accounts);
+        }
+        for (int i = 0; i < accounts.length; i++)
+        {
+            if (deltas[i] != 0L)
+            {
+                accounts[i].rememberTransfer(deltas[i]);
+            }
+        }
+    }
+
+    private static void postUnjournaled(final BankAccount[] accounts,
+                                        final long[] deltas,
+                                        final boolean debits,
+                                        final BalanceVersion.Commit commit,
+                                        final boolean[] posted)
+    {
+        for (int i = 0; i < accounts.length; i++)
+        {
+            if ((debits ? deltas[i] < 0L : deltas[i] > 0L) && !accounts[i].isJournaled())
+            {
+                accounts[i].post(deltas[i], commit);
+                posted[i] = true;
+            }
+        }
+    }
+
+    private static void cancelAppended(final BankAccount account,
+                                       final long deltaCents)
+    {
+        try
+        {
+            account.appendPosting(-deltaCents);
+        } catch (final RuntimeException e)
+        {
+            // Nothing more can be written; the journal reports its own failure
+        }
+    }
+
+    private static void settle(final BankAccount[] accounts)
+    {
+        for (final BankAccount account : accounts)
+        {
+            account.settle();
+        }
+    }
+
+    private static void validateLeg(final BankAccount from,
+                                    final BankAccount to,
+                                    final long amountCents)
+    {
+        if (from == null || to == null)
+        {
+            throw new IllegalArgumentException("Transfer accounts must not be null.");
+        }
+        if (from == to)
+        {
+            throw new IllegalArgumentException("Cannot transfer to the same account.");
+        }
+        if (amountCents <= 0L)
+        {
+            throw new IllegalArgumentException("Transfer amount must be positive.");
+        }
+    }
+
+    private static void requireOpen(final BankAccount account)
+    {
+        if (account.getAccountClosed() != null)
+        {
+            throw new IllegalArgumentException("Account #" + account.getAccountNumber() + " is closed.");
+        }
+    }
+}
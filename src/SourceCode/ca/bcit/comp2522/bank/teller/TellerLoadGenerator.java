@@ -0,0 +1,221 @@
+package ca.bcit.comp2522.bank.teller;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load generator for {@link TellerServer}. Each simulated
+ * teller is a virtual thread that sends one request, waits for the answer,
+ * and sends the next, mixing details lookups, deposits and PIN withdrawals
+ * against random demo accounts. Latencies are recorded per teller in
+ * plain arrays and merged at the end for p50, p99 and p99.9.
+ *
+ * Without --url it starts a TellerServer over demo accounts in the same
+ * JVM, so one command measures the whole path on one machine.
+ *
+ * Usage: TellerLoadGenerator [--url http://host:port] [--accounts 10000]
+ *                            [--tellers 1000] [--seconds 10]
+ *
+ * @author Nazanin Mohsenimehr
+ * @version 1.0
+ */
+public final class TellerLoadGenerator
+{
+    private static final int DEFAULT_ACCOUNTS = 10_000;
+    private static final int DEFAULT_TELLERS = 1000;
+    private static final int DEFAULT_SECONDS = 10;
+    private static final int DEMO_NUMBER_BASE = 100_000;
+    private static final int INITIAL_SAMPLES = 1024;
+    private static final int OK = 200;
+
+    private static final int PERCENT = 100;
+    private static final int DETAILS_PERCENT = 50;
+    private static final int DEPOSIT_PERCENT = 75;
+    private static final int MAX_AMOUNT_CENTS = 500;
+
+    private static final double P50 = 0.50;
+    private static final double P99 = 0.99;
+    private static final double P999 = 0.999;
+    private static final double NANOS_PER_MILLI = 1e6;
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final long MILLIS_PER_SECOND = 1000L;
+
+    private TellerLoadGenerator()
+    {
+    }
+
+    // Latencies of one teller; only that teller's thread writes them
+    private static final class Samples
+    {
+        private long[] nanos = new long[INITIAL_SAMPLES];
+        private int count;
+
+        private void add(final long latency)
+        {
+            if (count == nanos.length)
+            {
+                nanos = Arrays.copyOf(nanos, count * 2);
+            }
+            nanos[count++] = latency;
+        }
+    }
+
+    /**
+     * Runs the load and prints throughput and latency percentiles.
+     *
+     * @param args optional --url, --accounts, --tellers and --seconds
+     * @throws Exception if the server cannot be started or the run is interrupted
+     */
+    public static void main(final String[] args) throws Exception
+    {
+        String url = null;
+        int accounts = DEFAULT_ACCOUNTS;
+        int tellers = DEFAULT_TELLERS;
+        int seconds = DEFAULT_SECONDS;
+        for (int i = 0; i < args.length; i++)
+        {
+            switch (args[i])
+            {
+                case "--url":
+                    url = args[++i];
+                    break;
+                case "--accounts":
+                    accounts = Integer.parseInt(args[++i]);
+                    break;
+                case "--tellers":
+                    tellers = Integer.parseInt(args[++i]);
+                    break;
+                case "--seconds":
+                    seconds = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        TellerServer embedded = null;
+        if (url == null)
+        {
+            embedded = TellerServer.start(TellerServer.demoRegistry(accounts), 0);
+            url = "http://localhost:" + embedded.port();
+        }
+        try
+        {
+            run(url, accounts, tellers, seconds);
+        } finally
+        {
+            if (embedded != null)
+            {
+                embedded.close();
+            }
+        }
+    }
+
+    private static void run(final String url,
+                            final int accounts,
+                            final int tellers,
+                            final int seconds) throws InterruptedException
+    {
+        final Samples[] samples = new Samples[tellers];
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        final long start = System.nanoTime();
+
+        try (HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+             ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor())
+        {
+            for (int t = 0; t < tellers; t++)
+            {
+                final Samples mine = new Samples();
+                samples[t] = mine;
+                threads.submit(() -> {
+                    while (System.nanoTime() < deadline)
+                    {
+                        final HttpRequest request = nextRequest(url, accounts);
+                        final long sent = System.nanoTime();
+                        try
+                        {
+                            final HttpResponse<Void> response =
+                                    client.send(request, HttpResponse.BodyHandlers.discarding());
+                            mine.add(System.nanoTime() - sent);
+                            if (response.statusCode() != OK)
+                            {
+                                rejected.incrementAndGet();
+                            }
+                        } catch (final IOException e)
+                        {
+                            errors.incrementAndGet();
+                        } catch (final InterruptedException e)
+                        {
+                            return;
+                        }
+                    }
+                });
+            }
+            threads.shutdown();
+            threads.awaitTermination(seconds * MILLIS_PER_SECOND * 2 + MILLIS_PER_SECOND, TimeUnit.MILLISECONDS);
+        }
+        final long elapsed = System.nanoTime() - start;
+
+        int total = 0;
+        for (final Samples s : samples)
+        {
+            total += s.count;
+        }
+        final long[] all = new long[total];
+        int n = 0;
+        for (final Samples s : samples)
+        {
+            System.arraycopy(s.nanos, 0, all, n, s.count);
+            n += s.count;
+        }
+        Arrays.sort(all);
+
+        System.out.printf("tellers=%d requests=%d non_200=%d io_errors=%d%n",
+                tellers, total, rejected.get(), errors.get());
+        System.out.printf("throughput=%.1f req/s%n", total * NANOS_PER_SECOND / elapsed);
+        System.out.printf("p50=%.3f ms p99=%.3f ms p99.9=%.3f ms max=%.3f ms%n",
+                percentile(all, P50), percentile(all, P99), percentile(all, P999),
+                total == 0 ? 0.0 : all[total - 1] / NANOS_PER_MILLI);
+    }
+
+    // Half details lookups, a quarter deposits, a quarter PIN withdrawals
+    private static HttpRequest nextRequest(final String url,
+                                           final int accounts)
+    {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final String number = String.valueOf(DEMO_NUMBER_BASE + random.nextInt(accounts));
+        final String base = url + "/accounts/" + number;
+        final int roll = random.nextInt(PERCENT);
+        final int cents = 1 + random.nextInt(MAX_AMOUNT_CENTS);
+        if (roll < DETAILS_PERCENT)
+        {
+            return HttpRequest.newBuilder(URI.create(base)).GET().build();
+        }
+        final String target = roll < DEPOSIT_PERCENT
+                ? base + "/deposit?cents=" + cents
+                : base + "/withdraw?cents=" + cents + "&pin=" + TellerServer.demoPin(number);
+        return HttpRequest.newBuilder(URI.create(target)).POST(HttpRequest.BodyPublishers.noBody()).build();
+    }
+
+    private static double percentile(final long[] sorted,
+                                     final double fraction)
+    {
+        if (sorted.length == 0)
+        {
+            return 0.0;
+        }
+        final int index = (int) Math.min(sorted.length - 1, Math.ceil(fraction * sorted.length) - 1);
+        return sorted[Math.max(index, 0)] / NANOS_PER_MILLI;
+    }
+}
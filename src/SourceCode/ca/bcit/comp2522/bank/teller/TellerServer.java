@@ -0,0 +1,362 @@
+package ca.bcit.comp2522.bank.teller;
+
+import ca.bcit.comp2522.bank.BankAccount;
+import ca.bcit.comp2522.bank.BankClient;
+import ca.bcit.comp2522.bank.BankMetrics;
+import ca.bcit.comp2522.bank.BankRegistry;
+import ca.bcit.comp2522.bank.Date;
+import ca.bcit.comp2522.bank.Name;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * HTTP front end for tellers, on the JDK's built-in HttpServer.
+ * Every exchange runs on its own virtual thread, so tens of thousands of
+ * open connections cost a little heap each instead of a platform thread
+ * each. Accounts and clients come from a {@link BankRegistry}, which is
+ * only read here.
+ *
+ * Endpoints (plain-text responses):
+ *   GET  /clients/{clientId}                          client details
+ *   GET  /accounts/{number}                           account details
+ *   POST /accounts/{number}/deposit?cents=N           deposit
+ *   POST /accounts/{number}/withdraw?cents=N&amp;pin=P    withdraw with PIN
+ *   POST /accounts/{number}/close?date=YYYY-MM-DD     close the account
+ *   GET  /metrics                                     BankMetrics snapshot
+ *
+ * Unknown clients or accounts give 404; invalid requests, wrong PINs and
+ * insufficient funds give 400 with the error message as the body.
+ *
+ * Usage: TellerServer [--port 8080] [--accounts 10000]
+ *
+ * @author Nazanin Mohsenimehr
+ * @version 1.0
+ */
+public final class TellerServer implements AutoCloseable
+{
+    /** PIN of every demo account: 1000 plus the last three digits of its number. */
+    public static final int DEMO_PIN_BASE = 1000;
+
+    private static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_DEMO_ACCOUNTS = 10_000;
+    private static final int CONNECTION_BACKLOG = 4096;
+    private static final int DEMO_PIN_MODULUS = 1000;
+    private static final long DEMO_OPENING_CENTS = 100_000L;
+    private static final int DEMO_NUMBER_BASE = 100_000;
+
+    private static final int OK = 200;
+    private static final int BAD_REQUEST = 400;
+    private static final int NOT_FOUND = 404;
+    private static final int METHOD_NOT_ALLOWED = 405;
+
+    private static final String GET = "GET";
+    private static final String POST = "POST";
+    private static final String CLIENTS = "/clients/";
+    private static final String ACCOUNTS = "/accounts/";
+    private static final String METRICS = "/metrics";
+    private static final int DATE_LENGTH = 10;
+    private static final String NO_DELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+    // Without TCP_NODELAY the server's separate header and body writes meet
+    // delayed ACKs and every keep-alive request waits about 40 ms.
+    // The JDK server reads this once, when it is first used.
+    static
+    {
+        if (System.getProperty(NO_DELAY_PROPERTY) == null)
+        {
+            System.setProperty(NO_DELAY_PROPERTY, "true");
+        }
+    }
+
+    private final BankRegistry registry;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private TellerServer(final BankRegistry registry,
+                         final HttpServer server,
+                         final ExecutorService executor)
+    {
+        this.registry = registry;
+        this.server = server;
+        this.executor = executor;
+    }
+
+    /**
+     * Starts a server.
+     *
+     * @param registry the clients and accounts to serve (non-null)
+     * @param port the TCP port, or 0 for any free port
+     * @return the running server
+     * @throws IOException if the port cannot be bound
+     */
+    public static TellerServer start(final BankRegistry registry,
+                                     final int port) throws IOException
+    {
+        if (registry == null)
+        {
+            throw new IllegalArgumentException("Registry must not be null.");
+        }
+        final HttpServer server = HttpServer.create(new InetSocketAddress(port), CONNECTION_BACKLOG);
+        final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        final TellerServer teller = new TellerServer(registry, server, executor);
+        server.createContext(CLIENTS, teller::handleClient);
+        server.createContext(ACCOUNTS, teller::handleAccount);
+        server.createContext(METRICS, TellerServer::handleMetrics);
+        server.setExecutor(executor);
+        server.start();
+        return teller;
+    }
+
+    /**
+     * Starts a server over demo data.
+     *
+     * @param args optional --port and --accounts
+     * @throws IOException if the port cannot be bound
+     */
+    public static void main(final String[] args) throws IOException
+    {
+        int port = DEFAULT_PORT;
+        int accounts = DEFAULT_DEMO_ACCOUNTS;
+        for (int i = 0; i < args.length; i++)
+        {
+            switch (args[i])
+            {
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--accounts":
+                    accounts = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        final TellerServer server = start(demoRegistry(accounts), port);
+        System.out.println("Teller server listening on port " + server.port());
+    }
+
+    /**
+     * Builds a registry of demo accounts numbered "100000", "100001", ...,
+     * each owned by its own client with the same ID, holding $1000, with
+     * PIN {@link #DEMO_PIN_BASE} plus the number's last three digits.
+     *
+     * @param accounts how many accounts to create (at most 900000)
+     * @return the registry
+     */
+    public static BankRegistry demoRegistry(final int accounts)
+    {
+        final BankRegistry registry = new BankRegistry(accounts, accounts);
+        final Name name = new Name("Grace", "Hopper");
+        final Date born = Date.of(1906, 12, 9);
+        final Date joined = Date.of(1990, 1, 2);
+        for (int n = 0; n < accounts; n++)
+        {
+            final String number = String.valueOf(DEMO_NUMBER_BASE + n);
+            final BankClient client = new BankClient(number, name, born, joined, null);
+            final BankAccount account = new BankAccount(client, number, demoPin(number), joined);
+            account.depositCents(DEMO_OPENING_CENTS);
+            registry.register(client);
+            registry.register(account);
+        }
+        return registry;
+    }
+
+    /**
+     * Returns the PIN of a demo account.
+     *
+     * @param accountNumber the demo account number
+     * @return its PIN
+     */
+    public static int demoPin(final String accountNumber)
+    {
+        return DEMO_PIN_BASE + Integer.parseInt(accountNumber) % DEMO_PIN_MODULUS;
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return the port
+     */
+    public int port()
+    {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting connections and stops the request threads.
+     */
+    @Override
+    public void close()
+    {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handleClient(final HttpExchange exchange) throws IOException
+    {
+        try (exchange)
+        {
+            if (!GET.equals(exchange.getRequestMethod()))
+            {
+                respond(exchange, METHOD_NOT_ALLOWED, "Use GET.");
+                return;
+            }
+            final BankClient client = registry.findClient(
+                    exchange.getRequestURI().getPath().substring(CLIENTS.length()));
+            if (client == null)
+            {
+                respond(exchange, NOT_FOUND, "No such client.");
+                return;
+            }
+            respond(exchange, OK, client.getDetails());
+        }
+    }
+
+    private static void handleMetrics(final HttpExchange exchange) throws IOException
+    {
+        try (exchange)
+        {
+            if (!GET.equals(exchange.getRequestMethod()))
+            {
+                respond(exchange, METHOD_NOT_ALLOWED, "Use GET.");
+                return;
+            }
+            respond(exchange, OK, BankMetrics.snapshot());
+        }
+    }
+
+    private void handleAccount(final HttpExchange exchange) throws IOException
+    {
+        try (exchange)
+        {
+            final String path = exchange.getRequestURI().getPath().substring(ACCOUNTS.length());
+            final int slash = path.indexOf('/');
+            final String number = slash < 0 ? path : path.substring(0, slash);
+            final String action = slash < 0 ? "" : path.substring(slash + 1);
+            final String query = exchange.getRequestURI().getRawQuery();
+
+            final BankAccount account = registry.findAccount(number);
+            if (account == null)
+            {
+                respond(exchange, NOT_FOUND, "No such account.");
+                return;
+            }
+            final String method = exchange.getRequestMethod();
+            if (!(action.isEmpty() ? GET : POST).equals(method))
+            {
+                respond(exchange, METHOD_NOT_ALLOWED, "Use " + (action.isEmpty() ? GET : POST) + ".");
+                return;
+            }
+
+            try
+            {
+                switch (action)
+                {
+                    case "":
+                        break;
+                    case "deposit":
+                        account.depositCents(longParameter(query, "cents"));
+                        break;
+                    case "withdraw":
+                        account.withdrawCents(longParameter(query, "cents"),
+                                intParameter(query, "pin"));
+                        break;
+                    case "close":
+                        account.close(parseDate(parameter(query, "date")));
+                        break;
+                    default:
+                        respond(exchange, NOT_FOUND, "No such action: " + action);
+                        return;
+                }
+            } catch (final IllegalArgumentException | ArithmeticException e)
+            {
+                respond(exchange, BAD_REQUEST, e.getMessage());
+                return;
+            }
+            respond(exchange, OK, account.getDetails());
+        }
+    }
+
+    private static void respond(final HttpExchange exchange,
+                                final int status,
+                                final String body) throws IOException
+    {
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody())
+        {
+            out.write(bytes);
+        }
+    }
+
+    private static String parameter(final String query,
+                                    final String name)
+    {
+        if (query != null)
+        {
+            for (final String pair : query.split("&"))
+            {
+                final int equals = pair.indexOf('=');
+                if (equals > 0 && pair.regionMatches(0, name, 0, equals) && equals == name.length())
+                {
+                    return pair.substring(equals + 1);
+                }
+            }
+        }
+        throw new IllegalArgumentException("Missing parameter: " + name);
+    }
+
+    private static long longParameter(final String query,
+                                      final String name)
+    {
+        final String value = parameter(query, name);
+        try
+        {
+            return Long.parseLong(value);
+        } catch (final NumberFormatException e)
+        {
+            throw new IllegalArgumentException("Parameter " + name + " must be a whole number: " + value);
+        }
+    }
+
+    // Rejects values outside int rather than truncating them
+    private static int intParameter(final String query,
+                                    final String name)
+    {
+        final String value = parameter(query, name);
+        try
+        {
+            return Integer.parseInt(value);
+        } catch (final NumberFormatException e)
+        {
+            throw new IllegalArgumentException("Parameter " + name + " must be a whole number in int range: " + value);
+        }
+    }
+
+    // Parses YYYY-MM-DD, the format Date.getYYYYMMDD() prints
+    private static Date parseDate(final String text)
+    {
+        if (text.length() != DATE_LENGTH || text.charAt(4) != '-' || text.charAt(7) != '-')
+        {
+            throw new IllegalArgumentException("Date must be YYYY-MM-DD: " + text);
+        }
+        try
+        {
+            return Date.of(Integer.parseInt(text.substring(0, 4)),
+                    Integer.parseInt(text.substring(5, 7)),
+                    Integer.parseInt(text.substring(8, 10)));
+        } catch (final NumberFormatException e)
+        {
+            throw new IllegalArgumentException("Date must be YYYY-MM-DD: " + text);
+        }
+    }
+}
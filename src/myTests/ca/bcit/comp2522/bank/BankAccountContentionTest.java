@@ -0,0 +1,189 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stress test for concurrent deposits and withdrawals on one BankAccount.
+ * Many threads hit the same account at once; afterwards the balance must
+ * account for every successful operation, so no update was lost, and it
+ * must never have gone below zero.
+ *
+ * Runs without a test framework: each case throws an AssertionError on
+ * failure, and main prints one line per case that passes.
+ *
+ * @author Nazanin Mohsenimehr
+ * @version 1.0
+ */
+public final class BankAccountContentionTest
+{
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 20_000;
+    private static final int PIN = 4664;
+    private static final long START_CENTS = 1_000_000L;
+
+    private BankAccountContentionTest()
+    {
+    }
+
+    /**
+     * Runs every case.
+     *
+     * @param args unused
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    public static void main(final String[] args) throws InterruptedException
+    {
+        depositsAndWithdrawalsConserveBalance();
+        racingWithdrawalsNeverOverdraw();
+        mixedUnitsConserveBalance();
+        System.out.println("BankAccountContentionTest: all cases passed");
+    }
+
+    // Every thread deposits and withdraws the same amounts, so the balance ends where it started
+    private static void depositsAndWithdrawalsConserveBalance() throws InterruptedException
+    {
+        final BankAccount account = newAccount("abc123");
+        account.depositCents(START_CENTS);
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++)
+            {
+                final long amount = 1 + (i + thread) % 100;
+                account.depositCents(amount);
+                account.withdrawCents(amount, PIN);
+            }
+        });
+
+        assertEquals(START_CENTS, account.getBalanceCents(), "balance after paired deposits and withdrawals");
+        System.out.println("depositsAndWithdrawalsConserveBalance: passed");
+    }
+
+    // Threads withdraw a cent at a time until the money runs out; exactly the starting balance is paid out
+    private static void racingWithdrawalsNeverOverdraw() throws InterruptedException
+    {
+        final long start = (long) THREADS * OPERATIONS_PER_THREAD / 2;
+        final BankAccount account = newAccount("abc124");
+        account.depositCents(start);
+        final AtomicLong paidOut = new AtomicLong();
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++)
+            {
+                try
+                {
+                    account.withdrawCents(1);
+                    paidOut.incrementAndGet();
+                } catch (final IllegalArgumentException e)
+                {
+                    assertTrue(account.getBalanceCents() >= 0L, "balance never negative");
+                }
+            }
+        });
+
+        assertEquals(start, paidOut.get(), "cents paid out");
+        assertEquals(0L, account.getBalanceCents(), "balance after draining");
+        System.out.println("racingWithdrawalsNeverOverdraw: passed");
+    }
+
+    // The dollar API goes through the same atomic cents update
+    private static void mixedUnitsConserveBalance() throws InterruptedException
+    {
+        final BankAccount account = newAccount("abc125");
+        final AtomicLong expected = new AtomicLong();
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++)
+            {
+                if (thread % 2 == 0)
+                {
+                    account.deposit(0.25);
+                    expected.addAndGet(25L);
+                } else
+                {
+                    account.depositCents(3L);
+                    expected.addAndGet(3L);
+                }
+            }
+        });
+
+        assertEquals(expected.get(), account.getBalanceCents(), "balance after mixed deposits");
+        System.out.println("mixedUnitsConserveBalance: passed");
+    }
+
+    private static BankAccount newAccount(final String accountNumber)
+    {
+        final BankClient client = new BankClient("111222",
+                new Name("Albert", "Einstein"), Date.of(1918, 7, 18), Date.of(1994, 5, 10), null);
+        return new BankAccount(client, accountNumber, PIN, Date.of(1994, 5, 10));
+    }
+
+    /**
+     * Body of one worker thread.
+     */
+    @FunctionalInterface
+    private interface Worker
+    {
+        void run(int thread);
+    }
+
+    // Starts THREADS workers together and rethrows the first failure
+    private static void runConcurrently(final Worker worker) throws InterruptedException
+    {
+        final CountDownLatch startLine = new CountDownLatch(1);
+        final Thread[] threads = new Thread[THREADS];
+        final Throwable[] failure = new Throwable[1];
+        for (int t = 0; t < threads.length; t++)
+        {
+            final int thread = t;
+            threads[t] = new Thread(() -> {
+                try
+                {
+                    startLine.await();
+                    worker.run(thread);
+                } catch (final Throwable e)
+                {
+                    synchronized (failure)
+                    {
+                        if (failure[0] == null)
+                        {
+                            failure[0] = e;
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        startLine.countDown();
+        for (final Thread thread : threads)
+        {
+            thread.join();
+        }
+        synchronized (failure)
+        {
+            if (failure[0] != null)
+            {
+                throw new AssertionError("Worker failed", failure[0]);
+            }
+        }
+    }
+
+    private static void assertEquals(final long expected,
+                                     final long actual,
+                                     final String what)
+    {
+        if (expected != actual)
+        {
+            throw new AssertionError(what + ": expected " + expected + " but was " + actual);
+        }
+    }
+
+    private static void assertTrue(final boolean condition,
+                                   final String what)
+    {
+        if (!condition)
+        {
+            throw new AssertionError(what);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package ca.bcit.comp2522.bank;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Checks every day Date supports against java.time, and against the
+ * century-offset day-of-week formula Date used before it kept an epoch day.
+ *
+ * Runs without a test framework: each case throws an AssertionError on
+ * failure, and main prints one line per case that passes.
+ *
+ * @author Nazanin Mohsenimehr
+ * @version 1.0
+ */
+public final class DateTest
+{
+    private static final LocalDate FIRST_DAY = LocalDate.of(1800, 1, 1);
+    private static final LocalDate LAST_DAY = LocalDate.of(Date.CURRENT_YEAR, 12, 31);
+
+    // Inputs of the old formula
+    private static final int CENTURY_YEAR = 2000;
+    private static final int MAX_YEAR_1800S = 1899;
+    private static final int ADJUSTMENT_1800S = 2;
+    private static final int ADJUSTMENT_2000S = 6;
+    private static final int ADJUSTMENT_LEAP_YEAR = 6;
+    private static final int YEAR_WITHIN_CENTURY_DIVISOR = 100;
+    private static final int TWELVE_YEAR_CYCLE = 12;
+    private static final int LEAP_YEAR_CYCLE = 4;
+    private static final int[] MONTH_CODES = {0, 1, 4, 4, 0, 2, 5, 0, 3, 6, 1, 4, 6};
+
+    private static final int DAYS_IN_WEEK = 7;
+    private static final int ARITHMETIC_STEP = 97;
+
+    private DateTest()
+    {
+    }
+
+    /**
+     * Runs every case.
+     *
+     * @param args unused
+     */
+    public static void main(final String[] args)
+    {
+        everyDayMatchesJavaTime();
+        everyDayOfWeekMatchesOldFormula();
+        ofEpochDayRoundTrips();
+        comparisonAndArithmeticMatchJavaTime();
+        todayIsSupported();
+        System.out.println("DateTest: all cases passed");
+    }
+
+    // Fields, epoch day, day of week and text for each of the ~82,000 days
+    private static void everyDayMatchesJavaTime()
+    {
+        int days = 0;
+        for (LocalDate expected = FIRST_DAY; !expected.isAfter(LAST_DAY); expected = expected.plusDays(1))
+        {
+            final Date date = new Date(expected.getYear(), expected.getMonthValue(), expected.getDayOfMonth());
+            final Date shared = Date.of(expected.getYear(), expected.getMonthValue(), expected.getDayOfMonth());
+            assertEquals(expected.toEpochDay(), date.getEpochDay(), expected + " epoch day");
+            assertEquals(dayOfWeek(expected), date.getDayOfTheWeek(), expected + " day of week");
+            assertEquals(expected.toString(), date.getYYYYMMDD(), expected + " text");
+            assertTrue(date.equals(shared) && date.hashCode() == shared.hashCode(), expected + " equals cached");
+            days++;
+        }
+        assertEquals(ChronoUnit.DAYS.between(FIRST_DAY, LAST_DAY) + 1, days, "days checked");
+        System.out.println("everyDayMatchesJavaTime: passed (" + days + " days)");
+    }
+
+    // The epoch-day weekday must agree with the formula it replaced, on every day
+    private static void everyDayOfWeekMatchesOldFormula()
+    {
+        for (LocalDate day = FIRST_DAY; !day.isAfter(LAST_DAY); day = day.plusDays(1))
+        {
+            final Date date = Date.of(day.getYear(), day.getMonthValue(), day.getDayOfMonth());
+            assertEquals(oldDayOfTheWeek(day.getYear(), day.getMonthValue(), day.getDayOfMonth()),
+                    date.getDayOfTheWeek(), day + " old and new day of week");
+        }
+        System.out.println("everyDayOfWeekMatchesOldFormula: passed");
+    }
+
+    private static void ofEpochDayRoundTrips()
+    {
+        for (long epochDay = FIRST_DAY.toEpochDay(); epochDay <= LAST_DAY.toEpochDay(); epochDay++)
+        {
+            final Date date = Date.ofEpochDay((int) epochDay);
+            final LocalDate expected = LocalDate.ofEpochDay(epochDay);
+            assertEquals(expected.toString(), date.getYYYYMMDD(), "ofEpochDay(" + epochDay + ")");
+            assertEquals(epochDay, date.getEpochDay(), "ofEpochDay(" + epochDay + ") epoch day");
+        }
+        assertRejected(() -> Date.ofEpochDay((int) FIRST_DAY.toEpochDay() - 1), "day before the first");
+        assertRejected(() -> Date.ofEpochDay((int) LAST_DAY.toEpochDay() + 1), "day after the last");
+        System.out.println("ofEpochDayRoundTrips: passed");
+    }
+
+    // Pairs of days a fixed stride apart, walked across the whole range
+    private static void comparisonAndArithmeticMatchJavaTime()
+    {
+        final long span = ChronoUnit.DAYS.between(FIRST_DAY, LAST_DAY);
+        for (long offset = 0; offset <= span; offset += ARITHMETIC_STEP)
+        {
+            final LocalDate a = FIRST_DAY.plusDays(offset);
+            final LocalDate b = LAST_DAY.minusDays(offset * 3 % (span + 1));
+            final Date da = Date.of(a.getYear(), a.getMonthValue(), a.getDayOfMonth());
+            final Date db = Date.of(b.getYear(), b.getMonthValue(), b.getDayOfMonth());
+            assertEquals(Integer.signum(a.compareTo(b)), Integer.signum(da.compareTo(db)), a + " vs " + b);
+            assertEquals(a.isBefore(b), da.isBefore(db), a + " before " + b);
+            assertEquals(a.isAfter(b), da.isAfter(db), a + " after " + b);
+            assertEquals(ChronoUnit.DAYS.between(a, b), Date.daysBetween(da, db), a + " to " + b);
+            assertEquals(b.toString(), da.plusDays(Date.daysBetween(da, db)).getYYYYMMDD(), a + " plus days");
+        }
+        System.out.println("comparisonAndArithmeticMatchJavaTime: passed");
+    }
+
+    // Past the last supported year, today() stops at its last day
+    private static void todayIsSupported()
+    {
+        final LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        final LocalDate expected = today.isAfter(LAST_DAY) ? LAST_DAY : today;
+        assertEquals(expected.toString(), Date.today().getYYYYMMDD(), "today");
+        System.out.println("todayIsSupported: passed");
+    }
+
+    // Day of week as Date numbers it: 0=Sat, 1=Sun, ..., 6=Fri
+    private static int dayOfWeek(final LocalDate date)
+    {
+        return (date.getDayOfWeek().getValue() + 1) % DAYS_IN_WEEK;
+    }
+
+    // The century-offset formula Date used before it kept an epoch day
+    private static int oldDayOfTheWeek(final int year,
+                                       final int month,
+                                       final int day)
+    {
+        int extraDay = 0;
+        if (year >= CENTURY_YEAR)
+        {
+            extraDay += ADJUSTMENT_2000S;
+        } else if (year <= MAX_YEAR_1800S)
+        {
+            extraDay += ADJUSTMENT_1800S;
+        }
+        if ((month == 1 || month == 2) && LocalDate.of(year, 1, 1).isLeapYear())
+        {
+            extraDay += ADJUSTMENT_LEAP_YEAR;
+        }
+        final int yearWithinCentury = year % YEAR_WITHIN_CENTURY_DIVISOR;
+        final int dozenYear = yearWithinCentury / TWELVE_YEAR_CYCLE;
+        final int remainder = yearWithinCentury - dozenYear * TWELVE_YEAR_CYCLE;
+        final int foursInRemainder = remainder / LEAP_YEAR_CYCLE;
+        final int sum = extraDay + day + dozenYear + remainder + foursInRemainder + MONTH_CODES[month];
+        return sum % DAYS_IN_WEEK;
+    }
+
+    private static void assertRejected(final Runnable action,
+                                       final String what)
+    {
+        try
+        {
+            action.run();
+        } catch (final IllegalArgumentException e)
+        {
+            return;
+        }
+        throw new AssertionError(what + ": expected IllegalArgumentException");
+    }
+
+    private static void assertEquals(final Object expected,
+                                     final Object actual,
+                                     final String what)
+    {
+        if (!expected.equals(actual))
+        {
+            throw new AssertionError(what + ": expected " + expected + " but was " + actual);
+        }
+    }
+
+    private static void assertEquals(final long expected,
+                                     final long actual,
+                                     final String what)
+    {
+        if (expected != actual)
+        {
+            throw new AssertionError(what + ": expected " + expected + " but was " + actual);
+        }
+    }
+
+    private static void assertTrue(final boolean condition,
+                                   final String what)
+    {
+        if (!condition)
+        {
+            throw new AssertionError(what);
+        }
+    }
+}
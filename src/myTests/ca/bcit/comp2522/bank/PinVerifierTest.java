@@ -0,0 +1,203 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Checks PinVerifier's throttle when a bucket of failure slots is full.
+ * Every verifier here has four slots, so every key shares one bucket, and
+ * a hand-driven clock so counts expire on cue.
+ *
+ * Runs without a test framework: each case throws an AssertionError on
+ * failure, and main prints one line per case that passes.
+ *
+ * @author Nazanin Mohsenimehr
+ * @version 1.0
+ */
+public final class PinVerifierTest
+{
+    private static final int ONE_BUCKET = 4;
+    private static final int MAX_FAILURES = 3;
+    private static final long LOCKOUT_MILLIS = 60_000L;
+    private static final int PIN = 4664;
+    private static final int WRONG_PIN = 1234;
+
+    private static final byte[] SALT = PinVerifier.newSalt();
+    private static final byte[] HASH = PinVerifier.hash(SALT, PIN);
+
+    private PinVerifierTest()
+    {
+    }
+
+    /**
+     * Runs every case.
+     *
+     * @param args unused
+     */
+    public static void main(final String[] args)
+    {
+        fullBucketStillAcceptsCorrectPin();
+        fullBucketStillCountsFailures();
+        evictedKeyKeepsItsCount();
+        clearedSlotDoesNotResetEvictedKey();
+        countsExpire();
+        System.out.println("PinVerifierTest: all cases passed");
+    }
+
+    // Four keys locked out fill the only bucket; a fifth key's correct PIN must still work
+    private static void fullBucketStillAcceptsCorrectPin()
+    {
+        final PinVerifier verifier = newVerifier(new AtomicLong());
+        for (long key = 1L; key <= ONE_BUCKET; key++)
+        {
+            lockOut(verifier, key);
+        }
+
+        verifier.verify(ONE_BUCKET + 1L, SALT, HASH, PIN);
+        for (long key = 1L; key <= ONE_BUCKET; key++)
+        {
+            assertTrue(verifier.isLockedOut(key), "key " + key + " still locked out");
+        }
+        System.out.println("fullBucketStillAcceptsCorrectPin: passed");
+    }
+
+    // A key with no slot left still gets at most MAX_FAILURES wrong guesses
+    private static void fullBucketStillCountsFailures()
+    {
+        final PinVerifier verifier = newVerifier(new AtomicLong());
+        for (long key = 1L; key <= ONE_BUCKET; key++)
+        {
+            fail(verifier, key);
+        }
+
+        final long newcomer = ONE_BUCKET + 1L;
+        int guesses = 0;
+        while (!verifier.isLockedOut(newcomer))
+        {
+            fail(verifier, newcomer);
+            guesses++;
+            assertTrue(guesses <= MAX_FAILURES, "guesses before lockout");
+        }
+        assertRefused(verifier, newcomer, PIN);
+        System.out.println("fullBucketStillCountsFailures: passed (" + guesses + " guesses)");
+    }
+
+    // Pushing a key out of its slot with failures on other keys must not reset its count
+    private static void evictedKeyKeepsItsCount()
+    {
+        final PinVerifier verifier = newVerifier(new AtomicLong());
+        final long victim = 1L;
+        fail(verifier, victim);
+        fail(verifier, victim);
+
+        // Every other key fails more often, so the victim holds the slot given up next
+        for (long key = 2L; key <= ONE_BUCKET + 2L; key++)
+        {
+            for (int i = 0; i < MAX_FAILURES; i++)
+            {
+                fail(verifier, key);
+            }
+        }
+        assertEquals(0, verifier.failedAttempts(victim), "victim has no slot");
+
+        fail(verifier, victim);
+        assertTrue(verifier.isLockedOut(victim), "victim locked after its third failure");
+        System.out.println("evictedKeyKeepsItsCount: passed");
+    }
+
+    // A success frees a slot, but the next key to fail there starts above the count given up
+    private static void clearedSlotDoesNotResetEvictedKey()
+    {
+        final PinVerifier verifier = newVerifier(new AtomicLong());
+        final long victim = 1L;
+        fail(verifier, victim);
+        fail(verifier, victim);
+        for (long key = 2L; key <= ONE_BUCKET + 1L; key++)
+        {
+            for (int i = 0; i < MAX_FAILURES - 1; i++)
+            {
+                fail(verifier, key);
+            }
+        }
+        assertEquals(0, verifier.failedAttempts(victim), "victim has no slot");
+
+        verifier.verify(2L, SALT, HASH, PIN);
+        assertEquals(0, verifier.failedAttempts(2L), "slot freed by a success");
+        fail(verifier, victim);
+        assertTrue(verifier.isLockedOut(victim), "victim locked after its third failure");
+        System.out.println("clearedSlotDoesNotResetEvictedKey: passed");
+    }
+
+    // Once the lockout time passes, every count, kept or given up, is forgotten
+    private static void countsExpire()
+    {
+        final AtomicLong clock = new AtomicLong();
+        final PinVerifier verifier = newVerifier(clock);
+        for (long key = 1L; key <= ONE_BUCKET + 1L; key++)
+        {
+            lockOut(verifier, key);
+        }
+
+        clock.addAndGet(LOCKOUT_MILLIS + 1L);
+        for (long key = 1L; key <= ONE_BUCKET + 1L; key++)
+        {
+            assertTrue(!verifier.isLockedOut(key), "key " + key + " unlocked");
+            verifier.verify(key, SALT, HASH, PIN);
+        }
+        fail(verifier, ONE_BUCKET + 2L);
+        assertEquals(1, verifier.failedAttempts(ONE_BUCKET + 2L), "count after expiry");
+        System.out.println("countsExpire: passed");
+    }
+
+    private static PinVerifier newVerifier(final AtomicLong clock)
+    {
+        return new PinVerifier(ONE_BUCKET, MAX_FAILURES, LOCKOUT_MILLIS, clock::get);
+    }
+
+    private static void lockOut(final PinVerifier verifier,
+                                final long key)
+    {
+        while (!verifier.isLockedOut(key))
+        {
+            fail(verifier, key);
+        }
+    }
+
+    private static void fail(final PinVerifier verifier,
+                             final long key)
+    {
+        assertRefused(verifier, key, WRONG_PIN);
+    }
+
+    private static void assertRefused(final PinVerifier verifier,
+                                      final long key,
+                                      final int pin)
+    {
+        try
+        {
+            verifier.verify(key, SALT, HASH, pin);
+        } catch (final IllegalArgumentException e)
+        {
+            return;
+        }
+        throw new AssertionError("key " + key + ": expected the PIN to be refused");
+    }
+
+    private static void assertEquals(final long expected,
+                                     final long actual,
+                                     final String what)
+    {
+        if (expected != actual)
+        {
+            throw new AssertionError(what + ": expected " + expected + " but was " + actual);
+        }
+    }
+
+    private static void assertTrue(final boolean condition,
+                                   final String what)
+    {
+        if (!condition)
+        {
+            throw new AssertionError(what);
+        }
+    }
+}